@@ -0,0 +1,80 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import androidx.annotation.NonNull;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.Source;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gets a list of documents, of which at most {@code maxConcurrency} are being fetched at any time.
+ *
+ * <p>Documents are fetched independently, so the failure of one document does not prevent the
+ * others from being fetched. The result holds, in the order of the references, either the {@link
+ * com.google.firebase.firestore.DocumentSnapshot} or the {@link Exception} of each document.
+ */
+class FlutterFirebaseFirestoreBulkReader {
+  private final List<DocumentReference> documentReferences;
+  private final Source source;
+  private final int maxConcurrency;
+  private final Object[] results;
+  private final AtomicInteger nextIndex = new AtomicInteger();
+  private final AtomicInteger completedCount = new AtomicInteger();
+  private final TaskCompletionSource<List<Object>> completionSource =
+      new TaskCompletionSource<>();
+
+  FlutterFirebaseFirestoreBulkReader(
+      @NonNull List<DocumentReference> documentReferences,
+      @NonNull Source source,
+      int maxConcurrency) {
+    this.documentReferences = documentReferences;
+    this.source = source;
+    this.maxConcurrency = Math.max(1, maxConcurrency);
+    this.results = new Object[documentReferences.size()];
+  }
+
+  /**
+   * Starts fetching the documents.
+   *
+   * @return A Task which completes once every document has either been fetched or has failed.
+   */
+  Task<List<Object>> get() {
+    if (results.length == 0) {
+      completionSource.trySetResult(Arrays.asList(results));
+    } else {
+      for (int i = 0; i < Math.min(maxConcurrency, results.length); i++) {
+        getNextDocument();
+      }
+    }
+
+    return completionSource.getTask();
+  }
+
+  private void getNextDocument() {
+    int index = nextIndex.getAndIncrement();
+    if (index >= results.length) return;
+
+    documentReferences
+        .get(index)
+        .get(source)
+        .addOnCompleteListener(
+            FlutterFirebaseFirestorePlugin.executor,
+            task -> {
+              results[index] = task.isSuccessful() ? task.getResult() : task.getException();
+
+              // The increment publishes the result to whichever thread completes the last document.
+              if (completedCount.incrementAndGet() == results.length) {
+                completionSource.trySetResult(Arrays.asList(results));
+              } else {
+                getNextDocument();
+              }
+            });
+  }
+}
@@ -0,0 +1,115 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Commits an arbitrarily large list of writes by splitting it into {@link WriteBatch}es of at most
+ * {@link #MAX_BATCH_SIZE} operations, of which at most {@code maxConcurrency} are in flight at any
+ * time.
+ *
+ * <p>Chunks are committed independently, so the failure of one chunk does not prevent the others
+ * from being committed. The {@link ProgressListener} is notified on the main thread as each chunk
+ * completes.
+ */
+class FlutterFirebaseFirestoreBulkWriter {
+  // The maximum number of operations Firestore allows in a single batch.
+  static final int MAX_BATCH_SIZE = 500;
+
+  interface ProgressListener {
+    void onChunkCompleted(
+        int chunkIndex,
+        int chunkCount,
+        int completedChunkCount,
+        int writeCount,
+        @Nullable Exception exception);
+  }
+
+  private final FirebaseFirestore firestore;
+  private final List<Map<String, Object>> writes;
+  private final int maxConcurrency;
+  private final ProgressListener progressListener;
+  private final int chunkCount;
+  private final TaskCompletionSource<Void> completionSource = new TaskCompletionSource<>();
+
+  // Only accessed from the main thread, on which commit completion listeners are called.
+  private int nextChunkIndex = 0;
+  private int completedChunkCount = 0;
+
+  FlutterFirebaseFirestoreBulkWriter(
+      @NonNull FirebaseFirestore firestore,
+      @NonNull List<Map<String, Object>> writes,
+      int maxConcurrency,
+      @NonNull ProgressListener progressListener) {
+    this.firestore = firestore;
+    this.writes = writes;
+    this.maxConcurrency = Math.max(1, maxConcurrency);
+    this.progressListener = progressListener;
+    this.chunkCount = (writes.size() + MAX_BATCH_SIZE - 1) / MAX_BATCH_SIZE;
+  }
+
+  /**
+   * Starts committing the writes. Must be called from the main thread.
+   *
+   * @return A Task which completes once every chunk has either been committed or has failed.
+   */
+  Task<Void> commit() {
+    if (chunkCount == 0) {
+      completionSource.trySetResult(null);
+    } else {
+      for (int i = 0; i < Math.min(maxConcurrency, chunkCount); i++) {
+        commitNextChunk();
+      }
+    }
+
+    return completionSource.getTask();
+  }
+
+  private void commitNextChunk() {
+    if (nextChunkIndex >= chunkCount) return;
+
+    final int chunkIndex = nextChunkIndex++;
+    final int fromIndex = chunkIndex * MAX_BATCH_SIZE;
+    final int toIndex = Math.min(fromIndex + MAX_BATCH_SIZE, writes.size());
+
+    // The batch is built on the executor, while the commit and its completion are handled on the
+    // main thread so that no locking is required to schedule the next chunk.
+    Tasks.call(
+            FlutterFirebaseFirestorePlugin.executor,
+            () -> {
+              WriteBatch batch = firestore.batch();
+              for (Map<String, Object> write : writes.subList(fromIndex, toIndex)) {
+                batch = FlutterFirebaseFirestorePlugin.applyWrite(firestore, batch, write);
+              }
+              return batch;
+            })
+        .onSuccessTask(WriteBatch::commit)
+        .addOnCompleteListener(
+            task -> {
+              completedChunkCount++;
+              progressListener.onChunkCompleted(
+                  chunkIndex,
+                  chunkCount,
+                  completedChunkCount,
+                  toIndex - fromIndex,
+                  task.getException());
+
+              if (completedChunkCount == chunkCount) {
+                completionSource.trySetResult(null);
+              } else {
+                commitNextChunk();
+              }
+            });
+  }
+}
@@ -0,0 +1,110 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.Nullable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the events of a single snapshot listener to at most one per interval.
+ *
+ * <p>Events received within the interval are held back until it has elapsed. Only the last of them
+ * is sent, or, when a {@link Merger} is provided, all of them merged into one. This happens before
+ * anything is encoded, so coalesced snapshots are never serialized.
+ *
+ * <p>Events held back are sent on the given executor, i.e. the one the listener receives its events
+ * on, so that they are encoded off the main thread as well.
+ */
+class FlutterFirebaseFirestoreEventThrottler<T> {
+  interface Emitter<T> {
+    void emit(T event);
+  }
+
+  interface Merger<T> {
+    T merge(T pending, T latest);
+  }
+
+  private static final AtomicLong droppedEventCount = new AtomicLong();
+  private static final AtomicLong mergedEventCount = new AtomicLong();
+
+  // Only used for timing, the flush itself runs on the executor.
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable flushRunnable;
+  private final long intervalMillis;
+  private final Emitter<T> emitter;
+  private final @Nullable Merger<T> merger;
+
+  private long lastEmitMillis;
+  private @Nullable T pendingEvent;
+  private boolean cancelled = false;
+
+  FlutterFirebaseFirestoreEventThrottler(
+      long intervalMillis, Executor executor, Emitter<T> emitter, @Nullable Merger<T> merger) {
+    this.flushRunnable = () -> executor.execute(this::flush);
+    this.intervalMillis = intervalMillis;
+    this.emitter = emitter;
+    this.merger = merger;
+    this.lastEmitMillis = -intervalMillis;
+  }
+
+  /** The number of events which were replaced by a later event of the same listener. */
+  static long getDroppedEventCount() {
+    return droppedEventCount.get();
+  }
+
+  /** The number of events which were merged into a later event of the same listener. */
+  static long getMergedEventCount() {
+    return mergedEventCount.get();
+  }
+
+  synchronized void onEvent(T event) {
+    if (cancelled) return;
+
+    // A flush is already scheduled, coalesce with the event waiting for it.
+    if (pendingEvent != null) {
+      if (merger != null) {
+        pendingEvent = merger.merge(pendingEvent, event);
+        mergedEventCount.incrementAndGet();
+      } else {
+        pendingEvent = event;
+        droppedEventCount.incrementAndGet();
+      }
+      return;
+    }
+
+    long now = SystemClock.uptimeMillis();
+    long delay = lastEmitMillis + intervalMillis - now;
+
+    if (delay <= 0) {
+      lastEmitMillis = now;
+      emitter.emit(event);
+    } else {
+      pendingEvent = event;
+      handler.postDelayed(flushRunnable, delay);
+    }
+  }
+
+  /** Immediately sends any event which is waiting for the interval to elapse. */
+  synchronized void flush() {
+    handler.removeCallbacks(flushRunnable);
+    if (cancelled || pendingEvent == null) return;
+
+    T event = pendingEvent;
+    pendingEvent = null;
+    lastEmitMillis = SystemClock.uptimeMillis();
+    emitter.emit(event);
+  }
+
+  /** Discards any pending event and ignores all further events. */
+  synchronized void cancel() {
+    cancelled = true;
+    pendingEvent = null;
+    handler.removeCallbacks(flushRunnable);
+  }
+}
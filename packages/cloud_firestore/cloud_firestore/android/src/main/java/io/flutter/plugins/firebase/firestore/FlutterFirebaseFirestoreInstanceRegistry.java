@@ -0,0 +1,107 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the {@link FirebaseFirestore} instance of each {@link FirebaseApp}, keyed by app name.
+ *
+ * <p>Instances are strongly held until they are explicitly evicted, e.g. once terminated, so their
+ * settings are only applied once. Lookups of existing instances, which happen whenever an instance
+ * is decoded from a method call, do not take a lock.
+ */
+class FlutterFirebaseFirestoreInstanceRegistry {
+  private static final ConcurrentHashMap<String, FirebaseFirestore> instances =
+      new ConcurrentHashMap<>();
+
+  // App names an instance has been created for, to count instances which are created again after
+  // having been evicted.
+  private static final Set<String> createdAppNames =
+      Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+  // App names whose snapshots are encoded with a key dictionary, see
+  // FlutterFirebaseFirestoreMessageCodec.
+  private static final Set<String> keyDictionaryAppNames =
+      Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+  private static final AtomicLong recreationCount = new AtomicLong();
+
+  private static final Object creationLock = new Object();
+
+  private FlutterFirebaseFirestoreInstanceRegistry() {}
+
+  /**
+   * Returns the instance for the given app, creating it with the given settings if none is
+   * registered. Like the settings, whether the key dictionary is enabled is only applied when the
+   * instance is created.
+   */
+  @NonNull
+  static FirebaseFirestore getOrCreate(
+      @NonNull String appName,
+      @NonNull FirebaseFirestoreSettings settings,
+      boolean keyDictionaryEnabled) {
+    FirebaseFirestore firestore = instances.get(appName);
+    if (firestore != null) return firestore;
+
+    // Settings can only be applied before an instance is used, so creation is serialized to
+    // ensure they are only applied once.
+    synchronized (creationLock) {
+      firestore = instances.get(appName);
+      if (firestore != null) return firestore;
+
+      FirebaseApp app = FirebaseApp.getInstance(appName);
+      firestore = FirebaseFirestore.getInstance(app);
+      firestore.setFirestoreSettings(settings);
+
+      if (keyDictionaryEnabled) {
+        keyDictionaryAppNames.add(appName);
+      } else {
+        keyDictionaryAppNames.remove(appName);
+      }
+
+      if (!createdAppNames.add(appName)) {
+        recreationCount.incrementAndGet();
+      }
+
+      instances.put(appName, firestore);
+      return firestore;
+    }
+  }
+
+  /**
+   * Removes the instance of the given app, so that the next lookup creates a new one.
+   *
+   * @return The removed instance, or null if none was registered.
+   */
+  @Nullable
+  static FirebaseFirestore evict(@NonNull String appName) {
+    keyDictionaryAppNames.remove(appName);
+    return instances.remove(appName);
+  }
+
+  /** Whether snapshots of the given app should be encoded with a key dictionary. */
+  static boolean isKeyDictionaryEnabled(@NonNull String appName) {
+    return keyDictionaryAppNames.contains(appName);
+  }
+
+  /** The number of registered instances. */
+  static int size() {
+    return instances.size();
+  }
+
+  /** The number of instances which were created for an app whose instance had been evicted. */
+  static long getRecreationCount() {
+    return recreationCount.get();
+  }
+}
@@ -0,0 +1,160 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import com.google.firebase.firestore.ListenerRegistration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe registry of the snapshot listeners of a single plugin instance, keyed by the handle
+ * Dart assigned to them.
+ *
+ * <p>Handles are spread over a fixed number of lock-striped maps so listeners can be added from
+ * executor threads and removed from the platform thread without contending on a single lock.
+ */
+class FlutterFirebaseFirestoreListenerRegistry {
+  private static final int STRIPE_COUNT = 16;
+
+  // How long a handle is remembered as removed before its listener has been added. The listener of
+  // a handle may never be added, e.g. if adding it failed, so its marker cannot be kept forever.
+  static final long REMOVED_MARKER_EXPIRY_MILLIS = 5 * 60 * 1000;
+
+  private final Map<Integer, ListenerRegistration>[] stripes;
+  private final AtomicInteger count = new AtomicInteger();
+
+  @SuppressWarnings("unchecked")
+  FlutterFirebaseFirestoreListenerRegistry() {
+    stripes = new Map[STRIPE_COUNT];
+    for (int i = 0; i < STRIPE_COUNT; i++) {
+      stripes[i] = new HashMap<>();
+    }
+  }
+
+  private Map<Integer, ListenerRegistration> stripeFor(int handle) {
+    return stripes[handle & (STRIPE_COUNT - 1)];
+  }
+
+  /**
+   * Adds a listener for the given handle. Any listener already registered for the handle is
+   * closed, and the new listener is closed immediately if the handle was already removed.
+   */
+  void put(int handle, @NonNull ListenerRegistration listenerRegistration) {
+    Map<Integer, ListenerRegistration> stripe = stripeFor(handle);
+    ListenerRegistration previous;
+
+    synchronized (stripe) {
+      previous = stripe.get(handle);
+      if (previous instanceof RemovedMarker) {
+        stripe.remove(handle);
+      } else {
+        stripe.put(handle, listenerRegistration);
+      }
+    }
+
+    if (previous instanceof RemovedMarker) {
+      listenerRegistration.remove();
+    } else if (previous != null) {
+      previous.remove();
+    } else {
+      count.incrementAndGet();
+    }
+  }
+
+  /**
+   * Removes and closes the listener for the given handle.
+   *
+   * @return Whether a listener was registered for the handle.
+   */
+  boolean remove(int handle) {
+    Map<Integer, ListenerRegistration> stripe = stripeFor(handle);
+    ListenerRegistration listenerRegistration;
+
+    synchronized (stripe) {
+      listenerRegistration = stripe.get(handle);
+      if (listenerRegistration == null || listenerRegistration instanceof RemovedMarker) {
+        // A handle removed again before its listener was added keeps its marker, refreshed so it
+        // does not expire early.
+        long nowMillis = SystemClock.elapsedRealtime();
+        removeExpiredMarkers(stripe, nowMillis);
+        stripe.put(handle, new RemovedMarker(nowMillis));
+      } else {
+        stripe.remove(handle);
+      }
+    }
+
+    if (listenerRegistration == null || listenerRegistration instanceof RemovedMarker) {
+      return false;
+    }
+
+    count.decrementAndGet();
+    listenerRegistration.remove();
+    return true;
+  }
+
+  /** Removes and closes every registered listener. */
+  void removeAll() {
+    for (Map<Integer, ListenerRegistration> stripe : stripes) {
+      List<ListenerRegistration> removed;
+
+      synchronized (stripe) {
+        removed = new ArrayList<>(stripe.values());
+        stripe.clear();
+      }
+
+      for (ListenerRegistration listenerRegistration : removed) {
+        if (!(listenerRegistration instanceof RemovedMarker)) {
+          count.decrementAndGet();
+          listenerRegistration.remove();
+        }
+      }
+    }
+  }
+
+  /** The number of currently registered listeners. */
+  int size() {
+    return count.get();
+  }
+
+  // Must be called while holding the lock of the stripe.
+  private static void removeExpiredMarkers(
+      Map<Integer, ListenerRegistration> stripe, long nowMillis) {
+    Iterator<ListenerRegistration> iterator = stripe.values().iterator();
+    while (iterator.hasNext()) {
+      ListenerRegistration listenerRegistration = iterator.next();
+      if (listenerRegistration instanceof RemovedMarker
+          && ((RemovedMarker) listenerRegistration).isExpired(nowMillis)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Stored when a handle is removed before its listener has been added, e.g. when a Dart stream is
+   * cancelled straight away, so that the listener is closed as soon as it is added. The marker is
+   * dropped once the listener is added, or once it has expired when another handle of the same
+   * stripe is marked as removed.
+   */
+  private static final class RemovedMarker implements ListenerRegistration {
+    private final long removedAtMillis;
+
+    RemovedMarker(long removedAtMillis) {
+      this.removedAtMillis = removedAtMillis;
+    }
+
+    boolean isExpired(long nowMillis) {
+      return nowMillis - removedAtMillis > REMOVED_MARKER_EXPIRY_MILLIS;
+    }
+
+    @Override
+    public void remove() {}
+  }
+}
@@ -5,7 +5,7 @@
 package io.flutter.plugins.firebase.firestore;
 
 import android.util.Log;
-import com.google.firebase.FirebaseApp;
+import androidx.annotation.Nullable;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.Blob;
 import com.google.firebase.firestore.DocumentChange;
@@ -19,12 +19,17 @@ import com.google.firebase.firestore.GeoPoint;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.SnapshotMetadata;
+import com.google.protobuf.ByteString;
 import io.flutter.plugin.common.StandardMessageCodec;
 import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -51,9 +56,103 @@ class FlutterFirebaseFirestoreMessageCodec extends StandardMessageCodec {
   private static final byte DATA_TYPE_FIRESTORE_INSTANCE = (byte) 144;
   private static final byte DATA_TYPE_FIRESTORE_QUERY = (byte) 145;
   private static final byte DATA_TYPE_FIRESTORE_SETTINGS = (byte) 146;
+  // When the key dictionary is enabled for an instance, the keys of document data are interned
+  // per snapshot: the first occurrence of a key defines its ID, which later occurrences refer to
+  // instead of repeating the key.
+  private static final byte DATA_TYPE_FIELD_KEY_DEFINITION = (byte) 147;
+  private static final byte DATA_TYPE_FIELD_KEY = (byte) 148;
+
+  private static final Charset UTF8 = Charset.forName("UTF8");
+
+  // Blobs of at least this size, e.g. images, are copied directly between their ByteString and the
+  // message, see writeBlob and readBlob. Smaller blobs keep the plain byte array path.
+  static final int LARGE_BLOB_THRESHOLD_BYTES = 16 * 1024;
+  private static final int BLOB_CHUNK_SIZE_BYTES = 8 * 1024;
+
+  // Maximum number of parsed queries kept around, e.g. to be reused by listeners that are
+  // re-subscribed to or by repeated get calls for the same query.
+  private static final int QUERY_CACHE_SIZE = 64;
+
+  // Queries keyed by their descriptor as sent by Dart, from the least to the most recently used.
+  // Guarded by itself.
+  private final LinkedHashMap<QueryCacheKey, CachedQuery> queryCache =
+      new LinkedHashMap<QueryCacheKey, CachedQuery>(QUERY_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<QueryCacheKey, CachedQuery> eldest) {
+          return size() > QUERY_CACHE_SIZE;
+        }
+      };
+  private int queryCacheHitCount;
+  private int queryCacheMissCount;
+
+  /**
+   * The stream messages are written into, which lets a large blob be copied straight from its
+   * ByteString into the buffer.
+   */
+  static final class MessageStream extends ByteArrayOutputStream {
+    // Writes the bytes after growing the buffer at most once to fit them.
+    void write(ByteString bytes) {
+      int size = bytes.size();
+      if (count + size > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + size));
+      }
+      bytes.copyTo(buf, 0, count, size);
+      count += size;
+    }
+
+    // Copies the message into a direct buffer, as StandardMessageCodec does.
+    ByteBuffer toDirectByteBuffer() {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(count);
+      buffer.put(buf, 0, count);
+      return buffer;
+    }
+  }
+
+  @Override
+  public ByteBuffer encodeMessage(Object message) {
+    if (message == null) {
+      return null;
+    }
+    MessageStream stream = new MessageStream();
+    writeValue(stream, message);
+    return stream.toDirectByteBuffer();
+  }
 
   @Override
   protected void writeValue(ByteArrayOutputStream stream, Object value) {
+    String snapshotType =
+        FlutterFirebaseFirestoreMetrics.isEnabled() ? getSnapshotType(value) : null;
+    if (snapshotType == null) {
+      writeFirestoreValue(stream, value);
+      return;
+    }
+
+    long startNanos = System.nanoTime();
+    int startSize = stream.size();
+    writeFirestoreValue(stream, value);
+    FlutterFirebaseFirestoreMetrics.recordEncode(
+        snapshotType, System.nanoTime() - startNanos, stream.size() - startSize);
+  }
+
+  // The type of snapshot the value is recorded as in the metrics, or null if it is not a snapshot.
+  @Nullable
+  private static String getSnapshotType(Object value) {
+    if (value instanceof DocumentSnapshot) {
+      return "DocumentSnapshot";
+    } else if (value instanceof QuerySnapshot
+        || value instanceof FlutterFirebaseFirestoreRetainedQuerySnapshot) {
+      return "QuerySnapshot";
+    } else if (value instanceof FlutterFirebaseFirestoreQuerySnapshotChanges) {
+      return ((FlutterFirebaseFirestoreQuerySnapshotChanges) value).changesOnly
+          ? "QuerySnapshotChanges"
+          : "QuerySnapshot";
+    } else if (value instanceof DocumentChange) {
+      return "DocumentChange";
+    }
+    return null;
+  }
+
+  private void writeFirestoreValue(ByteArrayOutputStream stream, Object value) {
     if (value instanceof Date) {
       stream.write(DATA_TYPE_DATE_TIME);
       writeLong(stream, ((Date) value).getTime());
@@ -71,16 +170,49 @@ class FlutterFirebaseFirestoreMessageCodec extends StandardMessageCodec {
       writeValue(stream, ((DocumentReference) value).getFirestore().getApp().getName());
       writeValue(stream, ((DocumentReference) value).getPath());
     } else if (value instanceof DocumentSnapshot) {
-      writeDocumentSnapshot(stream, (DocumentSnapshot) value);
+      DocumentSnapshot documentSnapshot = (DocumentSnapshot) value;
+      writeDocumentSnapshot(
+          stream,
+          documentSnapshot,
+          createKeyDictionary(documentSnapshot.getReference().getFirestore()));
     } else if (value instanceof QuerySnapshot) {
-      writeQuerySnapshot(stream, (QuerySnapshot) value);
+      QuerySnapshot querySnapshot = (QuerySnapshot) value;
+      writeQuerySnapshot(stream, querySnapshot, querySnapshot.getDocumentChanges(), null, null);
+    } else if (value instanceof FlutterFirebaseFirestoreQuerySnapshotChanges) {
+      FlutterFirebaseFirestoreQuerySnapshotChanges querySnapshotChanges =
+          (FlutterFirebaseFirestoreQuerySnapshotChanges) value;
+      if (querySnapshotChanges.changesOnly) {
+        writeQuerySnapshotChanges(stream, querySnapshotChanges);
+      } else {
+        writeQuerySnapshot(
+            stream,
+            querySnapshotChanges.snapshot,
+            querySnapshotChanges.documentChanges,
+            null,
+            querySnapshotChanges.fields);
+      }
+    } else if (value instanceof FlutterFirebaseFirestoreRetainedQuerySnapshot) {
+      FlutterFirebaseFirestoreRetainedQuerySnapshot retainedQuerySnapshot =
+          (FlutterFirebaseFirestoreRetainedQuerySnapshot) value;
+      writeQuerySnapshot(
+          stream,
+          retainedQuerySnapshot.snapshot,
+          retainedQuerySnapshot.snapshot.getDocumentChanges(),
+          retainedQuerySnapshot.handle,
+          null);
     } else if (value instanceof DocumentChange) {
-      writeDocumentChange(stream, (DocumentChange) value);
+      DocumentChange documentChange = (DocumentChange) value;
+      writeDocumentChange(
+          stream,
+          documentChange,
+          createKeyDictionary(documentChange.getDocument().getReference().getFirestore()),
+          true,
+          null);
     } else if (value instanceof SnapshotMetadata) {
       writeSnapshotMetadata(stream, (SnapshotMetadata) value);
     } else if (value instanceof Blob) {
       stream.write(DATA_TYPE_BLOB);
-      writeBytes(stream, ((Blob) value).toBytes());
+      writeBlob(stream, (Blob) value);
     } else if (value instanceof Double) {
       Double doubleValue = (Double) value;
       if (Double.isNaN(doubleValue)) {
@@ -97,16 +229,141 @@ class FlutterFirebaseFirestoreMessageCodec extends StandardMessageCodec {
     }
   }
 
-  private void writeSnapshotMetadata(ByteArrayOutputStream stream, SnapshotMetadata value) {
-    Map<String, Boolean> metadataMap = new HashMap<>();
-    metadataMap.put("hasPendingWrites", value.hasPendingWrites());
-    metadataMap.put("isFromCache", value.isFromCache());
-    writeValue(stream, metadataMap);
+  // Writes the blob as StandardMessageCodec writes a byte array. Blob.toBytes() and
+  // ByteString.writeTo both copy the blob out of its ByteString into a byte array before it is
+  // copied again into the stream, whereas a large blob is copied once from its ByteString into a
+  // MessageStream, which is sized for it beforehand.
+  private void writeBlob(ByteArrayOutputStream stream, Blob blob) {
+    ByteString bytes = blob.toByteString();
+    if (bytes.size() < LARGE_BLOB_THRESHOLD_BYTES) {
+      writeBytes(stream, blob.toBytes());
+      return;
+    }
+
+    writeSize(stream, bytes.size());
+    if (stream instanceof MessageStream) {
+      ((MessageStream) stream).write(bytes);
+      return;
+    }
+
+    // Any other stream is written in chunks of a bounded size.
+    byte[] chunk = new byte[BLOB_CHUNK_SIZE_BYTES];
+    for (int offset = 0; offset < bytes.size(); offset += chunk.length) {
+      int length = Math.min(chunk.length, bytes.size() - offset);
+      bytes.copyTo(chunk, offset, 0, length);
+      stream.write(chunk, 0, length);
+    }
+  }
+
+  // Reads a blob written by Dart as a byte array. Reading it with readBytes and Blob.fromBytes
+  // copies it twice, first into a byte array and then into the Blob's ByteString, whereas a large
+  // blob is copied once from the message into its ByteString.
+  private Blob readBlob(ByteBuffer buffer) {
+    int size = readSize(buffer);
+    if (size < LARGE_BLOB_THRESHOLD_BYTES) {
+      byte[] bytes = new byte[size];
+      buffer.get(bytes);
+      return Blob.fromBytes(bytes);
+    }
+
+    return Blob.fromByteString(ByteString.copyFrom(buffer, size));
+  }
+
+  // Type tags used by StandardMessageCodec for lists and maps. Snapshots are streamed straight
+  // into the output using these headers rather than being copied into intermediate collections.
+  // Their keys are written in the order in which the HashMaps of the previous encoder iterated
+  // them, so the output is byte-identical to it.
+  private static final byte STANDARD_LIST = 12;
+  private static final byte STANDARD_MAP = 13;
+  // The other type tags used by StandardMessageCodec, to skip over query descriptors.
+  private static final byte STANDARD_NULL = 0;
+  private static final byte STANDARD_TRUE = 1;
+  private static final byte STANDARD_FALSE = 2;
+  private static final byte STANDARD_INT = 3;
+  private static final byte STANDARD_LONG = 4;
+  private static final byte STANDARD_BIGINT = 5;
+  private static final byte STANDARD_DOUBLE = 6;
+  private static final byte STANDARD_STRING = 7;
+  private static final byte STANDARD_BYTE_ARRAY = 8;
+  private static final byte STANDARD_INT_ARRAY = 9;
+  private static final byte STANDARD_LONG_ARRAY = 10;
+  private static final byte STANDARD_DOUBLE_ARRAY = 11;
+  private static final byte STANDARD_FLOAT_ARRAY = 14;
+
+  private void writeListHeader(ByteArrayOutputStream stream, int size) {
+    stream.write(STANDARD_LIST);
+    writeSize(stream, size);
+  }
+
+  private void writeMapHeader(ByteArrayOutputStream stream, int size) {
+    stream.write(STANDARD_MAP);
+    writeSize(stream, size);
+  }
+
+  // Returns a new, empty key dictionary if it is enabled for the instance, otherwise null.
+  @Nullable
+  private static Map<String, Integer> createKeyDictionary(FirebaseFirestore firestore) {
+    return FlutterFirebaseFirestoreInstanceRegistry.isKeyDictionaryEnabled(
+            firestore.getApp().getName())
+        ? new HashMap<>()
+        : null;
+  }
+
+  private void writeDocumentData(
+      ByteArrayOutputStream stream,
+      @Nullable Object value,
+      @Nullable Map<String, Integer> keyDictionary) {
+    if (keyDictionary == null) {
+      writeValue(stream, value);
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      writeMapHeader(stream, map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeFieldKey(stream, (String) entry.getKey(), keyDictionary);
+        writeDocumentData(stream, entry.getValue(), keyDictionary);
+      }
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      writeListHeader(stream, list.size());
+      for (Object item : list) {
+        writeDocumentData(stream, item, keyDictionary);
+      }
+    } else {
+      writeValue(stream, value);
+    }
   }
 
-  private void writeDocumentChange(ByteArrayOutputStream stream, DocumentChange value) {
-    Map<String, Object> changeMap = new HashMap<>();
+  private void writeFieldKey(
+      ByteArrayOutputStream stream, String key, Map<String, Integer> keyDictionary) {
+    Integer id = keyDictionary.get(key);
+
+    if (id != null) {
+      stream.write(DATA_TYPE_FIELD_KEY);
+      writeSize(stream, id);
+      return;
+    }
+
+    id = keyDictionary.size();
+    keyDictionary.put(key, id);
+    stream.write(DATA_TYPE_FIELD_KEY_DEFINITION);
+    writeSize(stream, id);
+    writeBytes(stream, key.getBytes(UTF8));
+  }
 
+  private void writeSnapshotMetadata(ByteArrayOutputStream stream, SnapshotMetadata value) {
+    writeMapHeader(stream, 2);
+    writeValue(stream, "hasPendingWrites");
+    writeValue(stream, value.hasPendingWrites());
+    writeValue(stream, "isFromCache");
+    writeValue(stream, value.isFromCache());
+  }
+
+  private void writeDocumentChange(
+      ByteArrayOutputStream stream,
+      DocumentChange value,
+      @Nullable Map<String, Integer> keyDictionary,
+      boolean includeData,
+      @Nullable List<List<String>> fields) {
     String type = null;
     switch (value.getType()) {
       case ADDED:
@@ -120,53 +377,115 @@ class FlutterFirebaseFirestoreMessageCodec extends StandardMessageCodec {
         break;
     }
 
-    changeMap.put("type", type);
-    changeMap.put("data", value.getDocument().getData());
-    changeMap.put("path", value.getDocument().getReference().getPath());
-    changeMap.put("oldIndex", value.getOldIndex());
-    changeMap.put("newIndex", value.getNewIndex());
-    changeMap.put("metadata", value.getDocument().getMetadata());
+    DocumentSnapshot document = value.getDocument();
+
+    writeMapHeader(stream, 6);
+    writeValue(stream, "path");
+    writeValue(stream, document.getReference().getPath());
+    writeValue(stream, "metadata");
+    writeSnapshotMetadata(stream, document.getMetadata());
+    writeValue(stream, "data");
+    writeDocumentData(
+        stream, includeData ? getDocumentData(document, fields) : null, keyDictionary);
+    writeValue(stream, "oldIndex");
+    writeValue(stream, value.getOldIndex());
+    writeValue(stream, "type");
+    writeValue(stream, type);
+    writeValue(stream, "newIndex");
+    writeValue(stream, value.getNewIndex());
+  }
 
-    writeValue(stream, changeMap);
+  // Returns the data of the document, limited to the given fields unless they are null.
+  @Nullable
+  private static Map<String, Object> getDocumentData(
+      DocumentSnapshot document, @Nullable List<List<String>> fields) {
+    return fields == null
+        ? document.getData()
+        : FlutterFirebaseFirestorePlugin.getFields(document, fields);
   }
 
-  private void writeQuerySnapshot(ByteArrayOutputStream stream, QuerySnapshot value) {
-    List<String> paths = new ArrayList<>();
-    Map<String, Object> querySnapshotMap = new HashMap<>();
-    List<Map<String, Object>> documents = new ArrayList<>();
-    List<SnapshotMetadata> metadatas = new ArrayList<>();
+  // Snapshots retained in the FlutterFirebaseFirestoreSnapshotStore are written with their handle
+  // instead of the data of their documents. If fields are given, only the data of those fields is
+  // written for each document.
+  private void writeQuerySnapshot(
+      ByteArrayOutputStream stream,
+      QuerySnapshot value,
+      List<DocumentChange> documentChanges,
+      @Nullable Integer handle,
+      @Nullable List<List<String>> fields) {
+    // getDocuments() builds a new list on every call, so fetch it once.
+    List<DocumentSnapshot> documents = value.getDocuments();
+    int documentCount = documents.size();
+    boolean includeData = handle == null;
+    // A single dictionary is shared by all documents of the snapshot.
+    Map<String, Integer> keyDictionary =
+        includeData ? createKeyDictionary(value.getQuery().getFirestore()) : null;
+
+    writeMapHeader(stream, 5);
+
+    writeValue(stream, "documentChanges");
+    writeListHeader(stream, documentChanges.size());
+    for (DocumentChange documentChange : documentChanges) {
+      writeDocumentChange(stream, documentChange, keyDictionary, includeData, fields);
+    }
+
+    writeValue(stream, "metadata");
+    writeSnapshotMetadata(stream, value.getMetadata());
 
-    for (DocumentSnapshot document : value.getDocuments()) {
-      paths.add(document.getReference().getPath());
-      documents.add(document.getData());
-      metadatas.add(document.getMetadata());
+    if (includeData) {
+      writeValue(stream, "documents");
+      writeListHeader(stream, documentCount);
+      for (int i = 0; i < documentCount; i++) {
+        writeDocumentData(stream, getDocumentData(documents.get(i), fields), keyDictionary);
+      }
+    } else {
+      writeValue(stream, "handle");
+      writeValue(stream, handle);
     }
 
-    querySnapshotMap.put("paths", paths);
-    querySnapshotMap.put("documents", documents);
-    querySnapshotMap.put("metadatas", metadatas);
-    querySnapshotMap.put("documentChanges", value.getDocumentChanges());
-    querySnapshotMap.put("metadata", value.getMetadata());
+    writeValue(stream, "metadatas");
+    writeListHeader(stream, documentCount);
+    for (int i = 0; i < documentCount; i++) {
+      writeSnapshotMetadata(stream, documents.get(i).getMetadata());
+    }
 
-    writeValue(stream, querySnapshotMap);
+    writeValue(stream, "paths");
+    writeListHeader(stream, documentCount);
+    for (int i = 0; i < documentCount; i++) {
+      writeValue(stream, documents.get(i).getReference().getPath());
+    }
   }
 
-  private void writeDocumentSnapshot(ByteArrayOutputStream stream, DocumentSnapshot value) {
-    Map<String, Object> snapshotMap = new HashMap<>();
+  // Writes only the document changes and metadata, which Dart applies to its previous snapshot.
+  private void writeQuerySnapshotChanges(
+      ByteArrayOutputStream stream, FlutterFirebaseFirestoreQuerySnapshotChanges value) {
+    Map<String, Integer> keyDictionary =
+        createKeyDictionary(value.snapshot.getQuery().getFirestore());
 
-    snapshotMap.put("path", value.getReference().getPath());
+    writeMapHeader(stream, 2);
 
-    if (value.exists()) {
-      // noinspection ConstantConditions
-      snapshotMap.put("data", value.getData());
-    } else {
-      // noinspection ConstantConditions
-      snapshotMap.put("data", null);
+    writeValue(stream, "documentChanges");
+    writeListHeader(stream, value.documentChanges.size());
+    for (DocumentChange documentChange : value.documentChanges) {
+      writeDocumentChange(stream, documentChange, keyDictionary, true, value.fields);
     }
 
-    snapshotMap.put("metadata", value.getMetadata());
+    writeValue(stream, "metadata");
+    writeSnapshotMetadata(stream, value.snapshot.getMetadata());
+  }
 
-    writeValue(stream, snapshotMap);
+  private void writeDocumentSnapshot(
+      ByteArrayOutputStream stream,
+      DocumentSnapshot value,
+      @Nullable Map<String, Integer> keyDictionary) {
+    writeMapHeader(stream, 3);
+    writeValue(stream, "path");
+    writeValue(stream, value.getReference().getPath());
+    writeValue(stream, "metadata");
+    writeSnapshotMetadata(stream, value.getMetadata());
+    writeValue(stream, "data");
+    // getData() returns null for documents that do not exist.
+    writeDocumentData(stream, value.exists() ? value.getData() : null, keyDictionary);
   }
 
   @Override
@@ -184,8 +503,7 @@ class FlutterFirebaseFirestoreMessageCodec extends StandardMessageCodec {
         final String path = (String) readValue(buffer);
         return firestore.document(path);
       case DATA_TYPE_BLOB:
-        final byte[] bytes = readBytes(buffer);
-        return Blob.fromBytes(bytes);
+        return readBlob(buffer);
       case DATA_TYPE_ARRAY_UNION:
         return FieldValue.arrayUnion(toArray(readValue(buffer)));
       case DATA_TYPE_ARRAY_REMOVE:
@@ -205,7 +523,7 @@ class FlutterFirebaseFirestoreMessageCodec extends StandardMessageCodec {
       case DATA_TYPE_FIRESTORE_INSTANCE:
         return readFirestoreInstance(buffer);
       case DATA_TYPE_FIRESTORE_QUERY:
-        return readFirestoreQuery(buffer);
+        return readRecordedFirestoreQuery(buffer);
       case DATA_TYPE_FIRESTORE_SETTINGS:
         return readFirestoreSettings(buffer);
       case DATA_TYPE_NAN:
@@ -226,30 +544,41 @@ class FlutterFirebaseFirestoreMessageCodec extends StandardMessageCodec {
     }
   }
 
+  // Query descriptors are the most expensive values to decode, so their decoding is recorded in the
+  // metrics, including the values nested in their filters and cursors.
+  private Query readRecordedFirestoreQuery(ByteBuffer buffer) {
+    if (!FlutterFirebaseFirestoreMetrics.isEnabled()) return readFirestoreQuery(buffer);
+
+    long startNanos = System.nanoTime();
+    int startPosition = buffer.position();
+    Query query = readFirestoreQuery(buffer);
+    FlutterFirebaseFirestoreMetrics.recordDecode(
+        "Query", System.nanoTime() - startNanos, buffer.position() - startPosition);
+    return query;
+  }
+
   private FirebaseFirestore readFirestoreInstance(ByteBuffer buffer) {
     String appName = (String) readValue(buffer);
-    FirebaseFirestoreSettings settings = (FirebaseFirestoreSettings) readValue(buffer);
-
-    synchronized (FlutterFirebaseFirestorePlugin.firestoreInstanceCache) {
-      if (FlutterFirebaseFirestorePlugin.getCachedFirebaseFirestoreInstanceForKey(appName)
-          != null) {
-        return FlutterFirebaseFirestorePlugin.getCachedFirebaseFirestoreInstanceForKey(appName);
-      }
 
-      FirebaseApp app = FirebaseApp.getInstance(appName);
-      FirebaseFirestore firestore = FirebaseFirestore.getInstance(app);
-
-      firestore.setFirestoreSettings(settings);
+    // The settings map is read directly, rather than as a DATA_TYPE_FIRESTORE_SETTINGS value, as it
+    // also holds options of the plugin itself.
+    buffer.get();
+    @SuppressWarnings("unchecked")
+    Map<String, Object> settingsMap = (Map<String, Object>) readValue(buffer);
 
-      FlutterFirebaseFirestorePlugin.setCachedFirebaseFirestoreInstanceForKey(firestore, appName);
-      return firestore;
-    }
+    return FlutterFirebaseFirestoreInstanceRegistry.getOrCreate(
+        appName,
+        toFirestoreSettings(settingsMap),
+        Boolean.TRUE.equals(settingsMap.get("keyDictionaryEnabled")));
   }
 
   private FirebaseFirestoreSettings readFirestoreSettings(ByteBuffer buffer) {
     @SuppressWarnings("unchecked")
     Map<String, Object> settingsMap = (Map<String, Object>) readValue(buffer);
+    return toFirestoreSettings(settingsMap);
+  }
 
+  private FirebaseFirestoreSettings toFirestoreSettings(Map<String, Object> settingsMap) {
     FirebaseFirestoreSettings.Builder settingsBuilder = new FirebaseFirestoreSettings.Builder();
 
     if (settingsMap.get("persistenceEnabled") != null) {
@@ -286,111 +615,228 @@ class FlutterFirebaseFirestoreMessageCodec extends StandardMessageCodec {
     return settingsBuilder.build();
   }
 
+  // A query is looked up by the bytes of its descriptor before anything is decoded, so that a
+  // cached query costs a scan of the descriptor rather than decoding its filters and cursors.
   private Query readFirestoreQuery(ByteBuffer buffer) {
     try {
-      @SuppressWarnings("unchecked")
-      Map<String, Object> values = (Map<String, Object>) readValue(buffer);
-      FirebaseFirestore firestore =
-          (FirebaseFirestore) Objects.requireNonNull(values.get("firestore"));
-
-      String path = (String) Objects.requireNonNull(values.get("path"));
-      boolean isCollectionGroup = (boolean) values.get("isCollectionGroup");
-      @SuppressWarnings("unchecked")
-      Map<String, Object> parameters = (Map<String, Object>) values.get("parameters");
-
-      Query query;
-      if (isCollectionGroup) {
-        query = firestore.collectionGroup(path);
-      } else {
-        query = firestore.collection(path);
+      int startPosition = buffer.position();
+      if (!skipValue(buffer)) {
+        buffer.position(startPosition);
+        return decodeFirestoreQuery(buffer).query;
       }
 
-      if (parameters == null) return query;
-
-      // "where" filters
-      @SuppressWarnings("unchecked")
-      List<List<Object>> filters =
-          (List<List<Object>>) Objects.requireNonNull(parameters.get("where"));
-      for (List<Object> condition : filters) {
-        FieldPath fieldPath = (FieldPath) condition.get(0);
-        String operator = (String) condition.get(1);
-        Object value = condition.get(2);
-
-        if ("==".equals(operator)) {
-          query = query.whereEqualTo(fieldPath, value);
-        } else if ("<".equals(operator)) {
-          query = query.whereLessThan(fieldPath, value);
-        } else if ("<=".equals(operator)) {
-          query = query.whereLessThanOrEqualTo(fieldPath, value);
-        } else if (">".equals(operator)) {
-          query = query.whereGreaterThan(fieldPath, value);
-        } else if (">=".equals(operator)) {
-          query = query.whereGreaterThanOrEqualTo(fieldPath, value);
-        } else if ("array-contains".equals(operator)) {
-          query = query.whereArrayContains(fieldPath, value);
-        } else if ("array-contains-any".equals(operator)) {
-          @SuppressWarnings("unchecked")
-          List<Object> listValues = (List<Object>) value;
-          query = query.whereArrayContainsAny(fieldPath, listValues);
-        } else if ("in".equals(operator)) {
-          @SuppressWarnings("unchecked")
-          List<Object> listValues = (List<Object>) value;
-          query = query.whereIn(fieldPath, listValues);
-        } else {
-          Log.w(
-              "FLTFirestoreMsgCodec",
-              "An invalid query operator " + operator + " was received but not handled.");
+      QueryCacheKey lookupKey = new QueryCacheKey(buffer, startPosition, buffer.position());
+      synchronized (queryCache) {
+        CachedQuery cachedQuery = queryCache.get(lookupKey);
+        if (cachedQuery != null) {
+          queryCacheHitCount++;
+          return cachedQuery.query;
         }
+        queryCacheMissCount++;
       }
 
-      // "limit" filters
-      Number limit = (Number) parameters.get("limit");
-      if (limit != null) query = query.limit(limit.longValue());
+      int endPosition = buffer.position();
+      buffer.position(startPosition);
+      CachedQuery cachedQuery = decodeFirestoreQuery(buffer);
+      buffer.position(endPosition);
+      synchronized (queryCache) {
+        queryCache.put(lookupKey.copy(), cachedQuery);
+      }
+      return cachedQuery.query;
+    } catch (Exception exception) {
+      Log.e(
+          "FLTFirestoreMsgCodec",
+          "An error occurred while parsing query arguments, this is most likely an error with this SDK.",
+          exception);
+      return null;
+    }
+  }
+
+  private CachedQuery decodeFirestoreQuery(ByteBuffer buffer) {
+    @SuppressWarnings("unchecked")
+    Map<String, Object> values = (Map<String, Object>) readValue(buffer);
+    FirebaseFirestore firestore =
+        (FirebaseFirestore) Objects.requireNonNull(values.get("firestore"));
+
+    String path = (String) Objects.requireNonNull(values.get("path"));
+    boolean isCollectionGroup = (boolean) values.get("isCollectionGroup");
+    @SuppressWarnings("unchecked")
+    Map<String, Object> parameters = (Map<String, Object>) values.get("parameters");
+
+    return new CachedQuery(firestore, buildQuery(firestore, path, isCollectionGroup, parameters));
+  }
+
+  // Moves the buffer past the value at its position without decoding it, in the same way as
+  // readValue reads it. Returns false if the value holds a type unknown to this codec.
+  private static boolean skipValue(ByteBuffer buffer) {
+    byte type = buffer.get();
+    switch (type) {
+      case STANDARD_NULL:
+      case STANDARD_TRUE:
+      case STANDARD_FALSE:
+      case DATA_TYPE_DELETE:
+      case DATA_TYPE_SERVER_TIMESTAMP:
+      case DATA_TYPE_DOCUMENT_ID:
+      case DATA_TYPE_NAN:
+      case DATA_TYPE_INFINITY:
+      case DATA_TYPE_NEGATIVE_INFINITY:
+        return true;
+      case STANDARD_INT:
+        return skipBytes(buffer, 4);
+      case STANDARD_LONG:
+      case DATA_TYPE_DATE_TIME:
+        return skipBytes(buffer, 8);
+      case DATA_TYPE_TIMESTAMP:
+        return skipBytes(buffer, 12);
+      case STANDARD_DOUBLE:
+        readAlignment(buffer, 8);
+        return skipBytes(buffer, 8);
+      case DATA_TYPE_GEO_POINT:
+        readAlignment(buffer, 8);
+        return skipBytes(buffer, 16);
+      case STANDARD_BIGINT:
+      case STANDARD_STRING:
+      case STANDARD_BYTE_ARRAY:
+      case DATA_TYPE_BLOB:
+        return skipBytes(buffer, readSize(buffer));
+      case STANDARD_INT_ARRAY:
+      case STANDARD_FLOAT_ARRAY:
+        {
+          int length = readSize(buffer);
+          readAlignment(buffer, 4);
+          return skipBytes(buffer, 4 * length);
+        }
+      case STANDARD_LONG_ARRAY:
+      case STANDARD_DOUBLE_ARRAY:
+        {
+          int length = readSize(buffer);
+          readAlignment(buffer, 8);
+          return skipBytes(buffer, 8 * length);
+        }
+      case STANDARD_LIST:
+      case DATA_TYPE_FIELD_PATH:
+        return skipValues(buffer, readSize(buffer));
+      case STANDARD_MAP:
+        return skipValues(buffer, 2 * readSize(buffer));
+      case DATA_TYPE_DOCUMENT_REFERENCE:
+      case DATA_TYPE_FIRESTORE_INSTANCE:
+        // The instance is followed by its settings, see readFirestoreInstance.
+        return skipValues(buffer, 2);
+      case DATA_TYPE_ARRAY_UNION:
+      case DATA_TYPE_ARRAY_REMOVE:
+      case DATA_TYPE_INCREMENT_INTEGER:
+      case DATA_TYPE_INCREMENT_DOUBLE:
+      case DATA_TYPE_FIRESTORE_QUERY:
+      case DATA_TYPE_FIRESTORE_SETTINGS:
+        return skipValue(buffer);
+      default:
+        return false;
+    }
+  }
 
-      Number limitToLast = (Number) parameters.get("limitToLast");
-      if (limitToLast != null) query = query.limitToLast(limitToLast.longValue());
+  private static boolean skipValues(ByteBuffer buffer, int count) {
+    for (int i = 0; i < count; i++) {
+      if (!skipValue(buffer)) return false;
+    }
+    return true;
+  }
 
-      // "orderBy" filters
-      @SuppressWarnings("unchecked")
-      List<List<Object>> orderBy = (List<List<Object>>) parameters.get("orderBy");
-      if (orderBy == null) return query;
+  private static boolean skipBytes(ByteBuffer buffer, int count) {
+    buffer.position(buffer.position() + count);
+    return true;
+  }
 
-      for (List<Object> order : orderBy) {
-        FieldPath fieldPath = (FieldPath) order.get(0);
-        boolean descending = (boolean) order.get(1);
+  private Query buildQuery(
+      FirebaseFirestore firestore,
+      String path,
+      boolean isCollectionGroup,
+      Map<String, Object> parameters) {
+    Query query;
+    if (isCollectionGroup) {
+      query = firestore.collectionGroup(path);
+    } else {
+      query = firestore.collection(path);
+    }
 
-        Query.Direction direction =
-            descending ? Query.Direction.DESCENDING : Query.Direction.ASCENDING;
+    if (parameters == null) return query;
 
-        query = query.orderBy(fieldPath, direction);
+    // "where" filters
+    @SuppressWarnings("unchecked")
+    List<List<Object>> filters =
+        (List<List<Object>>) Objects.requireNonNull(parameters.get("where"));
+    for (List<Object> condition : filters) {
+      FieldPath fieldPath = (FieldPath) condition.get(0);
+      String operator = (String) condition.get(1);
+      Object value = condition.get(2);
+
+      if ("==".equals(operator)) {
+        query = query.whereEqualTo(fieldPath, value);
+      } else if ("<".equals(operator)) {
+        query = query.whereLessThan(fieldPath, value);
+      } else if ("<=".equals(operator)) {
+        query = query.whereLessThanOrEqualTo(fieldPath, value);
+      } else if (">".equals(operator)) {
+        query = query.whereGreaterThan(fieldPath, value);
+      } else if (">=".equals(operator)) {
+        query = query.whereGreaterThanOrEqualTo(fieldPath, value);
+      } else if ("array-contains".equals(operator)) {
+        query = query.whereArrayContains(fieldPath, value);
+      } else if ("array-contains-any".equals(operator)) {
+        @SuppressWarnings("unchecked")
+        List<Object> listValues = (List<Object>) value;
+        query = query.whereArrayContainsAny(fieldPath, listValues);
+      } else if ("in".equals(operator)) {
+        @SuppressWarnings("unchecked")
+        List<Object> listValues = (List<Object>) value;
+        query = query.whereIn(fieldPath, listValues);
+      } else {
+        Log.w(
+            "FLTFirestoreMsgCodec",
+            "An invalid query operator " + operator + " was received but not handled.");
       }
+    }
 
-      // cursor queries
-      @SuppressWarnings("unchecked")
-      List<Object> startAt = (List<Object>) parameters.get("startAt");
-      if (startAt != null) query = query.startAt(Objects.requireNonNull(startAt.toArray()));
+    // "limit" filters
+    Number limit = (Number) parameters.get("limit");
+    if (limit != null) query = query.limit(limit.longValue());
 
-      @SuppressWarnings("unchecked")
-      List<Object> startAfter = (List<Object>) parameters.get("startAfter");
-      if (startAfter != null)
-        query = query.startAfter(Objects.requireNonNull(startAfter.toArray()));
+    Number limitToLast = (Number) parameters.get("limitToLast");
+    if (limitToLast != null) query = query.limitToLast(limitToLast.longValue());
 
-      @SuppressWarnings("unchecked")
-      List<Object> endAt = (List<Object>) parameters.get("endAt");
-      if (endAt != null) query = query.endAt(Objects.requireNonNull(endAt.toArray()));
+    // "orderBy" filters
+    @SuppressWarnings("unchecked")
+    List<List<Object>> orderBy = (List<List<Object>>) parameters.get("orderBy");
+    if (orderBy == null) return query;
 
-      @SuppressWarnings("unchecked")
-      List<Object> endBefore = (List<Object>) parameters.get("endBefore");
-      if (endBefore != null) query = query.endBefore(Objects.requireNonNull(endBefore.toArray()));
+    for (List<Object> order : orderBy) {
+      FieldPath fieldPath = (FieldPath) order.get(0);
+      boolean descending = (boolean) order.get(1);
 
-      return query;
-    } catch (Exception exception) {
-      Log.e(
-          "FLTFirestoreMsgCodec",
-          "An error occurred while parsing query arguments, this is most likely an error with this SDK.",
-          exception);
-      return null;
+      Query.Direction direction =
+          descending ? Query.Direction.DESCENDING : Query.Direction.ASCENDING;
+
+      query = query.orderBy(fieldPath, direction);
     }
+
+    // cursor queries
+    @SuppressWarnings("unchecked")
+    List<Object> startAt = (List<Object>) parameters.get("startAt");
+    if (startAt != null) query = query.startAt(Objects.requireNonNull(startAt.toArray()));
+
+    @SuppressWarnings("unchecked")
+    List<Object> startAfter = (List<Object>) parameters.get("startAfter");
+    if (startAfter != null)
+      query = query.startAfter(Objects.requireNonNull(startAfter.toArray()));
+
+    @SuppressWarnings("unchecked")
+    List<Object> endAt = (List<Object>) parameters.get("endAt");
+    if (endAt != null) query = query.endAt(Objects.requireNonNull(endAt.toArray()));
+
+    @SuppressWarnings("unchecked")
+    List<Object> endBefore = (List<Object>) parameters.get("endBefore");
+    if (endBefore != null) query = query.endBefore(Objects.requireNonNull(endBefore.toArray()));
+
+    return query;
   }
 
   private Object[] toArray(Object source) {
@@ -406,4 +852,100 @@ class FlutterFirebaseFirestoreMessageCodec extends StandardMessageCodec {
     String message = "java.util.List was expected, unable to convert '%s' to an object array";
     throw new IllegalArgumentException(String.format(message, sourceType));
   }
+
+  /** The ratio of query lookups that were served from the query cache, or 0 if none were made. */
+  double getQueryCacheHitRate() {
+    synchronized (queryCache) {
+      int lookupCount = queryCacheHitCount + queryCacheMissCount;
+      return lookupCount == 0 ? 0 : (double) queryCacheHitCount / lookupCount;
+    }
+  }
+
+  /** Forgets the queries of the instance, e.g. once it has been terminated. */
+  void evictQueries(FirebaseFirestore firestore) {
+    synchronized (queryCache) {
+      Iterator<CachedQuery> iterator = queryCache.values().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().firestore == firestore) {
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  /** Forgets the queries of every instance, e.g. once core has been reinitialized. */
+  void evictAllQueries() {
+    synchronized (queryCache) {
+      queryCache.clear();
+    }
+  }
+
+  /**
+   * The bytes of a query descriptor as sent by Dart, along with its alignment, as values within it
+   * are padded depending on where the descriptor starts in the message.
+   *
+   * <p>A key looking up a query refers to the bytes in the message, whereas a cached key holds a
+   * copy of them.
+   */
+  private static final class QueryCacheKey {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+    private final int alignment;
+    private final int hashCode;
+
+    QueryCacheKey(ByteBuffer buffer, int startPosition, int endPosition) {
+      this(buffer, startPosition, endPosition - startPosition, startPosition % 8);
+    }
+
+    private QueryCacheKey(ByteBuffer buffer, int offset, int length, int alignment) {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+      this.alignment = alignment;
+
+      int hashCode = alignment;
+      for (int i = 0; i < length; i++) {
+        hashCode = 31 * hashCode + buffer.get(offset + i);
+      }
+      this.hashCode = hashCode;
+    }
+
+    QueryCacheKey copy() {
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) {
+        bytes[i] = buffer.get(offset + i);
+      }
+      return new QueryCacheKey(ByteBuffer.wrap(bytes), 0, length, alignment);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof QueryCacheKey)) return false;
+      QueryCacheKey that = (QueryCacheKey) o;
+      if (hashCode != that.hashCode || length != that.length || alignment != that.alignment) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (buffer.get(offset + i) != that.buffer.get(that.offset + i)) return false;
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static final class CachedQuery {
+    final FirebaseFirestore firestore;
+    final Query query;
+
+    CachedQuery(FirebaseFirestore firestore, Query query) {
+      this.firestore = firestore;
+      this.query = query;
+    }
+  }
 }
@@ -0,0 +1,85 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import androidx.annotation.Nullable;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodCodec;
+import io.flutter.plugin.common.StandardMethodCodec;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link StandardMethodCodec} of the Firestore message codec, which writes its messages into a
+ * {@link FlutterFirebaseFirestoreMessageCodec.MessageStream} so that large blobs are copied into
+ * them once. Messages are decoded by the {@link StandardMethodCodec}.
+ */
+class FlutterFirebaseFirestoreMethodCodec implements MethodCodec {
+  private static final byte SUCCESS = 0;
+  private static final byte ERROR = 1;
+
+  private final FlutterFirebaseFirestoreMessageCodec messageCodec;
+  private final StandardMethodCodec standardMethodCodec;
+
+  FlutterFirebaseFirestoreMethodCodec(FlutterFirebaseFirestoreMessageCodec messageCodec) {
+    this.messageCodec = messageCodec;
+    this.standardMethodCodec = new StandardMethodCodec(messageCodec);
+  }
+
+  @Override
+  public ByteBuffer encodeMethodCall(MethodCall methodCall) {
+    FlutterFirebaseFirestoreMessageCodec.MessageStream stream =
+        new FlutterFirebaseFirestoreMessageCodec.MessageStream();
+    messageCodec.writeValue(stream, methodCall.method);
+    messageCodec.writeValue(stream, methodCall.arguments);
+    return stream.toDirectByteBuffer();
+  }
+
+  @Override
+  public MethodCall decodeMethodCall(ByteBuffer methodCall) {
+    return standardMethodCodec.decodeMethodCall(methodCall);
+  }
+
+  @Override
+  public ByteBuffer encodeSuccessEnvelope(@Nullable Object result) {
+    FlutterFirebaseFirestoreMessageCodec.MessageStream stream =
+        new FlutterFirebaseFirestoreMessageCodec.MessageStream();
+    stream.write(SUCCESS);
+    messageCodec.writeValue(stream, result);
+    return stream.toDirectByteBuffer();
+  }
+
+  @Override
+  public ByteBuffer encodeErrorEnvelope(
+      String errorCode, @Nullable String errorMessage, @Nullable Object errorDetails) {
+    FlutterFirebaseFirestoreMessageCodec.MessageStream stream =
+        new FlutterFirebaseFirestoreMessageCodec.MessageStream();
+    stream.write(ERROR);
+    messageCodec.writeValue(stream, errorCode);
+    messageCodec.writeValue(stream, errorMessage);
+    messageCodec.writeValue(stream, errorDetails);
+    return stream.toDirectByteBuffer();
+  }
+
+  // Not annotated with @Override, as MethodCodec only declares it in newer versions of Flutter.
+  public ByteBuffer encodeErrorEnvelopeWithStacktrace(
+      String errorCode,
+      @Nullable String errorMessage,
+      @Nullable Object errorDetails,
+      @Nullable String errorStacktrace) {
+    FlutterFirebaseFirestoreMessageCodec.MessageStream stream =
+        new FlutterFirebaseFirestoreMessageCodec.MessageStream();
+    stream.write(ERROR);
+    messageCodec.writeValue(stream, errorCode);
+    messageCodec.writeValue(stream, errorMessage);
+    messageCodec.writeValue(stream, errorDetails);
+    messageCodec.writeValue(stream, errorStacktrace);
+    return stream.toDirectByteBuffer();
+  }
+
+  @Override
+  public Object decodeEnvelope(ByteBuffer envelope) {
+    return standardMethodCodec.decodeEnvelope(envelope);
+  }
+}
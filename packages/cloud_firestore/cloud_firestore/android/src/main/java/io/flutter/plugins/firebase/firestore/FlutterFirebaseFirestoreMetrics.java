@@ -0,0 +1,222 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import androidx.annotation.NonNull;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Opt-in metrics of the Firestore bridge: latency histograms per method, the time tasks spend
+ * queued on the executor, the time taken and bytes written to encode each type of snapshot, and
+ * the time taken and bytes read to decode each type of value sent by Dart.
+ *
+ * <p>Recording only updates atomic counters and is skipped entirely while metrics are disabled,
+ * so metrics can be left enabled in production. Histograms are only summarized when read.
+ */
+class FlutterFirebaseFirestoreMetrics {
+  private static volatile boolean enabled = false;
+
+  private static final ConcurrentHashMap<String, Histogram> methodLatencies =
+      new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<String, Histogram> encodeTimes =
+      new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<String, Histogram> encodedSizes =
+      new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<String, Histogram> decodeTimes =
+      new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<String, Histogram> decodedSizes =
+      new ConcurrentHashMap<>();
+  private static final Histogram queueWaitTimes = new Histogram();
+  private static final AtomicInteger inFlightMethodCallCount = new AtomicInteger();
+
+  private FlutterFirebaseFirestoreMetrics() {}
+
+  static boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Enables or disables recording. Disabling also clears everything recorded so far. */
+  static void setEnabled(boolean enabled) {
+    FlutterFirebaseFirestoreMetrics.enabled = enabled;
+
+    if (!enabled) {
+      methodLatencies.clear();
+      encodeTimes.clear();
+      encodedSizes.clear();
+      decodeTimes.clear();
+      decodedSizes.clear();
+      queueWaitTimes.clear();
+    }
+  }
+
+  /**
+   * Records the start of a method call.
+   *
+   * @return The start time to pass to {@link #recordMethodCallEnd}, or 0 if metrics are disabled.
+   */
+  static long recordMethodCallStart() {
+    if (!enabled) return 0;
+
+    inFlightMethodCallCount.incrementAndGet();
+    return System.nanoTime();
+  }
+
+  static void recordMethodCallEnd(@NonNull String method, long startNanos) {
+    if (startNanos == 0) return;
+
+    inFlightMethodCallCount.decrementAndGet();
+    if (enabled) {
+      histogramFor(methodLatencies, method).record(toMicros(System.nanoTime() - startNanos));
+    }
+  }
+
+  static void recordQueueWait(long waitNanos) {
+    if (enabled) queueWaitTimes.record(toMicros(waitNanos));
+  }
+
+  static void recordEncode(@NonNull String type, long encodeNanos, int bytes) {
+    if (!enabled) return;
+
+    histogramFor(encodeTimes, type).record(toMicros(encodeNanos));
+    histogramFor(encodedSizes, type).record(bytes);
+  }
+
+  static void recordDecode(@NonNull String type, long decodeNanos, int bytes) {
+    if (!enabled) return;
+
+    histogramFor(decodeTimes, type).record(toMicros(decodeNanos));
+    histogramFor(decodedSizes, type).record(bytes);
+  }
+
+  /**
+   * Returns the recorded metrics. Latencies are in microseconds and sizes in bytes, each histogram
+   * being summarized by its count, mean, 50th, 90th and 99th percentile and maximum.
+   */
+  static Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("enabled", enabled);
+    metrics.put("inFlightMethodCalls", inFlightMethodCallCount.get());
+    metrics.put("queueWaitMicros", queueWaitTimes.summarize());
+    metrics.put("methodLatencyMicros", summarize(methodLatencies));
+    metrics.put("encodeTimeMicros", summarize(encodeTimes));
+    metrics.put("encodedBytes", summarize(encodedSizes));
+    metrics.put("decodeTimeMicros", summarize(decodeTimes));
+    metrics.put("decodedBytes", summarize(decodedSizes));
+    return metrics;
+  }
+
+  private static Map<String, Object> summarize(Map<String, Histogram> histograms) {
+    Map<String, Object> summaries = new HashMap<>();
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+      summaries.put(entry.getKey(), entry.getValue().summarize());
+    }
+    return summaries;
+  }
+
+  private static Histogram histogramFor(
+      ConcurrentHashMap<String, Histogram> histograms, String key) {
+    Histogram histogram = histograms.get(key);
+    if (histogram != null) return histogram;
+
+    histogram = new Histogram();
+    Histogram existing = histograms.putIfAbsent(key, histogram);
+    return existing != null ? existing : histogram;
+  }
+
+  private static long toMicros(long nanos) {
+    return nanos / 1000;
+  }
+
+  /**
+   * A histogram of non-negative values with log-linear buckets: each power of two is split into
+   * {@link #SUB_BUCKET_COUNT} buckets, so any recorded value is reported within about 6% of its
+   * actual value, in a fixed amount of memory.
+   */
+  static final class Histogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // Values from 2^40, i.e. about 12 days in microseconds, are recorded in the last bucket.
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+      value = Math.max(0, Math.min(value, MAX_VALUE));
+
+      buckets.incrementAndGet(bucketIndex(value));
+      count.incrementAndGet();
+      sum.addAndGet(value);
+
+      long currentMax;
+      do {
+        currentMax = max.get();
+      } while (value > currentMax && !max.compareAndSet(currentMax, value));
+    }
+
+    void clear() {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        buckets.set(i, 0);
+      }
+      count.set(0);
+      sum.set(0);
+      max.set(0);
+    }
+
+    // Values below SUB_BUCKET_COUNT have a bucket each. Above that, the bucket is given by the
+    // position of the highest set bit and the SUB_BUCKET_BITS bits that follow it.
+    static int bucketIndex(long value) {
+      int highestBit = 63 - Long.numberOfLeadingZeros(value);
+      if (highestBit < SUB_BUCKET_BITS) return (int) value;
+
+      int shift = highestBit - SUB_BUCKET_BITS;
+      return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    // The lowest value which is recorded in the bucket.
+    static long bucketLowerBound(int index) {
+      if (index < SUB_BUCKET_COUNT) return index;
+
+      int shift = index / SUB_BUCKET_COUNT - 1;
+      return (long) (index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+    }
+
+    /** Returns the lowest value of the bucket holding the given percentile, or 0 if empty. */
+    long getPercentile(double percentile) {
+      long total = count.get();
+      if (total == 0) return 0;
+
+      long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+      long seen = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        seen += buckets.get(i);
+        if (seen >= target) return bucketLowerBound(i);
+      }
+      return max.get();
+    }
+
+    Map<String, Object> summarize() {
+      long total = count.get();
+
+      Map<String, Object> summary = new HashMap<>();
+      summary.put("count", total);
+      summary.put("mean", total == 0 ? 0.0 : (double) sum.get() / total);
+      summary.put("p50", getPercentile(50));
+      summary.put("p90", getPercentile(90));
+      summary.put("p99", getPercentile(99));
+      summary.put("max", max.get());
+      return summary;
+    }
+  }
+}
@@ -5,9 +5,14 @@
 package io.flutter.plugins.firebase.firestore;
 
 import android.app.Activity;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
-import android.util.SparseArray;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.FirebaseApp;
@@ -30,67 +35,89 @@ import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import io.flutter.plugin.common.MethodCodec;
 import io.flutter.plugin.common.PluginRegistry;
-import io.flutter.plugin.common.StandardMethodCodec;
+import io.flutter.plugins.firebase.core.FlutterFirebaseExecutors;
 import io.flutter.plugins.firebase.core.FlutterFirebasePlugin;
 import io.flutter.plugins.firebase.core.FlutterFirebasePluginRegistry;
-import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class FlutterFirebaseFirestorePlugin
     implements FlutterFirebasePlugin, MethodCallHandler, FlutterPlugin, ActivityAware {
-  protected static final WeakHashMap<String, WeakReference<FirebaseFirestore>>
-      firestoreInstanceCache = new WeakHashMap<>();
-  private static final SparseArray<ListenerRegistration> listenerRegistrations =
-      new SparseArray<>();
-
+  // Firestore SDK calls return GMS Tasks which are chained rather than awaited, so this executor
+  // is only used for short-lived work such as parsing arguments, building batches and encoding
+  // snapshot listener events. Its size is therefore bounded regardless of call volume.
+  @VisibleForTesting
+  static final ExecutorService threadPool =
+      FlutterFirebaseExecutors.newExecutor(
+          "Firestore", Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+  // Transaction#get is synchronous, so each read of a transaction holds a thread until its
+  // document has been fetched. Reads run on their own executor so that they cannot take up the
+  // threads of the thread pool. At most this many reads wait at once, later reads are queued.
+  @VisibleForTesting static final int MAX_CONCURRENT_TRANSACTION_READS = 4;
+
+  @VisibleForTesting
+  static final ExecutorService transactionThreadPool =
+      FlutterFirebaseExecutors.newExecutor(
+          "FirestoreTransaction", MAX_CONCURRENT_TRANSACTION_READS);
+
+  // Runs tasks on the thread pool, recording how long they were queued while metrics are enabled.
+  static final Executor executor =
+      command -> {
+        if (!FlutterFirebaseFirestoreMetrics.isEnabled()) {
+          threadPool.execute(command);
+          return;
+        }
+
+        long enqueuedNanos = System.nanoTime();
+        threadPool.execute(
+            () -> {
+              FlutterFirebaseFirestoreMetrics.recordQueueWait(System.nanoTime() - enqueuedNanos);
+              command.run();
+            });
+      };
+
+  private final FlutterFirebaseFirestoreListenerRegistry listenerRegistry =
+      new FlutterFirebaseFirestoreListenerRegistry();
+  private final ConcurrentHashMap<Integer, FlutterFirebaseFirestoreQueryCursor> queryCursors =
+      new ConcurrentHashMap<>();
+  private final FlutterFirebaseFirestoreSnapshotStore snapshotStore =
+      new FlutterFirebaseFirestoreSnapshotStore();
+  private static final String CHANNEL_NAME = "plugins.flutter.io/firebase_firestore";
+  // Persisted query snapshots are served over their own channel, as they are replied with the
+  // memory-mapped file rather than a value encoded by the method channel.
+  private static final String PERSISTED_SNAPSHOTS_CHANNEL_NAME =
+      CHANNEL_NAME + "/persisted_snapshots";
+  private static final MethodCodec METHOD_CODEC =
+      new FlutterFirebaseFirestoreMethodCodec(FlutterFirebaseFirestoreMessageCodec.INSTANCE);
+
+  private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
   private MethodChannel channel;
+  private volatile BinaryMessenger messenger;
+  private FlutterFirebaseFirestoreSnapshotPersistence snapshotPersistence;
   private Activity activity;
 
-  protected static FirebaseFirestore getCachedFirebaseFirestoreInstanceForKey(String key) {
-    synchronized (firestoreInstanceCache) {
-      WeakReference<FirebaseFirestore> existingInstance = firestoreInstanceCache.get(key);
-      if (existingInstance != null) {
-        return existingInstance.get();
-      }
-
-      return null;
-    }
-  }
-
-  protected static void setCachedFirebaseFirestoreInstanceForKey(
-      FirebaseFirestore firestore, String key) {
-    synchronized (firestoreInstanceCache) {
-      WeakReference<FirebaseFirestore> existingInstance = firestoreInstanceCache.get(key);
-      if (existingInstance == null) {
-        firestoreInstanceCache.put(key, new WeakReference<>(firestore));
-      }
-    }
-  }
-
-  private static void destroyCachedFirebaseFirestoreInstanceForKey(String key) {
-    synchronized (firestoreInstanceCache) {
-      WeakReference<FirebaseFirestore> existingInstance = firestoreInstanceCache.get(key);
-      if (existingInstance != null) {
-        existingInstance.clear();
-        firestoreInstanceCache.remove(key);
-      }
-    }
-  }
-
   public static void registerWith(PluginRegistry.Registrar registrar) {
     FlutterFirebaseFirestorePlugin instance = new FlutterFirebaseFirestorePlugin();
     instance.activity = registrar.activity();
-    instance.initInstance(registrar.messenger());
+    instance.initInstance(registrar.messenger(), registrar.context());
   }
 
   @Override
   public void onAttachedToEngine(@NonNull FlutterPluginBinding binding) {
-    initInstance(binding.getBinaryMessenger());
+    initInstance(binding.getBinaryMessenger(), binding.getApplicationContext());
   }
 
   @Override
@@ -98,6 +125,9 @@ public class FlutterFirebaseFirestorePlugin
     removeEventListeners();
     channel.setMethodCallHandler(null);
     channel = null;
+    messenger.setMessageHandler(PERSISTED_SNAPSHOTS_CHANNEL_NAME, null);
+    FlutterFirebasePluginRegistry.unregisterPlugin(messenger, CHANNEL_NAME);
+    messenger = null;
   }
 
   @Override
@@ -132,36 +162,53 @@ public class FlutterFirebaseFirestorePlugin
   // Ensure any Firestore listeners are removed when the app
   // is detached from the FlutterEngine
   private void removeEventListeners() {
-    for (int i = 0; i < listenerRegistrations.size(); i++) {
-      int key = listenerRegistrations.keyAt(i);
-      listenerRegistrations.get(key).remove();
-    }
-    listenerRegistrations.clear();
+    listenerRegistry.removeAll();
+    queryCursors.clear();
+    snapshotStore.releaseAll();
+  }
+
+  // Encodes a listener event on the calling thread, and sends the encoded message from the main
+  // thread. Listener events are received on background threads so that large snapshots are not
+  // encoded on the main thread, which only has to hand the finished message over to Dart.
+  private void sendEvent(String method, Map<String, Object> arguments) {
+    ByteBuffer message = METHOD_CODEC.encodeMethodCall(new MethodCall(method, arguments));
+
+    mainThreadHandler.post(
+        () -> {
+          BinaryMessenger currentMessenger = messenger;
+          if (currentMessenger != null) {
+            currentMessenger.send(CHANNEL_NAME, message);
+          }
+        });
+  }
+
+  // Runs the callable on the Firestore executor and chains onto the Task it returns, without
+  // blocking a thread until that Task completes.
+  private static <T> Task<T> callAndChain(Callable<Task<T>> callable) {
+    return Tasks.call(executor, callable).onSuccessTask(task -> task);
   }
 
   private Task<Void> disableNetwork(Map<String, Object> arguments) {
-    return Tasks.call(
-        cachedThreadPool,
+    return callAndChain(
         () -> {
           FirebaseFirestore firestore =
               (FirebaseFirestore) Objects.requireNonNull(arguments.get("firestore"));
-          return Tasks.await(firestore.disableNetwork());
+          return firestore.disableNetwork();
         });
   }
 
   private Task<Void> enableNetwork(Map<String, Object> arguments) {
-    return Tasks.call(
-        cachedThreadPool,
+    return callAndChain(
         () -> {
           FirebaseFirestore firestore =
               (FirebaseFirestore) Objects.requireNonNull(arguments.get("firestore"));
-          return Tasks.await(firestore.enableNetwork());
+          return firestore.enableNetwork();
         });
   }
 
   private Task<Integer> addSnapshotsInSyncListener(Map<String, Object> arguments) {
     return Tasks.call(
-        cachedThreadPool,
+        executor,
         () -> {
           int handle = (int) Objects.requireNonNull(arguments.get("handle"));
           FirebaseFirestore firestore =
@@ -175,7 +222,7 @@ public class FlutterFirebaseFirestorePlugin
                     () -> channel.invokeMethod("Firestore#snapshotsInSync", data));
               };
 
-          listenerRegistrations.put(
+          listenerRegistry.put(
               handle, firestore.addSnapshotsInSyncListener(snapshotsInSyncRunnable));
 
           return handle;
@@ -183,8 +230,7 @@ public class FlutterFirebaseFirestorePlugin
   }
 
   private Task<Object> transactionCreate(Map<String, Object> arguments) {
-    return Tasks.call(
-        cachedThreadPool,
+    return callAndChain(
         () -> {
           FirebaseFirestore firestore =
               (FirebaseFirestore) Objects.requireNonNull(arguments.get("firestore"));
@@ -201,24 +247,33 @@ public class FlutterFirebaseFirestorePlugin
             timeout = 5000L;
           }
 
-          FlutterFirebaseFirestoreTransactionResult transactionResult =
-              Tasks.await(
-                  new FlutterFirebaseFirestoreTransactionHandler(channel, activity, transactionId)
-                      .create(firestore, timeout));
+          // noinspection unchecked
+          List<DocumentReference> prefetch = (List<DocumentReference>) arguments.get("prefetch");
 
-          FlutterFirebaseFirestoreTransactionHandler.dispose(transactionId);
+          return new FlutterFirebaseFirestoreTransactionHandler(channel, activity, transactionId)
+              .create(firestore, timeout, prefetch != null ? prefetch : new ArrayList<>())
+              .continueWithTask(
+                  task -> {
+                    FlutterFirebaseFirestoreTransactionHandler.dispose(transactionId);
 
-          if (transactionResult.exception != null) {
-            throw transactionResult.exception;
-          } else {
-            return null;
-          }
+                    if (!task.isSuccessful()) {
+                      return Tasks.forException(Objects.requireNonNull(task.getException()));
+                    }
+
+                    FlutterFirebaseFirestoreTransactionResult transactionResult = task.getResult();
+
+                    if (transactionResult.exception != null) {
+                      return Tasks.forException(transactionResult.exception);
+                    } else {
+                      return Tasks.forResult(null);
+                    }
+                  });
         });
   }
 
   private Task<DocumentSnapshot> transactionGet(Map<String, Object> arguments) {
     return Tasks.call(
-        cachedThreadPool,
+        transactionThreadPool,
         () -> {
           DocumentReference documentReference = (DocumentReference) arguments.get("reference");
           return FlutterFirebaseFirestoreTransactionHandler.getDocument(
@@ -226,9 +281,62 @@ public class FlutterFirebaseFirestorePlugin
         });
   }
 
-  private Task<Void> batchCommit(Map<String, Object> arguments) {
+  // The documents are read concurrently on the transaction thread pool, so no thread of it is
+  // held waiting for the others.
+  private Task<List<DocumentSnapshot>> transactionGetAll(Map<String, Object> arguments) {
     return Tasks.call(
-        cachedThreadPool,
+            executor,
+            () -> {
+              // noinspection unchecked
+              List<DocumentReference> documentReferences =
+                  (List<DocumentReference>) Objects.requireNonNull(arguments.get("references"));
+              return FlutterFirebaseFirestoreTransactionHandler.getDocuments(
+                  (int) Objects.requireNonNull(arguments.get("transactionId")),
+                  documentReferences);
+            })
+        .onSuccessTask(executor, reads -> reads);
+  }
+
+  // Adds a single write sent from Dart to the batch.
+  static WriteBatch applyWrite(
+      FirebaseFirestore firestore, WriteBatch batch, Map<String, Object> write) {
+    String type = (String) Objects.requireNonNull(write.get("type"));
+    String path = (String) Objects.requireNonNull(write.get("path"));
+    // noinspection unchecked
+    Map<String, Object> data = (Map<String, Object>) write.get("data");
+
+    DocumentReference documentReference = firestore.document(path);
+
+    switch (type) {
+      case "DELETE":
+        return batch.delete(documentReference);
+      case "UPDATE":
+        return batch.update(documentReference, Objects.requireNonNull(data));
+      case "SET":
+        // noinspection unchecked
+        Map<String, Object> options =
+            (Map<String, Object>) Objects.requireNonNull(write.get("options"));
+
+        if (options.get("merge") != null && (boolean) options.get("merge")) {
+          return batch.set(documentReference, Objects.requireNonNull(data), SetOptions.merge());
+        } else if (options.get("mergeFields") != null) {
+          // noinspection unchecked
+          List<FieldPath> fieldPathList =
+              (List<FieldPath>) Objects.requireNonNull(options.get("mergeFields"));
+          return batch.set(
+              documentReference,
+              Objects.requireNonNull(data),
+              SetOptions.mergeFieldPaths(fieldPathList));
+        } else {
+          return batch.set(documentReference, Objects.requireNonNull(data));
+        }
+      default:
+        return batch;
+    }
+  }
+
+  private Task<Void> batchCommit(Map<String, Object> arguments) {
+    return callAndChain(
         () -> {
           // noinspection unchecked
           List<Map<String, Object>> writes =
@@ -238,52 +346,46 @@ public class FlutterFirebaseFirestorePlugin
           WriteBatch batch = firestore.batch();
 
           for (Map<String, Object> write : writes) {
-            String type = (String) Objects.requireNonNull(write.get("type"));
-            String path = (String) Objects.requireNonNull(write.get("path"));
-            // noinspection unchecked
-            Map<String, Object> data = (Map<String, Object>) write.get("data");
-
-            DocumentReference documentReference = firestore.document(path);
-
-            switch (type) {
-              case "DELETE":
-                batch = batch.delete(documentReference);
-                break;
-              case "UPDATE":
-                batch = batch.update(documentReference, Objects.requireNonNull(data));
-                break;
-              case "SET":
-                // noinspection unchecked
-                Map<String, Object> options =
-                    (Map<String, Object>) Objects.requireNonNull(write.get("options"));
-
-                if (options.get("merge") != null && (boolean) options.get("merge")) {
-                  batch =
-                      batch.set(
-                          documentReference, Objects.requireNonNull(data), SetOptions.merge());
-                } else if (options.get("mergeFields") != null) {
-                  // noinspection unchecked
-                  List<FieldPath> fieldPathList =
-                      (List<FieldPath>) Objects.requireNonNull(options.get("mergeFields"));
-                  batch =
-                      batch.set(
-                          documentReference,
-                          Objects.requireNonNull(data),
-                          SetOptions.mergeFieldPaths(fieldPathList));
-                } else {
-                  batch = batch.set(documentReference, Objects.requireNonNull(data));
-                }
-                break;
-            }
+            batch = applyWrite(firestore, batch, write);
           }
 
-          return Tasks.await(batch.commit());
+          return batch.commit();
         });
   }
 
+  private Task<Void> batchBulkCommit(Map<String, Object> arguments) {
+    // noinspection unchecked
+    List<Map<String, Object>> writes =
+        (List<Map<String, Object>>) Objects.requireNonNull(arguments.get("writes"));
+    FirebaseFirestore firestore =
+        (FirebaseFirestore) Objects.requireNonNull(arguments.get("firestore"));
+    int handle = (int) Objects.requireNonNull(arguments.get("handle"));
+    int maxConcurrency = (int) Objects.requireNonNull(arguments.get("maxConcurrency"));
+
+    return new FlutterFirebaseFirestoreBulkWriter(
+            firestore,
+            writes,
+            maxConcurrency,
+            (chunkIndex, chunkCount, completedChunkCount, writeCount, exception) -> {
+              Map<String, Object> progressMap = new HashMap<>();
+              progressMap.put("handle", handle);
+              progressMap.put("chunkIndex", chunkIndex);
+              progressMap.put("chunkCount", chunkCount);
+              progressMap.put("completedChunkCount", completedChunkCount);
+              progressMap.put("writeCount", writeCount);
+
+              if (exception != null) {
+                progressMap.put("error", getExceptionDetails(exception));
+              }
+
+              channel.invokeMethod("WriteBatch#bulkCommitProgress", progressMap);
+            })
+        .commit();
+  }
+
   private Task<Void> queryAddSnapshotListener(Map<String, Object> arguments) {
     return Tasks.call(
-        cachedThreadPool,
+        executor,
         () -> {
           final int handle = (int) Objects.requireNonNull(arguments.get("handle"));
 
@@ -292,6 +394,13 @@ public class FlutterFirebaseFirestorePlugin
                   ? MetadataChanges.INCLUDE
                   : MetadataChanges.EXCLUDE;
 
+          // When enabled, only the first event carries the full snapshot; subsequent events
+          // only contain the document changes which Dart applies to its previous snapshot.
+          boolean changesOnly = Boolean.TRUE.equals(arguments.get("changesOnly"));
+          AtomicBoolean hasSentSnapshot = new AtomicBoolean(false);
+          long throttleIntervalMillis = getThrottleIntervalMillis(arguments);
+          List<List<String>> fields = getSelectedFields(arguments);
+
           Query query = (Query) arguments.get("query");
 
           if (query == null) {
@@ -299,39 +408,189 @@ public class FlutterFirebaseFirestorePlugin
                 "An error occurred while parsing query arguments, see native logs for more information. Please report this issue.");
           }
 
-          ListenerRegistration listenerRegistration =
-              query.addSnapshotListener(
-                  metadataChanges,
-                  (querySnapshot, exception) -> {
+          FlutterFirebaseFirestoreEventThrottler.Emitter<FlutterFirebaseFirestoreQuerySnapshotChanges>
+              emitter =
+                  querySnapshotChanges -> {
                     Map<String, Object> querySnapshotMap = new HashMap<>();
 
                     querySnapshotMap.put("handle", handle);
 
+                    if (changesOnly && hasSentSnapshot.getAndSet(true)) {
+                      querySnapshotMap.put("snapshot", querySnapshotChanges.asChangesOnly());
+                      sendEvent("QuerySnapshot#changes", querySnapshotMap);
+                    } else {
+                      querySnapshotMap.put("snapshot", querySnapshotChanges);
+                      sendEvent("QuerySnapshot#event", querySnapshotMap);
+                    }
+                  };
+
+          // Events of the listener are received, and encoded, one at a time in order.
+          Executor eventExecutor = new FlutterFirebaseFirestoreSerialExecutor(executor);
+
+          FlutterFirebaseFirestoreEventThrottler<FlutterFirebaseFirestoreQuerySnapshotChanges>
+              throttler =
+                  throttleIntervalMillis > 0
+                      ? new FlutterFirebaseFirestoreEventThrottler<>(
+                          throttleIntervalMillis,
+                          eventExecutor,
+                          emitter,
+                          FlutterFirebaseFirestoreQuerySnapshotChanges::merge)
+                      : null;
+
+          ListenerRegistration listenerRegistration =
+              query.addSnapshotListener(
+                  eventExecutor,
+                  metadataChanges,
+                  (querySnapshot, exception) -> {
                     if (exception != null) {
+                      // Deliver any snapshot held back by the throttler before the error.
+                      if (throttler != null) throttler.flush();
+
+                      Map<String, Object> querySnapshotMap = new HashMap<>();
                       Map<String, Object> exceptionMap = new HashMap<>();
                       FlutterFirebaseFirestoreException firestoreException =
                           new FlutterFirebaseFirestoreException(exception, exception.getCause());
                       exceptionMap.put("code", firestoreException.getCode());
                       exceptionMap.put("message", firestoreException.getMessage());
+                      querySnapshotMap.put("handle", handle);
                       querySnapshotMap.put("error", exceptionMap);
 
-                      channel.invokeMethod("QuerySnapshot#error", querySnapshotMap);
+                      sendEvent("QuerySnapshot#error", querySnapshotMap);
+                      return;
+                    }
+
+                    // Metadata changes are always included in changes only mode so that the
+                    // per-document metadata cached in Dart stays in sync with the native snapshot.
+                    //noinspection ConstantConditions
+                    FlutterFirebaseFirestoreQuerySnapshotChanges querySnapshotChanges =
+                        new FlutterFirebaseFirestoreQuerySnapshotChanges(
+                            querySnapshot,
+                            changesOnly
+                                ? querySnapshot.getDocumentChanges(MetadataChanges.INCLUDE)
+                                : querySnapshot.getDocumentChanges(),
+                            fields,
+                            false);
+
+                    if (throttler != null) {
+                      throttler.onEvent(querySnapshotChanges);
                     } else {
-                      //noinspection ConstantConditions
-                      querySnapshotMap.put("snapshot", querySnapshot);
-                      channel.invokeMethod("QuerySnapshot#event", querySnapshotMap);
+                      emitter.emit(querySnapshotChanges);
                     }
                   });
 
-          listenerRegistrations.put(handle, listenerRegistration);
+          if (throttler != null) {
+            listenerRegistry.put(
+                handle,
+                () -> {
+                  listenerRegistration.remove();
+                  throttler.cancel();
+                });
+          } else {
+            listenerRegistry.put(handle, listenerRegistration);
+          }
+
           return null;
         });
   }
 
-  private Task<QuerySnapshot> queryGet(Map<String, Object> arguments) {
+  private Task<Object> queryGet(Map<String, Object> arguments) {
+    return callAndChain(
+        () -> {
+          Source source = getSource(arguments);
+          Query query = (Query) arguments.get("query");
+          boolean lazy = Boolean.TRUE.equals(arguments.get("lazy"));
+          String persistKey = (String) arguments.get("persistKey");
+          List<List<String>> fields = getSelectedFields(arguments);
+
+          if (query == null) {
+            throw new IllegalArgumentException(
+                "An error occurred while parsing query arguments, see native logs for more information. Please report this issue.");
+          }
+
+          return query
+              .get(source)
+              .onSuccessTask(
+                  executor,
+                  querySnapshot -> {
+                    //noinspection ConstantConditions
+                    if (!lazy) {
+                      Object result = withSelectedFields(querySnapshot, fields);
+                      if (persistKey != null) {
+                        snapshotPersistence.write(
+                            query.getFirestore().getApp().getName(), persistKey, result);
+                      }
+                      return Tasks.forResult(result);
+                    }
+
+                    // The selected fields are not applied, as the data of lazy snapshots is
+                    // fetched for specific fields anyway.
+                    int handle = snapshotStore.retain(querySnapshot);
+                    return Tasks.forResult(
+                        new FlutterFirebaseFirestoreRetainedQuerySnapshot(querySnapshot, handle));
+                  });
+        });
+  }
+
+  private Task<List<Map<String, Object>>> querySnapshotGetData(Map<String, Object> arguments) {
     return Tasks.call(
-        cachedThreadPool,
+        executor,
         () -> {
+          int handle = (int) Objects.requireNonNull(arguments.get("handle"));
+          // noinspection unchecked
+          List<Integer> indexes = (List<Integer>) Objects.requireNonNull(arguments.get("indexes"));
+          // noinspection unchecked
+          List<List<String>> fields = (List<List<String>>) arguments.get("fields");
+
+          QuerySnapshot querySnapshot = snapshotStore.get(handle);
+          if (querySnapshot == null) {
+            throw new IllegalStateException(
+                "The query snapshot for handle "
+                    + handle
+                    + " has been released or has expired, the query must be fetched again.");
+          }
+
+          List<DocumentSnapshot> documents = querySnapshot.getDocuments();
+          List<Map<String, Object>> data = new ArrayList<>(indexes.size());
+          for (int index : indexes) {
+            DocumentSnapshot document = documents.get(index);
+            data.add(fields == null ? document.getData() : getFields(document, fields));
+          }
+
+          return data;
+        });
+  }
+
+  // Returns the data of the given fields of the document, nested as they are in the document.
+  // Fields which do not exist in the document are omitted.
+  static Map<String, Object> getFields(DocumentSnapshot document, List<List<String>> fields) {
+    Map<String, Object> data = new HashMap<>();
+
+    for (List<String> segments : fields) {
+      FieldPath fieldPath = FieldPath.of(segments.toArray(new String[0]));
+      if (!document.contains(fieldPath)) continue;
+
+      Map<String, Object> parent = data;
+      for (int i = 0; i < segments.size() - 1; i++) {
+        Object child = parent.get(segments.get(i));
+        if (!(child instanceof Map)) {
+          child = new HashMap<String, Object>();
+          parent.put(segments.get(i), child);
+        }
+        // noinspection unchecked
+        parent = (Map<String, Object>) child;
+      }
+
+      parent.put(segments.get(segments.size() - 1), document.get(fieldPath));
+    }
+
+    return data;
+  }
+
+  private Task<Void> queryCreateCursor(Map<String, Object> arguments) {
+    return Tasks.call(
+        executor,
+        () -> {
+          int handle = (int) Objects.requireNonNull(arguments.get("handle"));
           Source source = getSource(arguments);
           Query query = (Query) arguments.get("query");
 
@@ -340,13 +599,63 @@ public class FlutterFirebaseFirestorePlugin
                 "An error occurred while parsing query arguments, see native logs for more information. Please report this issue.");
           }
 
-          return Tasks.await(query.get(source));
+          if (arguments.get("limitToLast") != null) {
+            throw new IllegalArgumentException(
+                "A query cursor pages from the start of the results, so its query cannot use limitToLast().");
+          }
+
+          Number limit = (Number) arguments.get("limit");
+          evictIdleQueryCursors();
+          queryCursors.put(
+              handle,
+              new FlutterFirebaseFirestoreQueryCursor(
+                  query,
+                  source,
+                  limit == null ? null : limit.longValue(),
+                  getSelectedFields(arguments)));
+          return null;
         });
   }
 
+  // Dart closes a cursor once done with it, but may never do so, e.g. if the cursor is simply
+  // dropped, so cursors are evicted once idle.
+  private void evictIdleQueryCursors() {
+    long nowMillis = SystemClock.elapsedRealtime();
+    Iterator<FlutterFirebaseFirestoreQueryCursor> iterator = queryCursors.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().isIdle(nowMillis)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private Task<Object> queryCursorNext(Map<String, Object> arguments) {
+    int handle = (int) Objects.requireNonNull(arguments.get("handle"));
+    int pageSize = (int) Objects.requireNonNull(arguments.get("pageSize"));
+    FlutterFirebaseFirestoreQueryCursor queryCursor = queryCursors.get(handle);
+
+    if (queryCursor == null) {
+      return Tasks.forException(
+          new IllegalStateException(
+              "No query cursor exists for handle: "
+                  + handle
+                  + ", it was either closed or evicted after being idle."));
+    }
+
+    return queryCursor
+        .next(pageSize)
+        .onSuccessTask(
+            executor,
+            querySnapshot ->
+                Tasks.forResult(
+                    querySnapshot == null
+                        ? null
+                        : withSelectedFields(querySnapshot, queryCursor.fields)));
+  }
+
   private Task<Void> documentAddSnapshotListener(Map<String, Object> arguments) {
     return Tasks.call(
-        cachedThreadPool,
+        executor,
         () -> {
           final int handle = (int) Objects.requireNonNull(arguments.get("handle"));
 
@@ -357,51 +666,114 @@ public class FlutterFirebaseFirestorePlugin
 
           DocumentReference documentReference =
               (DocumentReference) Objects.requireNonNull(arguments.get("reference"));
+          long throttleIntervalMillis = getThrottleIntervalMillis(arguments);
+
+          FlutterFirebaseFirestoreEventThrottler.Emitter<DocumentSnapshot> emitter =
+              documentSnapshot -> {
+                Map<String, Object> eventMap = new HashMap<>();
+
+                eventMap.put("handle", handle);
+                eventMap.put("snapshot", documentSnapshot);
+                sendEvent("DocumentSnapshot#event", eventMap);
+              };
+
+          // Events of the listener are received, and encoded, one at a time in order.
+          Executor eventExecutor = new FlutterFirebaseFirestoreSerialExecutor(executor);
+
+          // Only the latest document snapshot is relevant, so throttled events are not merged.
+          FlutterFirebaseFirestoreEventThrottler<DocumentSnapshot> throttler =
+              throttleIntervalMillis > 0
+                  ? new FlutterFirebaseFirestoreEventThrottler<>(
+                      throttleIntervalMillis, eventExecutor, emitter, null)
+                  : null;
 
           ListenerRegistration listenerRegistration =
               documentReference.addSnapshotListener(
+                  eventExecutor,
                   metadataChanges,
                   (documentSnapshot, exception) -> {
-                    Map<String, Object> eventMap = new HashMap<>();
-
-                    eventMap.put("handle", handle);
-
                     if (exception != null) {
+                      // Deliver any snapshot held back by the throttler before the error.
+                      if (throttler != null) throttler.flush();
+
+                      Map<String, Object> eventMap = new HashMap<>();
                       Map<String, Object> exceptionMap = new HashMap<>();
                       FlutterFirebaseFirestoreException firestoreException =
                           new FlutterFirebaseFirestoreException(exception, exception.getCause());
 
                       exceptionMap.put("code", firestoreException.getCode());
                       exceptionMap.put("message", firestoreException.getMessage());
+                      eventMap.put("handle", handle);
                       eventMap.put("error", exceptionMap);
-                      channel.invokeMethod("DocumentSnapshot#error", eventMap);
+                      sendEvent("DocumentSnapshot#error", eventMap);
+                    } else if (throttler != null) {
+                      throttler.onEvent(documentSnapshot);
                     } else {
-                      // noinspection ConstantConditions
-                      eventMap.put("snapshot", documentSnapshot);
-                      channel.invokeMethod("DocumentSnapshot#event", eventMap);
+                      emitter.emit(documentSnapshot);
                     }
                   });
 
-          listenerRegistrations.put(handle, listenerRegistration);
+          if (throttler != null) {
+            listenerRegistry.put(
+                handle,
+                () -> {
+                  listenerRegistration.remove();
+                  throttler.cancel();
+                });
+          } else {
+            listenerRegistry.put(handle, listenerRegistration);
+          }
 
           return null;
         });
   }
 
+  private Task<Map<String, Object>> firestoreGetAll(Map<String, Object> arguments) {
+    // noinspection unchecked
+    List<DocumentReference> documentReferences =
+        (List<DocumentReference>) Objects.requireNonNull(arguments.get("references"));
+    int maxConcurrency = (int) Objects.requireNonNull(arguments.get("maxConcurrency"));
+
+    return new FlutterFirebaseFirestoreBulkReader(
+            documentReferences, getSource(arguments), maxConcurrency)
+        .get()
+        .onSuccessTask(
+            executor,
+            results -> {
+              // Each document has either a snapshot or an error, at the index of its reference.
+              List<DocumentSnapshot> snapshots = new ArrayList<>(results.size());
+              List<Map<String, String>> errors = new ArrayList<>(results.size());
+
+              //noinspection ConstantConditions
+              for (Object result : results) {
+                if (result instanceof DocumentSnapshot) {
+                  snapshots.add((DocumentSnapshot) result);
+                  errors.add(null);
+                } else {
+                  snapshots.add(null);
+                  errors.add(getExceptionDetails((Exception) result));
+                }
+              }
+
+              Map<String, Object> resultMap = new HashMap<>();
+              resultMap.put("snapshots", snapshots);
+              resultMap.put("errors", errors);
+              return Tasks.forResult(resultMap);
+            });
+  }
+
   private Task<DocumentSnapshot> documentGet(Map<String, Object> arguments) {
-    return Tasks.call(
-        cachedThreadPool,
+    return callAndChain(
         () -> {
           Source source = getSource(arguments);
           DocumentReference documentReference =
               (DocumentReference) Objects.requireNonNull(arguments.get("reference"));
-          return Tasks.await(documentReference.get(source));
+          return documentReference.get(source);
         });
   }
 
   private Task<Void> documentSet(Map<String, Object> arguments) {
-    return Tasks.call(
-        cachedThreadPool,
+    return callAndChain(
         () -> {
           DocumentReference documentReference =
               (DocumentReference) Objects.requireNonNull(arguments.get("reference"));
@@ -426,13 +798,12 @@ public class FlutterFirebaseFirestorePlugin
             setTask = documentReference.set(data);
           }
 
-          return Tasks.await(setTask);
+          return setTask;
         });
   }
 
   private Task<Void> documentUpdate(Map<String, Object> arguments) {
-    return Tasks.call(
-        cachedThreadPool,
+    return callAndChain(
         () -> {
           DocumentReference documentReference =
               (DocumentReference) Objects.requireNonNull(arguments.get("reference"));
@@ -440,61 +811,134 @@ public class FlutterFirebaseFirestorePlugin
           Map<String, Object> data =
               (Map<String, Object>) Objects.requireNonNull(arguments.get("data"));
 
-          return Tasks.await(documentReference.update(data));
+          return documentReference.update(data);
         });
   }
 
   private Task<Void> documentDelete(Map<String, Object> arguments) {
-    return Tasks.call(
-        cachedThreadPool,
+    return callAndChain(
         () -> {
           DocumentReference documentReference =
               (DocumentReference) Objects.requireNonNull(arguments.get("reference"));
-          return Tasks.await(documentReference.delete());
+          return documentReference.delete();
         });
   }
 
-  private Task<Void> clearPersistence(Map<String, Object> arguments) {
+  private Task<Void> clearPersistedQuerySnapshots(Map<String, Object> arguments) {
     return Tasks.call(
-        cachedThreadPool,
+        executor,
+        () -> {
+          FirebaseFirestore firestore =
+              (FirebaseFirestore) Objects.requireNonNull(arguments.get("firestore"));
+          snapshotPersistence.clear(firestore.getApp().getName());
+          return null;
+        });
+  }
+
+  // Replies with the memory-mapped query snapshot persisted under the requested key, or with an
+  // empty reply if there is none. The message is only valid during this call, so it is decoded
+  // before the file is read in the background.
+  private void onPersistedQuerySnapshotRequest(
+      ByteBuffer message, BinaryMessenger.BinaryReply reply) {
+    // noinspection unchecked
+    Map<String, Object> arguments =
+        (Map<String, Object>) FlutterFirebaseFirestoreMessageCodec.INSTANCE.decodeMessage(message);
+    String appName = (String) Objects.requireNonNull(arguments.get("appName"));
+    String key = (String) Objects.requireNonNull(arguments.get("key"));
+
+    FlutterFirebaseFirestoreSnapshotPersistence.fileExecutor.execute(
+        () -> {
+          ByteBuffer snapshot = snapshotPersistence.read(appName, key);
+          mainThreadHandler.post(() -> reply.reply(snapshot));
+        });
+  }
+
+  private Task<Void> clearPersistence(Map<String, Object> arguments) {
+    return callAndChain(
         () -> {
           FirebaseFirestore firestore =
               (FirebaseFirestore) Objects.requireNonNull(arguments.get("firestore"));
-          return Tasks.await(firestore.clearPersistence());
+          return firestore.clearPersistence();
         });
   }
 
   private Task<Void> terminate(Map<String, Object> arguments) {
-    return Tasks.call(
-        cachedThreadPool,
+    return callAndChain(
         () -> {
           FirebaseFirestore firestore =
               (FirebaseFirestore) Objects.requireNonNull(arguments.get("firestore"));
-          Tasks.await(firestore.terminate());
-          destroyCachedFirebaseFirestoreInstanceForKey(firestore.getApp().getName());
-          return null;
+          return firestore
+              .terminate()
+              .onSuccessTask(
+                  executor,
+                  result -> {
+                    FlutterFirebaseFirestoreInstanceRegistry.evict(firestore.getApp().getName());
+                    FlutterFirebaseFirestoreMessageCodec.INSTANCE.evictQueries(firestore);
+                    return Tasks.forResult(null);
+                  });
         });
   }
 
   private Task<Void> waitForPendingWrites(Map<String, Object> arguments) {
-    return Tasks.call(
-        cachedThreadPool,
+    return callAndChain(
         () -> {
           FirebaseFirestore firestore =
               (FirebaseFirestore) Objects.requireNonNull(arguments.get("firestore"));
-          return Tasks.await(firestore.waitForPendingWrites());
+          return firestore.waitForPendingWrites();
         });
   }
 
+  // The metrics of the bridge, along with counters kept regardless of whether metrics are enabled.
+  private Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = FlutterFirebaseFirestoreMetrics.getMetrics();
+
+    metrics.put("listeners", listenerRegistry.size());
+    metrics.put("queryCursors", queryCursors.size());
+    metrics.put("retainedSnapshots", snapshotStore.size());
+    metrics.put(
+        "queryCacheHitRate", FlutterFirebaseFirestoreMessageCodec.INSTANCE.getQueryCacheHitRate());
+
+    metrics.put("executor", FlutterFirebaseExecutors.getGauges(threadPool));
+    metrics.put("transactionExecutor", FlutterFirebaseExecutors.getGauges(transactionThreadPool));
+
+    Map<String, Object> throttlerMetrics = new HashMap<>();
+    throttlerMetrics.put(
+        "droppedEvents", FlutterFirebaseFirestoreEventThrottler.getDroppedEventCount());
+    throttlerMetrics.put(
+        "mergedEvents", FlutterFirebaseFirestoreEventThrottler.getMergedEventCount());
+    metrics.put("throttler", throttlerMetrics);
+
+    Map<String, Object> transactionMetrics =
+        FlutterFirebaseFirestoreTransactionHandler.getMetrics();
+    transactionMetrics.put(
+        "active", FlutterFirebaseFirestoreTransactionHandler.getActiveTransactionCount());
+    metrics.put("transactions", transactionMetrics);
+
+    Map<String, Object> instanceMetrics = new HashMap<>();
+    instanceMetrics.put("count", FlutterFirebaseFirestoreInstanceRegistry.size());
+    instanceMetrics.put(
+        "recreations", FlutterFirebaseFirestoreInstanceRegistry.getRecreationCount());
+    metrics.put("instances", instanceMetrics);
+
+    return metrics;
+  }
+
   @Override
   public void onMethodCall(MethodCall call, @NonNull final MethodChannel.Result result) {
     Task<?> methodCallTask;
 
     switch (call.method) {
+      case "Firestore#setMetricsEnabled":
+        FlutterFirebaseFirestoreMetrics.setEnabled(
+            (boolean) Objects.requireNonNull(call.argument("enabled")));
+        result.success(null);
+        return;
+      case "Firestore#getMetrics":
+        result.success(getMetrics());
+        return;
       case "Firestore#removeListener":
         int handle = Objects.requireNonNull(call.argument("handle"));
-        listenerRegistrations.get(handle).remove();
-        listenerRegistrations.remove(handle);
+        listenerRegistry.remove(handle);
         result.success(null);
         return;
       case "Firestore#disableNetwork":
@@ -512,18 +956,44 @@ public class FlutterFirebaseFirestorePlugin
       case "Transaction#get":
         methodCallTask = transactionGet(call.arguments());
         break;
+      case "Transaction#getAll":
+        methodCallTask = transactionGetAll(call.arguments());
+        break;
       case "WriteBatch#commit":
         methodCallTask = batchCommit(call.arguments());
         break;
+      case "WriteBatch#bulkCommit":
+        methodCallTask = batchBulkCommit(call.arguments());
+        break;
       case "Query#addSnapshotListener":
         methodCallTask = queryAddSnapshotListener(call.arguments());
         break;
       case "Query#get":
         methodCallTask = queryGet(call.arguments());
         break;
+      case "QuerySnapshot#getData":
+        methodCallTask = querySnapshotGetData(call.arguments());
+        break;
+      case "QuerySnapshot#release":
+        snapshotStore.release((int) Objects.requireNonNull(call.argument("handle")));
+        result.success(null);
+        return;
+      case "Query#createCursor":
+        methodCallTask = queryCreateCursor(call.arguments());
+        break;
+      case "QueryCursor#next":
+        methodCallTask = queryCursorNext(call.arguments());
+        break;
+      case "QueryCursor#dispose":
+        queryCursors.remove((int) Objects.requireNonNull(call.argument("handle")));
+        result.success(null);
+        return;
       case "DocumentReference#addSnapshotListener":
         methodCallTask = documentAddSnapshotListener(call.arguments());
         break;
+      case "Firestore#getAll":
+        methodCallTask = firestoreGetAll(call.arguments());
+        break;
       case "DocumentReference#get":
         methodCallTask = documentGet(call.arguments());
         break;
@@ -536,6 +1006,9 @@ public class FlutterFirebaseFirestorePlugin
       case "DocumentReference#delete":
         methodCallTask = documentDelete(call.arguments());
         break;
+      case "Firestore#clearPersistedQuerySnapshots":
+        methodCallTask = clearPersistedQuerySnapshots(call.arguments());
+        break;
       case "Firestore#clearPersistence":
         methodCallTask = clearPersistence(call.arguments());
         break;
@@ -550,8 +1023,12 @@ public class FlutterFirebaseFirestorePlugin
         return;
     }
 
+    long startNanos = FlutterFirebaseFirestoreMetrics.recordMethodCallStart();
+
     methodCallTask.addOnCompleteListener(
         task -> {
+          FlutterFirebaseFirestoreMetrics.recordMethodCallEnd(call.method, startNanos);
+
           if (task.isSuccessful()) {
             result.success(task.getResult());
           } else {
@@ -572,16 +1049,15 @@ public class FlutterFirebaseFirestorePlugin
         });
   }
 
-  private void initInstance(BinaryMessenger messenger) {
-    String channelName = "plugins.flutter.io/firebase_firestore";
-    channel =
-        new MethodChannel(
-            messenger,
-            "plugins.flutter.io/firebase_firestore",
-            new StandardMethodCodec(FlutterFirebaseFirestoreMessageCodec.INSTANCE));
+  private void initInstance(BinaryMessenger messenger, Context context) {
+    this.messenger = messenger;
+    snapshotPersistence = new FlutterFirebaseFirestoreSnapshotPersistence(context.getFilesDir());
+    channel = new MethodChannel(messenger, CHANNEL_NAME, METHOD_CODEC);
 
     channel.setMethodCallHandler(this);
-    FlutterFirebasePluginRegistry.registerPlugin(channelName, this);
+    messenger.setMessageHandler(
+        PERSISTED_SNAPSHOTS_CHANNEL_NAME, this::onPersistedQuerySnapshotRequest);
+    FlutterFirebasePluginRegistry.registerPlugin(messenger, CHANNEL_NAME, this);
   }
 
   private Map<String, String> getExceptionDetails(Exception exception) {
@@ -615,6 +1091,26 @@ public class FlutterFirebaseFirestorePlugin
     return details;
   }
 
+  // The field paths selected by a query, as their segments, or null if all fields are selected.
+  @Nullable
+  private List<List<String>> getSelectedFields(Map<String, Object> arguments) {
+    // noinspection unchecked
+    return (List<List<String>>) arguments.get("select");
+  }
+
+  private static Object withSelectedFields(
+      QuerySnapshot querySnapshot, @Nullable List<List<String>> fields) {
+    if (fields == null) return querySnapshot;
+
+    return new FlutterFirebaseFirestoreQuerySnapshotChanges(
+        querySnapshot, querySnapshot.getDocumentChanges(), fields, false);
+  }
+
+  private long getThrottleIntervalMillis(Map<String, Object> arguments) {
+    Number throttleIntervalMillis = (Number) arguments.get("throttleIntervalMillis");
+    return throttleIntervalMillis != null ? throttleIntervalMillis.longValue() : 0;
+  }
+
   private Source getSource(Map<String, Object> arguments) {
     String source = (String) Objects.requireNonNull(arguments.get("source"));
 
@@ -630,24 +1126,24 @@ public class FlutterFirebaseFirestorePlugin
 
   @Override
   public Task<Map<String, Object>> getPluginConstantsForFirebaseApp(FirebaseApp firebaseApp) {
-    return Tasks.call(cachedThreadPool, () -> null);
+    return Tasks.call(executor, () -> null);
   }
 
   @Override
   public Task<Void> didReinitializeFirebaseCore() {
-    return Tasks.call(
-        cachedThreadPool,
+    return callAndChain(
         () -> {
           removeEventListeners();
+          List<Task<Void>> terminateTasks = new ArrayList<>();
           // Context is ignored by API so we don't send it over even though annotated non-null.
           // noinspection ConstantConditions
           for (FirebaseApp app : FirebaseApp.getApps(null)) {
             FirebaseFirestore firestore = FirebaseFirestore.getInstance(app);
-            Tasks.await(firestore.terminate());
-            FlutterFirebaseFirestorePlugin.destroyCachedFirebaseFirestoreInstanceForKey(
-                app.getName());
+            terminateTasks.add(firestore.terminate());
+            FlutterFirebaseFirestoreInstanceRegistry.evict(app.getName());
           }
-          return null;
+          FlutterFirebaseFirestoreMessageCodec.INSTANCE.evictAllQueries();
+          return Tasks.whenAll(terminateTasks);
         });
   }
 }
@@ -0,0 +1,96 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import java.util.List;
+
+/**
+ * Pages through the results of a query, keeping the last document of the previous page so that
+ * each page is fetched with a {@link Query#startAfter(DocumentSnapshot)} cursor rather than Dart
+ * rebuilding and re-sending the query.
+ *
+ * <p>Pages are fetched one at a time in the order they were requested. The limit of the query, if
+ * any, bounds the documents of all pages together, after which pages resolve to null. A cursor
+ * which is not used for {@link #IDLE_EXPIRY_MILLIS} may be evicted, as Dart may never close it.
+ */
+class FlutterFirebaseFirestoreQueryCursor {
+  static final long IDLE_EXPIRY_MILLIS = 10 * 60 * 1000;
+
+  private final Query query;
+  private final Source source;
+  // The limit of the query, as the page size replaces it for each page, or null if unlimited.
+  @Nullable private final Long limit;
+  // The field paths selected by the query, as their segments, or null if all are selected.
+  @Nullable final List<List<String>> fields;
+
+  // Only accessed by the page chain, which runs a single page at a time.
+  private DocumentSnapshot lastDocument;
+  private long fetchedCount;
+  private Task<QuerySnapshot> lastPage = Tasks.forResult(null);
+  private volatile long lastUsedMillis = SystemClock.elapsedRealtime();
+
+  FlutterFirebaseFirestoreQueryCursor(
+      @NonNull Query query,
+      @NonNull Source source,
+      @Nullable Long limit,
+      @Nullable List<List<String>> fields) {
+    this.query = query;
+    this.source = source;
+    this.limit = limit;
+    this.fields = fields;
+  }
+
+  /**
+   * Fetches the next page of at most {@code pageSize} documents, or resolves to null once the
+   * limit of the query has been reached.
+   */
+  synchronized Task<QuerySnapshot> next(int pageSize) {
+    lastUsedMillis = SystemClock.elapsedRealtime();
+    lastPage =
+        lastPage
+            .continueWithTask(
+                FlutterFirebaseFirestorePlugin.executor,
+                previousPage -> {
+                  long pageLimit =
+                      limit == null ? pageSize : Math.min(pageSize, limit - fetchedCount);
+                  if (pageLimit <= 0) {
+                    return Tasks.forResult(null);
+                  }
+
+                  Query pageQuery = lastDocument == null ? query : query.startAfter(lastDocument);
+                  return pageQuery.limit(pageLimit).get(source);
+                })
+            .onSuccessTask(
+                FlutterFirebaseFirestorePlugin.executor,
+                querySnapshot -> {
+                  if (querySnapshot == null) {
+                    return Tasks.forResult(null);
+                  }
+
+                  List<DocumentSnapshot> documents = querySnapshot.getDocuments();
+                  fetchedCount += documents.size();
+                  if (!documents.isEmpty()) {
+                    lastDocument = documents.get(documents.size() - 1);
+                  }
+                  return Tasks.forResult(querySnapshot);
+                });
+
+    return lastPage;
+  }
+
+  /** Whether the cursor has not been used for {@link #IDLE_EXPIRY_MILLIS}. */
+  boolean isIdle(long nowMillis) {
+    return nowMillis - lastUsedMillis > IDLE_EXPIRY_MILLIS;
+  }
+}
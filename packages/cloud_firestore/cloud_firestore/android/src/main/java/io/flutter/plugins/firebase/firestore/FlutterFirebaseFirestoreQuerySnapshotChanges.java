@@ -0,0 +1,59 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.QuerySnapshot;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link QuerySnapshot} along with the document changes since the last snapshot sent to Dart.
+ *
+ * <p>These differ from the changes of the snapshot itself when intermediate snapshots have been
+ * coalesced, in which case the changes of every coalesced snapshot are concatenated. This keeps
+ * them valid for Dart, as each change index assumes all prior changes have been applied.
+ *
+ * <p>If the query selected specific fields, only the data of those fields is sent for each
+ * document.
+ */
+class FlutterFirebaseFirestoreQuerySnapshotChanges {
+  final QuerySnapshot snapshot;
+  final List<DocumentChange> documentChanges;
+  // The field paths selected by the query, as their segments, or null to send all fields.
+  @Nullable final List<List<String>> fields;
+  // Whether only the document changes and metadata are sent, rather than the whole snapshot.
+  final boolean changesOnly;
+
+  FlutterFirebaseFirestoreQuerySnapshotChanges(
+      @NonNull QuerySnapshot snapshot,
+      @NonNull List<DocumentChange> documentChanges,
+      @Nullable List<List<String>> fields,
+      boolean changesOnly) {
+    this.snapshot = snapshot;
+    this.documentChanges = documentChanges;
+    this.fields = fields;
+    this.changesOnly = changesOnly;
+  }
+
+  /** Returns the newer snapshot with the document changes of both snapshots. */
+  FlutterFirebaseFirestoreQuerySnapshotChanges merge(
+      @NonNull FlutterFirebaseFirestoreQuerySnapshotChanges newer) {
+    List<DocumentChange> mergedChanges =
+        new ArrayList<>(documentChanges.size() + newer.documentChanges.size());
+    mergedChanges.addAll(documentChanges);
+    mergedChanges.addAll(newer.documentChanges);
+    return new FlutterFirebaseFirestoreQuerySnapshotChanges(
+        newer.snapshot, mergedChanges, newer.fields, newer.changesOnly);
+  }
+
+  /** Returns these changes to be sent without the documents of the snapshot. */
+  FlutterFirebaseFirestoreQuerySnapshotChanges asChangesOnly() {
+    return new FlutterFirebaseFirestoreQuerySnapshotChanges(
+        snapshot, documentChanges, fields, true);
+  }
+}
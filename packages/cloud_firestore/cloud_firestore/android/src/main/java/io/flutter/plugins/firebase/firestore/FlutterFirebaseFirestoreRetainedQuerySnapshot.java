@@ -0,0 +1,23 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import androidx.annotation.NonNull;
+import com.google.firebase.firestore.QuerySnapshot;
+
+/**
+ * A {@link QuerySnapshot} retained by the {@link FlutterFirebaseFirestoreSnapshotStore}, which is
+ * sent to Dart with the paths and metadata of its documents and its handle, but without the data of
+ * its documents.
+ */
+class FlutterFirebaseFirestoreRetainedQuerySnapshot {
+  final QuerySnapshot snapshot;
+  final int handle;
+
+  FlutterFirebaseFirestoreRetainedQuerySnapshot(@NonNull QuerySnapshot snapshot, int handle) {
+    this.snapshot = snapshot;
+    this.handle = handle;
+  }
+}
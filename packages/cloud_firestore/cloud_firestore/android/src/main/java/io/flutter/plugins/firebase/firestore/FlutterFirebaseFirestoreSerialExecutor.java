@@ -0,0 +1,48 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import androidx.annotation.NonNull;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks one at a time, in the order they were submitted, on a shared executor.
+ *
+ * <p>Each snapshot listener is given its own instance, so that its events are encoded off the main
+ * thread and in order, while events of different listeners can be encoded concurrently.
+ */
+class FlutterFirebaseFirestoreSerialExecutor implements Executor {
+  private final Executor executor;
+  private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+  private Runnable activeTask;
+
+  FlutterFirebaseFirestoreSerialExecutor(@NonNull Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public synchronized void execute(@NonNull Runnable task) {
+    tasks.offer(
+        () -> {
+          try {
+            task.run();
+          } finally {
+            scheduleNext();
+          }
+        });
+
+    if (activeTask == null) {
+      scheduleNext();
+    }
+  }
+
+  private synchronized void scheduleNext() {
+    activeTask = tasks.poll();
+    if (activeTask != null) {
+      executor.execute(activeTask);
+    }
+  }
+}
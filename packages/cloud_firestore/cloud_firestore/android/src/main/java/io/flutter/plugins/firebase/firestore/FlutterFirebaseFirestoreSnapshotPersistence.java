@@ -0,0 +1,185 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Persists encoded query snapshots to files in app storage, so that they can be served to Dart on
+ * the next launch before the query has been fetched again.
+ *
+ * <p>A file holds a {@link #HEADER_SIZE} byte header followed by the snapshot as written by {@link
+ * FlutterFirebaseFirestoreMessageCodec}, which is exactly what Dart decodes, so a persisted
+ * snapshot is read by memory-mapping its file rather than copying it onto the heap. Files written
+ * with a different {@link #FORMAT_VERSION}, e.g. by an older version of the plugin, are ignored.
+ *
+ * <p>Files are written to a temporary file which then replaces the previous one, so a snapshot
+ * being read is never partially written. All file operations run on a single serial executor.
+ */
+class FlutterFirebaseFirestoreSnapshotPersistence {
+  private static final String TAG = "FLTFirestorePersist";
+  private static final String DIRECTORY_NAME = "flutterfire_firestore_snapshots";
+  private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+  // The magic number "FFQS" and the version of the format of the persisted snapshot, which must
+  // be increased whenever the codec's encoding of a query snapshot changes.
+  private static final int MAGIC = 0x46465153;
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+
+  static final FlutterFirebaseFirestoreSerialExecutor fileExecutor =
+      new FlutterFirebaseFirestoreSerialExecutor(FlutterFirebaseFirestorePlugin.executor);
+
+  private final File directory;
+
+  FlutterFirebaseFirestoreSnapshotPersistence(@NonNull File filesDirectory) {
+    this.directory = new File(filesDirectory, DIRECTORY_NAME);
+  }
+
+  /**
+   * Encodes the given query snapshot and persists it under the given key in the background,
+   * replacing any snapshot previously persisted under it. Failures are logged, as the snapshot is
+   * only ever a cache.
+   *
+   * @param snapshot Either a {@link com.google.firebase.firestore.QuerySnapshot} or a {@link
+   *     FlutterFirebaseFirestoreQuerySnapshotChanges} holding the fields selected by the query.
+   */
+  void write(@NonNull String appName, @NonNull String key, @NonNull Object snapshot) {
+    fileExecutor.execute(
+        () -> {
+          ByteBuffer encodedSnapshot =
+              FlutterFirebaseFirestoreMessageCodec.INSTANCE.encodeMessage(snapshot);
+          encodedSnapshot.flip();
+
+          try {
+            writeFile(getFile(appName, key), encodedSnapshot);
+          } catch (IOException e) {
+            Log.w(TAG, "Failed to persist the query snapshot '" + key + "'.", e);
+          }
+        });
+  }
+
+  /**
+   * Memory-maps the snapshot persisted under the given key. Must be called on {@link
+   * #fileExecutor}.
+   *
+   * @return The encoded snapshot between position 0 and its position, as expected by a {@link
+   *     io.flutter.plugin.common.BinaryMessenger.BinaryReply}, or null if no snapshot has been
+   *     persisted under the key or it was written in a different format.
+   */
+  @Nullable
+  ByteBuffer read(@NonNull String appName, @NonNull String key) {
+    File file = getFile(appName, key);
+    if (!file.exists()) return null;
+
+    FileInputStream inputStream = null;
+    try {
+      inputStream = new FileInputStream(file);
+      FileChannel fileChannel = inputStream.getChannel();
+      // The mapping remains valid once the channel is closed.
+      MappedByteBuffer mappedFile =
+          fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+
+      if (mappedFile.limit() < HEADER_SIZE
+          || mappedFile.getInt() != MAGIC
+          || mappedFile.getInt() != FORMAT_VERSION) {
+        return null;
+      }
+
+      ByteBuffer encodedSnapshot = mappedFile.slice();
+      encodedSnapshot.position(encodedSnapshot.limit());
+      return encodedSnapshot;
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to read the persisted query snapshot '" + key + "'.", e);
+      return null;
+    } finally {
+      closeQuietly(inputStream);
+    }
+  }
+
+  /** Deletes every snapshot persisted for the given app. */
+  void clear(@NonNull String appName) {
+    fileExecutor.execute(
+        () -> {
+          File[] files = directory.listFiles();
+          if (files == null) return;
+
+          String prefix = encodeFileName(appName) + ".";
+          for (File file : files) {
+            if (file.getName().startsWith(prefix) && !file.delete()) {
+              Log.w(TAG, "Failed to delete the persisted query snapshot " + file.getName() + ".");
+            }
+          }
+        });
+  }
+
+  private void writeFile(File file, ByteBuffer encodedSnapshot) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Failed to create the directory " + directory + ".");
+    }
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+
+    File temporaryFile = new File(file.getPath() + TEMPORARY_FILE_SUFFIX);
+    FileOutputStream outputStream = new FileOutputStream(temporaryFile);
+    try {
+      FileChannel fileChannel = outputStream.getChannel();
+      while (header.hasRemaining()) {
+        fileChannel.write(header);
+      }
+      while (encodedSnapshot.hasRemaining()) {
+        fileChannel.write(encodedSnapshot);
+      }
+      // The snapshot must be on disk before it replaces the previous one.
+      fileChannel.force(false);
+    } finally {
+      closeQuietly(outputStream);
+    }
+
+    if (!temporaryFile.renameTo(file)) {
+      temporaryFile.delete();
+      throw new IOException("Failed to replace " + file + ".");
+    }
+  }
+
+  // Keys are scoped by app, as each app has its own Firestore instance.
+  private File getFile(String appName, String key) {
+    return new File(directory, encodeFileName(appName) + "." + encodeFileName(key));
+  }
+
+  // Escapes every character which is not allowed in, or has a meaning in, a file name. The
+  // escaped name never contains a '.', which separates the app name from the key.
+  private static String encodeFileName(String name) {
+    try {
+      return URLEncoder.encode(name, "UTF-8").replace(".", "%2E").replace("*", "%2A");
+    } catch (UnsupportedEncodingException e) {
+      // UTF-8 is always supported.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void closeQuietly(@Nullable Closeable closeable) {
+    if (closeable == null) return;
+
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // Nothing left to clean up.
+    }
+  }
+}
@@ -0,0 +1,105 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.firebase.firestore.QuerySnapshot;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Retains query snapshots which were sent to Dart without their document data, so that the data of
+ * individual documents can be fetched later on.
+ *
+ * <p>Each plugin instance, i.e. each Flutter engine, has its own store, so that handles and
+ * releases of one engine never affect another.
+ *
+ * <p>Snapshots are released explicitly by Dart. As Dart may never do so, at most {@link
+ * #MAX_SNAPSHOTS} snapshots are retained, evicting the least recently used one first, and a
+ * snapshot which has not been used for {@link #EXPIRY_MILLIS} is discarded.
+ */
+class FlutterFirebaseFirestoreSnapshotStore {
+  static final int MAX_SNAPSHOTS = 32;
+  static final long EXPIRY_MILLIS = 5 * 60 * 1000;
+
+  // Ordered from the least to the most recently used snapshot, so that expired snapshots come
+  // first.
+  private final LinkedHashMap<Integer, RetainedSnapshot> snapshots =
+      new LinkedHashMap<Integer, RetainedSnapshot>(MAX_SNAPSHOTS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, RetainedSnapshot> eldest) {
+          return size() > MAX_SNAPSHOTS;
+        }
+      };
+  private int lastHandle;
+
+  /**
+   * Retains the snapshot, returning the handle through which it can be retrieved. Snapshots which
+   * have expired are discarded first.
+   */
+  synchronized int retain(@NonNull QuerySnapshot snapshot) {
+    long now = SystemClock.elapsedRealtime();
+    Iterator<RetainedSnapshot> iterator = snapshots.values().iterator();
+    while (iterator.hasNext() && isExpired(iterator.next(), now)) {
+      iterator.remove();
+    }
+
+    int handle = ++lastHandle;
+    snapshots.put(handle, new RetainedSnapshot(snapshot, now));
+    return handle;
+  }
+
+  /**
+   * Returns the snapshot of the given handle, or null if it has been released, evicted or has
+   * expired.
+   */
+  @Nullable
+  synchronized QuerySnapshot get(int handle) {
+    RetainedSnapshot entry = snapshots.get(handle);
+    if (entry == null) return null;
+
+    long now = SystemClock.elapsedRealtime();
+    if (isExpired(entry, now)) {
+      snapshots.remove(handle);
+      return null;
+    }
+
+    entry.lastAccessMillis = now;
+    return entry.snapshot;
+  }
+
+  synchronized void release(int handle) {
+    snapshots.remove(handle);
+  }
+
+  /** Releases every retained snapshot, e.g. once the plugin is detached. */
+  synchronized void releaseAll() {
+    snapshots.clear();
+  }
+
+  /**
+   * The number of retained snapshots, including expired ones which have not been discarded since.
+   */
+  synchronized int size() {
+    return snapshots.size();
+  }
+
+  private static boolean isExpired(RetainedSnapshot entry, long now) {
+    return now - entry.lastAccessMillis > EXPIRY_MILLIS;
+  }
+
+  private static final class RetainedSnapshot {
+    final QuerySnapshot snapshot;
+    long lastAccessMillis;
+
+    RetainedSnapshot(QuerySnapshot snapshot, long lastAccessMillis) {
+      this.snapshot = snapshot;
+      this.lastAccessMillis = lastAccessMillis;
+    }
+  }
+}
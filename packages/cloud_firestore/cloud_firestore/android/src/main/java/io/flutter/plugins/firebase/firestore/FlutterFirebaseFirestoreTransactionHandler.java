@@ -6,7 +6,7 @@ package io.flutter.plugins.firebase.firestore;
 
 import android.app.Activity;
 import android.content.ActivityNotFoundException;
-import android.util.SparseArray;
+import android.os.SystemClock;
 import androidx.annotation.Nullable;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.TaskCompletionSource;
@@ -20,18 +20,44 @@ import com.google.firebase.firestore.SetOptions;
 import com.google.firebase.firestore.Transaction;
 import io.flutter.plugin.common.MethodChannel;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 class FlutterFirebaseFirestoreTransactionHandler {
-  static final SparseArray<Transaction> transactions = new SparseArray<>();
-  private MethodChannel channel;
-  private WeakReference<Activity> activityRef;
-  private int transactionId;
+  // The lifecycle of a transaction. Reads are only allowed while Dart runs an attempt, so that a
+  // late Transaction#get from an attempt which already timed out fails instead of reading from a
+  // stale Transaction.
+  enum State {
+    PENDING,
+    WAITING_FOR_DART,
+    APPLYING,
+    COMPLETE,
+  }
+
+  private static final ConcurrentHashMap<Integer, FlutterFirebaseFirestoreTransactionHandler>
+      handlers = new ConcurrentHashMap<>();
+
+  private static final AtomicLong attemptCount = new AtomicLong();
+  private static final AtomicLong retryCount = new AtomicLong();
+  private static final AtomicLong timeoutCount = new AtomicLong();
+  private static final AtomicLong dartWaitTimeMillis = new AtomicLong();
+
+  private final MethodChannel channel;
+  private final WeakReference<Activity> activityRef;
+  private final int transactionId;
+
+  // Written on the transaction thread of the SDK and read from the executor by Transaction#get.
+  private volatile Transaction transaction;
+  private volatile State state = State.PENDING;
+  private int attempt = 0;
 
   FlutterFirebaseFirestoreTransactionHandler(
       MethodChannel channel, Activity activity, int transactionId) {
@@ -41,32 +67,113 @@ class FlutterFirebaseFirestoreTransactionHandler {
   }
 
   static void dispose(int transactionId) {
-    transactions.delete(transactionId);
+    FlutterFirebaseFirestoreTransactionHandler handler = handlers.remove(transactionId);
+    if (handler != null) {
+      handler.state = State.COMPLETE;
+      handler.transaction = null;
+    }
+  }
+
+  /** The number of transactions which have been created but not yet disposed. */
+  static int getActiveTransactionCount() {
+    return handlers.size();
+  }
+
+  /**
+   * Totals across all transactions: attempts made, attempts which were retries, attempts which
+   * timed out waiting for Dart, and the time spent waiting for Dart to run attempts.
+   */
+  static Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("attempts", attemptCount.get());
+    metrics.put("retries", retryCount.get());
+    metrics.put("timeouts", timeoutCount.get());
+    metrics.put("dartWaitTimeMillis", dartWaitTimeMillis.get());
+    return metrics;
+  }
+
+  // Gets the transaction of a handler which is currently waiting for Dart
+  // Throws an exception if the handler does not exist or is not running an attempt
+  private static Transaction getTransaction(int transactionId) throws Exception {
+    FlutterFirebaseFirestoreTransactionHandler handler = handlers.get(transactionId);
+
+    if (handler == null) {
+      throw new Exception("No transaction handler exists for ID: " + transactionId);
+    }
+
+    Transaction transaction = handler.transaction;
+
+    if (handler.state != State.WAITING_FOR_DART || transaction == null) {
+      throw new Exception(
+          "Transaction with ID " + transactionId + " is not running an attempt: " + handler.state);
+    }
+
+    return transaction;
   }
 
   // Gets a transaction document
   // Throws an exception if the handler does not exist
   static DocumentSnapshot getDocument(int transactionId, DocumentReference documentReference)
       throws Exception {
-    Transaction transaction = transactions.get(transactionId);
+    return getTransaction(transactionId).get(documentReference);
+  }
 
-    if (transaction == null) {
-      throw new Exception(
-          "Transaction.getDocument(): No transaction handler exists for ID: " + transactionId);
+  // Gets multiple transaction documents in a single call
+  // Throws an exception if the handler does not exist
+  static Task<List<DocumentSnapshot>> getDocuments(
+      int transactionId, List<DocumentReference> documentReferences) throws Exception {
+    return readDocuments(getTransaction(transactionId), documentReferences);
+  }
+
+  // Transaction#get is synchronous, so each document is read on its own thread of the transaction
+  // thread pool, letting the reads wait for their documents at the same time rather than in turn.
+  private static Task<List<DocumentSnapshot>> readDocuments(
+      Transaction transaction, List<DocumentReference> documentReferences) {
+    List<Task<DocumentSnapshot>> reads = new ArrayList<>(documentReferences.size());
+    for (DocumentReference documentReference : documentReferences) {
+      reads.add(
+          Tasks.call(
+              FlutterFirebaseFirestorePlugin.transactionThreadPool,
+              () -> transaction.get(documentReference)));
     }
 
-    return transaction.get(documentReference);
+    return Tasks.whenAllSuccess(reads);
   }
 
+  // Documents in the prefetch list are read before each attempt and sent along with it, saving
+  // Dart a Transaction#get round trip for each of them.
   Task<FlutterFirebaseFirestoreTransactionResult> create(
-      FirebaseFirestore firestore, Long timeout) {
-    Map<String, Object> arguments = new HashMap<>();
-    arguments.put("transactionId", transactionId);
-    arguments.put("appName", firestore.getApp().getName());
+      FirebaseFirestore firestore, Long timeout, List<DocumentReference> prefetch) {
+    handlers.put(transactionId, this);
 
     return firestore.runTransaction(
         transaction -> {
-          transactions.append(transactionId, transaction);
+          // The SDK calls this function once per attempt on its own transaction thread.
+          attemptCount.incrementAndGet();
+          if (++attempt > 1) {
+            retryCount.incrementAndGet();
+          }
+
+          Map<String, Object> arguments = new HashMap<>();
+          arguments.put("transactionId", transactionId);
+          arguments.put("appName", firestore.getApp().getName());
+
+          if (!prefetch.isEmpty()) {
+            List<DocumentSnapshot> prefetchedSnapshots;
+
+            // The reads are issued at once, but like the wait for Dart below, waiting for them
+            // blocks the transaction thread of the SDK.
+            try {
+              prefetchedSnapshots = Tasks.await(readDocuments(transaction, prefetch));
+            } catch (ExecutionException e) {
+              return FlutterFirebaseFirestoreTransactionResult.failed(
+                  e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            } catch (Exception e) {
+              return FlutterFirebaseFirestoreTransactionResult.failed(e);
+            }
+
+            arguments.put("prefetched", prefetchedSnapshots);
+          }
 
           final TaskCompletionSource<Map<String, Object>> completionSource =
               new TaskCompletionSource<>();
@@ -109,10 +216,18 @@ class FlutterFirebaseFirestoreTransactionHandler {
                         }
                       });
 
+          this.transaction = transaction;
+          state = State.WAITING_FOR_DART;
           activityRef.get().runOnUiThread(runnable);
 
           Map<String, Object> response;
+          long waitStartTime = SystemClock.elapsedRealtime();
 
+          // This still parks a thread per running transaction while Dart runs the attempt, which
+          // is what the concurrent registry was meant to avoid: the SDK requires the function to
+          // return synchronously and offers no asynchronous transaction API, so the attempt can
+          // only wait for Dart here. The thread parked is the transaction thread of the SDK,
+          // never a plugin thread.
           try {
             response = Tasks.await(sourceTask, timeout, TimeUnit.MILLISECONDS);
             String responseType = (String) Objects.requireNonNull(response.get("type"));
@@ -121,11 +236,16 @@ class FlutterFirebaseFirestoreTransactionHandler {
               return FlutterFirebaseFirestoreTransactionResult.complete();
             }
           } catch (TimeoutException e) {
+            timeoutCount.incrementAndGet();
             return FlutterFirebaseFirestoreTransactionResult.failed(
                 new FirebaseFirestoreException(
                     e.getMessage(), FirebaseFirestoreException.Code.DEADLINE_EXCEEDED));
           } catch (Exception e) {
             return FlutterFirebaseFirestoreTransactionResult.failed(e);
+          } finally {
+            dartWaitTimeMillis.addAndGet(SystemClock.elapsedRealtime() - waitStartTime);
+            this.transaction = null;
+            state = State.APPLYING;
           }
 
           // noinspection unchecked
@@ -0,0 +1,87 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class FlutterFirebaseFirestoreExecutorTest {
+  private static final int BURST_SIZE = 500;
+  private static final long TIMEOUT_SECONDS = 10;
+
+  @Test
+  public void burstOfTasksIsBoundedByMaxPoolSize() throws InterruptedException {
+    assertBurstIsBounded(
+        FlutterFirebaseFirestorePlugin.executor,
+        (ThreadPoolExecutor) FlutterFirebaseFirestorePlugin.threadPool);
+  }
+
+  @Test
+  public void burstOfTransactionReadsIsBoundedByMaxPoolSize() throws InterruptedException {
+    ThreadPoolExecutor transactionThreadPool =
+        (ThreadPoolExecutor) FlutterFirebaseFirestorePlugin.transactionThreadPool;
+
+    assertBurstIsBounded(transactionThreadPool, transactionThreadPool);
+    assertTrue(
+        transactionThreadPool.getMaximumPoolSize()
+            <= FlutterFirebaseFirestorePlugin.MAX_CONCURRENT_TRANSACTION_READS);
+  }
+
+  @Test
+  public void blockedTransactionReadsDoNotHoldUpOtherTasks() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    for (int i = 0; i < 2 * FlutterFirebaseFirestorePlugin.MAX_CONCURRENT_TRANSACTION_READS; i++) {
+      FlutterFirebaseFirestorePlugin.transactionThreadPool.execute(() -> await(release));
+    }
+
+    try {
+      CountDownLatch ran = new CountDownLatch(1);
+      FlutterFirebaseFirestorePlugin.executor.execute(ran::countDown);
+
+      assertTrue(ran.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  // Submits a burst of tasks which all wait until the whole burst has been submitted, so that as
+  // many threads as the executor allows are started.
+  private static void assertBurstIsBounded(Executor executor, ThreadPoolExecutor threadPool)
+      throws InterruptedException {
+    int maxPoolSize = threadPool.getMaximumPoolSize();
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(BURST_SIZE);
+
+    try {
+      for (int i = 0; i < BURST_SIZE; i++) {
+        executor.execute(
+            () -> {
+              await(release);
+              done.countDown();
+            });
+        assertTrue(threadPool.getPoolSize() <= maxPoolSize);
+      }
+    } finally {
+      release.countDown();
+    }
+
+    assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertTrue(threadPool.getPoolSize() <= maxPoolSize);
+    assertTrue(threadPool.getLargestPoolSize() <= maxPoolSize);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
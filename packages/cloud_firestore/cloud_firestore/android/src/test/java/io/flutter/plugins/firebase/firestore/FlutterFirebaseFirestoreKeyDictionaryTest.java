@@ -0,0 +1,147 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FlutterFirebaseFirestoreKeyDictionaryTest {
+  private static final String PLAIN_APP_NAME = "plain";
+  private static final String DICTIONARY_APP_NAME = "dictionary";
+
+  private final FlutterFirebaseFirestoreMessageCodec codec =
+      new FlutterFirebaseFirestoreMessageCodec();
+  private final DartDecoder decoder = new DartDecoder();
+  private FirebaseFirestore plainFirestore;
+  private FirebaseFirestore dictionaryFirestore;
+
+  @Before
+  public void setUp() {
+    plainFirestore = FlutterFirebaseFirestoreTestFixtures.registerFirestore(PLAIN_APP_NAME, false);
+    dictionaryFirestore =
+        FlutterFirebaseFirestoreTestFixtures.registerFirestore(DICTIONARY_APP_NAME, true);
+  }
+
+  @After
+  public void tearDown() {
+    FlutterFirebaseFirestoreInstanceRegistry.evict(PLAIN_APP_NAME);
+    FlutterFirebaseFirestoreInstanceRegistry.evict(DICTIONARY_APP_NAME);
+  }
+
+  @Test
+  public void querySnapshotDecodesLikePlainEncoding() {
+    ByteBuffer plain = codec.encodeMessage(querySnapshot(plainFirestore));
+    ByteBuffer dictionary = codec.encodeMessage(querySnapshot(dictionaryFirestore));
+
+    assertEquals(decoder.decode(plain), decoder.decode(dictionary));
+    assertTrue(dictionary.capacity() < plain.capacity());
+  }
+
+  @Test
+  public void querySnapshotChangesDecodeLikePlainEncoding() {
+    ByteBuffer plain = codec.encodeMessage(querySnapshotChanges(plainFirestore));
+    ByteBuffer dictionary = codec.encodeMessage(querySnapshotChanges(dictionaryFirestore));
+
+    assertEquals(decoder.decode(plain), decoder.decode(dictionary));
+  }
+
+  @Test
+  public void documentSnapshotDecodesLikePlainEncoding() {
+    ByteBuffer plain = codec.encodeMessage(document(plainFirestore, 3));
+    ByteBuffer dictionary = codec.encodeMessage(document(dictionaryFirestore, 3));
+
+    assertEquals(decoder.decode(plain), decoder.decode(dictionary));
+  }
+
+  // Every message starts a new dictionary, redefining the field key IDs of the previous one.
+  @Test
+  public void consecutiveMessagesDecodeLikePlainEncoding() {
+    for (int i = 0; i < 3; i++) {
+      assertEquals(
+          decoder.decode(codec.encodeMessage(document(plainFirestore, i))),
+          decoder.decode(codec.encodeMessage(document(dictionaryFirestore, i))));
+      assertEquals(
+          decoder.decode(codec.encodeMessage(querySnapshotChanges(plainFirestore))),
+          decoder.decode(codec.encodeMessage(querySnapshotChanges(dictionaryFirestore))));
+    }
+  }
+
+  private static QueryDocumentSnapshot document(FirebaseFirestore firestore, int index) {
+    return FlutterFirebaseFirestoreTestFixtures.document(
+        firestore,
+        "products/product-" + index,
+        FlutterFirebaseFirestoreTestFixtures.documentData(index));
+  }
+
+  private static QuerySnapshot querySnapshot(FirebaseFirestore firestore) {
+    return FlutterFirebaseFirestoreTestFixtures.querySnapshot(firestore, 20);
+  }
+
+  private static FlutterFirebaseFirestoreQuerySnapshotChanges querySnapshotChanges(
+      FirebaseFirestore firestore) {
+    List<QueryDocumentSnapshot> documents = new ArrayList<>();
+    List<DocumentChange> documentChanges = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      documents.add(document(firestore, i));
+      documentChanges.add(
+          FlutterFirebaseFirestoreTestFixtures.documentChange(
+              DocumentChange.Type.MODIFIED, documents.get(i), i, i));
+    }
+
+    QuerySnapshot querySnapshot =
+        FlutterFirebaseFirestoreTestFixtures.querySnapshot(firestore, documents, documentChanges);
+    return new FlutterFirebaseFirestoreQuerySnapshotChanges(
+            querySnapshot, documentChanges, null, false)
+        .asChangesOnly();
+  }
+
+  /**
+   * Decodes messages as the Dart FirestoreMessageCodec does, resolving field keys from the
+   * dictionary it keeps across messages.
+   */
+  static final class DartDecoder extends FlutterFirebaseFirestoreMessageCodec {
+    private static final byte DATA_TYPE_FIELD_KEY_DEFINITION = (byte) 147;
+    private static final byte DATA_TYPE_FIELD_KEY = (byte) 148;
+    private static final Charset UTF8 = Charset.forName("UTF8");
+
+    private final List<String> fieldKeys = new ArrayList<>();
+
+    Object decode(ByteBuffer message) {
+      message.rewind();
+      return decodeMessage(message);
+    }
+
+    @Override
+    protected Object readValueOfType(byte type, ByteBuffer buffer) {
+      switch (type) {
+        case DATA_TYPE_FIELD_KEY_DEFINITION:
+          int id = readSize(buffer);
+          String key = new String(readBytes(buffer), UTF8);
+          if (id == fieldKeys.size()) {
+            fieldKeys.add(key);
+          } else {
+            fieldKeys.set(id, key);
+          }
+          return key;
+        case DATA_TYPE_FIELD_KEY:
+          return fieldKeys.get(readSize(buffer));
+        default:
+          return super.readValueOfType(type, buffer);
+      }
+    }
+  }
+}
@@ -0,0 +1,107 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SnapshotMetadata;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The codec with the snapshot encoder it had before snapshots were streamed into the output, which
+ * copied every snapshot into intermediate maps and lists first. Kept to check that the streaming
+ * encoder writes the same bytes, and to compare their allocations.
+ */
+class FlutterFirebaseFirestoreLegacyMessageCodec extends FlutterFirebaseFirestoreMessageCodec {
+  @Override
+  protected void writeValue(ByteArrayOutputStream stream, Object value) {
+    if (value instanceof DocumentSnapshot) {
+      writeDocumentSnapshot(stream, (DocumentSnapshot) value);
+    } else if (value instanceof QuerySnapshot) {
+      writeQuerySnapshot(stream, (QuerySnapshot) value);
+    } else if (value instanceof DocumentChange) {
+      writeDocumentChange(stream, (DocumentChange) value);
+    } else if (value instanceof SnapshotMetadata) {
+      writeSnapshotMetadata(stream, (SnapshotMetadata) value);
+    } else {
+      super.writeValue(stream, value);
+    }
+  }
+
+  private void writeSnapshotMetadata(ByteArrayOutputStream stream, SnapshotMetadata value) {
+    Map<String, Boolean> metadataMap = new HashMap<>();
+    metadataMap.put("hasPendingWrites", value.hasPendingWrites());
+    metadataMap.put("isFromCache", value.isFromCache());
+    writeValue(stream, metadataMap);
+  }
+
+  private void writeDocumentChange(ByteArrayOutputStream stream, DocumentChange value) {
+    Map<String, Object> changeMap = new HashMap<>();
+
+    String type = null;
+    switch (value.getType()) {
+      case ADDED:
+        type = "DocumentChangeType.added";
+        break;
+      case MODIFIED:
+        type = "DocumentChangeType.modified";
+        break;
+      case REMOVED:
+        type = "DocumentChangeType.removed";
+        break;
+    }
+
+    changeMap.put("type", type);
+    changeMap.put("data", value.getDocument().getData());
+    changeMap.put("path", value.getDocument().getReference().getPath());
+    changeMap.put("oldIndex", value.getOldIndex());
+    changeMap.put("newIndex", value.getNewIndex());
+    changeMap.put("metadata", value.getDocument().getMetadata());
+
+    writeValue(stream, changeMap);
+  }
+
+  private void writeQuerySnapshot(ByteArrayOutputStream stream, QuerySnapshot value) {
+    List<String> paths = new ArrayList<>();
+    Map<String, Object> querySnapshotMap = new HashMap<>();
+    List<Map<String, Object>> documents = new ArrayList<>();
+    List<SnapshotMetadata> metadatas = new ArrayList<>();
+
+    for (DocumentSnapshot document : value.getDocuments()) {
+      paths.add(document.getReference().getPath());
+      documents.add(document.getData());
+      metadatas.add(document.getMetadata());
+    }
+
+    querySnapshotMap.put("paths", paths);
+    querySnapshotMap.put("documents", documents);
+    querySnapshotMap.put("metadatas", metadatas);
+    querySnapshotMap.put("documentChanges", value.getDocumentChanges());
+    querySnapshotMap.put("metadata", value.getMetadata());
+
+    writeValue(stream, querySnapshotMap);
+  }
+
+  private void writeDocumentSnapshot(ByteArrayOutputStream stream, DocumentSnapshot value) {
+    Map<String, Object> snapshotMap = new HashMap<>();
+
+    snapshotMap.put("path", value.getReference().getPath());
+
+    if (value.exists()) {
+      snapshotMap.put("data", value.getData());
+    } else {
+      snapshotMap.put("data", null);
+    }
+
+    snapshotMap.put("metadata", value.getMetadata());
+
+    writeValue(stream, snapshotMap);
+  }
+}
@@ -0,0 +1,123 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mockStatic;
+
+import android.os.SystemClock;
+import com.google.firebase.firestore.ListenerRegistration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+public class FlutterFirebaseFirestoreListenerRegistryTest {
+  private final FlutterFirebaseFirestoreListenerRegistry registry =
+      new FlutterFirebaseFirestoreListenerRegistry();
+  private MockedStatic<SystemClock> systemClock;
+  private long nowMillis;
+
+  @Before
+  public void setUp() {
+    systemClock = mockStatic(SystemClock.class);
+    systemClock.when(SystemClock::elapsedRealtime).thenAnswer(invocation -> nowMillis);
+  }
+
+  @After
+  public void tearDown() {
+    systemClock.close();
+  }
+
+  @Test
+  public void removesListener() {
+    Listener listener = new Listener();
+    registry.put(1, listener);
+
+    assertTrue(registry.remove(1));
+    assertTrue(listener.removed);
+    assertEquals(0, registry.size());
+  }
+
+  @Test
+  public void closesListenerOfRemovedHandleOnceAdded() {
+    Listener listener = new Listener();
+    Listener nextListener = new Listener();
+
+    assertFalse(registry.remove(1));
+    registry.put(1, listener);
+    registry.put(1, nextListener);
+
+    assertTrue(listener.removed);
+    assertFalse(nextListener.removed);
+    assertEquals(1, registry.size());
+  }
+
+  @Test
+  public void keepsMarkerOfHandleRemovedTwice() {
+    Listener listener = new Listener();
+
+    assertFalse(registry.remove(1));
+    assertFalse(registry.remove(1));
+    registry.put(1, listener);
+
+    assertTrue(listener.removed);
+    assertEquals(0, registry.size());
+  }
+
+  @Test
+  public void refreshesMarkerOfHandleRemovedTwice() {
+    Listener listener = new Listener();
+
+    registry.remove(1);
+    nowMillis = FlutterFirebaseFirestoreListenerRegistry.REMOVED_MARKER_EXPIRY_MILLIS;
+    registry.remove(1);
+    nowMillis = 2 * FlutterFirebaseFirestoreListenerRegistry.REMOVED_MARKER_EXPIRY_MILLIS;
+    // A handle of the same stripe.
+    registry.remove(17);
+    registry.put(1, listener);
+
+    assertTrue(listener.removed);
+    assertEquals(0, registry.size());
+  }
+
+  @Test
+  public void dropsExpiredMarkersOfHandlesNeverAdded() {
+    Listener listener = new Listener();
+
+    registry.remove(1);
+    nowMillis = FlutterFirebaseFirestoreListenerRegistry.REMOVED_MARKER_EXPIRY_MILLIS + 1;
+    // A handle of the same stripe.
+    registry.remove(17);
+    registry.put(1, listener);
+
+    assertFalse(listener.removed);
+    assertEquals(1, registry.size());
+  }
+
+  @Test
+  public void keepsMarkersUntilExpired() {
+    Listener listener = new Listener();
+
+    registry.remove(1);
+    nowMillis = FlutterFirebaseFirestoreListenerRegistry.REMOVED_MARKER_EXPIRY_MILLIS;
+    registry.remove(17);
+    registry.put(1, listener);
+
+    assertTrue(listener.removed);
+    assertEquals(0, registry.size());
+  }
+
+  private static final class Listener implements ListenerRegistration {
+    boolean removed;
+
+    @Override
+    public void remove() {
+      removed = true;
+    }
+  }
+}
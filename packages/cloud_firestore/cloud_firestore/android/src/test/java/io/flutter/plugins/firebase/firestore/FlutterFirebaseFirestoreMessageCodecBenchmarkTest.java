@@ -0,0 +1,240 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+/**
+ * Benchmarks of the codec, measuring the bytes allocated and the time taken per operation.
+ *
+ * <p>The bytes allocated are compared against the baseline checked in as {@link #BASELINE_FILE},
+ * and a benchmark fails if it allocates more than {@link #TOLERANCE} above its baseline. Times
+ * vary too much between machines to be compared, so they are only reported. The allocations
+ * include those of the mocked snapshots, which are the same for every encoder.
+ *
+ * <p>Run with {@code ./gradlew :cloud_firestore:testDebugUnitTest --tests '*BenchmarkTest'} and
+ * update the baseline from the reported results when an allocation change is intended.
+ */
+public class FlutterFirebaseFirestoreMessageCodecBenchmarkTest {
+  static final String BASELINE_FILE = "codec_benchmark_baseline.properties";
+  static final double TOLERANCE = 0.2;
+
+  private static final String APP_NAME = "codec-benchmark";
+  private static final String KEY_DICTIONARY_APP_NAME = "codec-benchmark-key-dictionary";
+  private static final int WARMUP_ITERATIONS = 50;
+  private static final int ITERATIONS = 100;
+
+  private FlutterFirebaseFirestoreMessageCodec codec;
+  private Properties baseline;
+
+  @Before
+  public void setUp() throws IOException {
+    assumeTrue(
+        "Allocations cannot be measured on this JVM",
+        ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+    codec = new FlutterFirebaseFirestoreMessageCodec();
+    baseline = new Properties();
+    InputStream inputStream = getClass().getResourceAsStream(BASELINE_FILE);
+    assertNotNull("Missing " + BASELINE_FILE, inputStream);
+    try {
+      baseline.load(inputStream);
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    FlutterFirebaseFirestoreInstanceRegistry.evict(APP_NAME);
+    FlutterFirebaseFirestoreInstanceRegistry.evict(KEY_DICTIONARY_APP_NAME);
+  }
+
+  @Test
+  public void encodeQuerySnapshot() {
+    QuerySnapshot querySnapshot =
+        FlutterFirebaseFirestoreTestFixtures.querySnapshot(
+            FlutterFirebaseFirestoreTestFixtures.firestore(APP_NAME), 200);
+
+    assertWithinBaseline("encodeQuerySnapshot", measure(() -> codec.encodeMessage(querySnapshot)));
+  }
+
+  // The encoder before snapshots were streamed, for comparison with encodeQuerySnapshot.
+  @Test
+  public void encodeQuerySnapshotLegacy() {
+    FlutterFirebaseFirestoreMessageCodec legacyCodec =
+        new FlutterFirebaseFirestoreLegacyMessageCodec();
+    QuerySnapshot querySnapshot =
+        FlutterFirebaseFirestoreTestFixtures.querySnapshot(
+            FlutterFirebaseFirestoreTestFixtures.firestore(APP_NAME), 200);
+
+    assertWithinBaseline(
+        "encodeQuerySnapshotLegacy", measure(() -> legacyCodec.encodeMessage(querySnapshot)));
+  }
+
+  // The same snapshot with the key dictionary enabled, reporting the size of both messages.
+  @Test
+  public void encodeQuerySnapshotWithKeyDictionary() {
+    QuerySnapshot querySnapshot =
+        FlutterFirebaseFirestoreTestFixtures.querySnapshot(
+            FlutterFirebaseFirestoreTestFixtures.registerFirestore(KEY_DICTIONARY_APP_NAME, true),
+            200);
+    QuerySnapshot plainQuerySnapshot =
+        FlutterFirebaseFirestoreTestFixtures.querySnapshot(
+            FlutterFirebaseFirestoreTestFixtures.firestore(APP_NAME), 200);
+
+    System.out.println(
+        String.format(
+            Locale.ROOT,
+            "encodeQuerySnapshotWithKeyDictionary: %d bytes encoded, %d bytes without",
+            codec.encodeMessage(querySnapshot).capacity(),
+            codec.encodeMessage(plainQuerySnapshot).capacity()));
+    assertWithinBaseline(
+        "encodeQuerySnapshotWithKeyDictionary",
+        measure(() -> codec.encodeMessage(querySnapshot)));
+  }
+
+  @Test
+  public void encodeLargeBlob() {
+    Blob blob = FlutterFirebaseFirestoreTestFixtures.blob(512 * 1024);
+
+    assertWithinBaseline("encodeLargeBlob", measure(() -> codec.encodeMessage(blob)));
+  }
+
+  // A query snapshot with a large blob is sent as the result of a method call.
+  @Test
+  public void encodeLargeBlobSuccessEnvelope() {
+    FlutterFirebaseFirestoreMethodCodec methodCodec = new FlutterFirebaseFirestoreMethodCodec(codec);
+    Blob blob = FlutterFirebaseFirestoreTestFixtures.blob(512 * 1024);
+
+    assertWithinBaseline(
+        "encodeLargeBlobSuccessEnvelope", measure(() -> methodCodec.encodeSuccessEnvelope(blob)));
+  }
+
+  @Test
+  public void decodeLargeBlob() {
+    ByteBuffer message =
+        codec.encodeMessage(FlutterFirebaseFirestoreTestFixtures.blob(512 * 1024));
+
+    assertWithinBaseline(
+        "decodeLargeBlob",
+        measure(
+            () -> {
+              message.rewind();
+              codec.decodeMessage(message);
+            }));
+  }
+
+  // Every decode after the first is served from the query cache, which is looked up by the bytes
+  // of the descriptor before any of it is decoded.
+  @Test
+  public void decodeQueryDescriptor() {
+    FirebaseApp app = mock(FirebaseApp.class);
+    when(app.getName()).thenReturn(APP_NAME);
+    FirebaseFirestore firestore = mock(FirebaseFirestore.class);
+    when(firestore.getApp()).thenReturn(app);
+    CollectionReference collection = mock(CollectionReference.class, RETURNS_SELF);
+    when(firestore.collection("products")).thenReturn(collection);
+
+    ByteBuffer message =
+        FlutterFirebaseFirestoreMessageCodecTest.DartValues.WRITER.encodeMessage(
+            FlutterFirebaseFirestoreMessageCodecTest.DartValues.query(
+                APP_NAME, "products", FlutterFirebaseFirestoreMessageCodecTest.queryParameters()));
+
+    try (MockedStatic<FirebaseApp> firebaseApp = mockStatic(FirebaseApp.class);
+        MockedStatic<FirebaseFirestore> firebaseFirestore = mockStatic(FirebaseFirestore.class)) {
+      firebaseApp.when(() -> FirebaseApp.getInstance(APP_NAME)).thenReturn(app);
+      firebaseFirestore.when(() -> FirebaseFirestore.getInstance(app)).thenReturn(firestore);
+
+      assertWithinBaseline(
+          "decodeQueryDescriptor",
+          measure(
+              () -> {
+                message.rewind();
+                codec.decodeMessage(message);
+              }));
+    }
+  }
+
+  static final class Result {
+    final long allocatedBytesPerOperation;
+    final long nanosPerOperation;
+
+    Result(long allocatedBytesPerOperation, long nanosPerOperation) {
+      this.allocatedBytesPerOperation = allocatedBytesPerOperation;
+      this.nanosPerOperation = nanosPerOperation;
+    }
+  }
+
+  /** Runs the operation after warming it up, measuring it on the current thread. */
+  static Result measure(Runnable operation) {
+    com.sun.management.ThreadMXBean threadMXBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      operation.run();
+    }
+
+    long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+    long startNanos = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      operation.run();
+    }
+    long nanos = System.nanoTime() - startNanos;
+    long bytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+    return new Result(bytes / ITERATIONS, nanos / ITERATIONS);
+  }
+
+  static void report(String name, Result result) {
+    System.out.println(
+        String.format(
+            Locale.ROOT,
+            "%s: %d bytes allocated, %d us per operation",
+            name,
+            result.allocatedBytesPerOperation,
+            result.nanosPerOperation / 1000));
+  }
+
+  void assertWithinBaseline(String name, Result result) {
+    report(name, result);
+
+    String value = baseline.getProperty(name);
+    assertNotNull("No baseline for " + name + " in " + BASELINE_FILE, value);
+    long baselineBytes = Long.parseLong(value);
+    assertTrue(
+        String.format(
+            Locale.ROOT,
+            "%s allocated %d bytes per operation, more than %d%% above its baseline of %d",
+            name,
+            result.allocatedBytesPerOperation,
+            Math.round(TOLERANCE * 100),
+            baselineBytes),
+        result.allocatedBytesPerOperation <= baselineBytes * (1 + TOLERANCE));
+  }
+}
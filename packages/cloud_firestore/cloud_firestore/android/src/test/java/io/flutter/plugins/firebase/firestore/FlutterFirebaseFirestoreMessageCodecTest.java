@@ -0,0 +1,487 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.GeoPoint;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodCodec;
+import io.flutter.plugin.common.StandardMessageCodec;
+import io.flutter.plugin.common.StandardMethodCodec;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+public class FlutterFirebaseFirestoreMessageCodecTest {
+  private static final String APP_NAME = "codec-test";
+
+  private FlutterFirebaseFirestoreMessageCodec codec;
+
+  @Before
+  public void setUp() {
+    codec = new FlutterFirebaseFirestoreMessageCodec();
+  }
+
+  @After
+  public void tearDown() {
+    FlutterFirebaseFirestoreInstanceRegistry.evict(APP_NAME);
+  }
+
+  private Object roundTrip(Object value) {
+    ByteBuffer message = codec.encodeMessage(value);
+    message.rewind();
+    return codec.decodeMessage(message);
+  }
+
+  @Test
+  public void nestedMapsRoundTrip() {
+    Map<String, Object> innermost = new HashMap<>();
+    innermost.put("depth", 3L);
+    innermost.put("list", Arrays.<Object>asList(1L, "two", 3.5));
+    Map<String, Object> inner = new HashMap<>();
+    inner.put("innermost", innermost);
+    inner.put("empty", new HashMap<String, Object>());
+    Map<String, Object> outer = new HashMap<>();
+    outer.put("inner", inner);
+    outer.put("name", "outer");
+    outer.put("null", null);
+
+    assertEquals(outer, roundTrip(outer));
+  }
+
+  @Test
+  public void largeArraysRoundTrip() {
+    List<Object> list = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      list.add((long) i);
+      list.add(i + 0.5);
+      list.add("item " + i);
+    }
+
+    assertEquals(list, roundTrip(list));
+  }
+
+  @Test
+  public void specialDoublesRoundTrip() {
+    List<Object> list =
+        Arrays.<Object>asList(Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1.5);
+
+    assertEquals(list, roundTrip(list));
+  }
+
+  @Test
+  public void timestampRoundTrip() {
+    Timestamp timestamp = new Timestamp(1600000000L, 123456789);
+
+    assertEquals(timestamp, roundTrip(timestamp));
+  }
+
+  @Test
+  public void geoPointRoundTripIsAligned() {
+    // The string leaves the geo point's doubles unaligned unless they are padded.
+    List<Object> list = Arrays.<Object>asList("a", new GeoPoint(52.37, -4.89), "b");
+
+    assertEquals(list, roundTrip(list));
+  }
+
+  @Test
+  public void smallBlobRoundTrip() {
+    Blob blob = FlutterFirebaseFirestoreTestFixtures.blob(100);
+
+    assertEquals(blob, roundTrip(blob));
+  }
+
+  @Test
+  public void largeBlobRoundTrip() {
+    int threshold = FlutterFirebaseFirestoreMessageCodec.LARGE_BLOB_THRESHOLD_BYTES;
+    for (int size : new int[] {threshold - 1, threshold, 512 * 1024}) {
+      Blob blob = FlutterFirebaseFirestoreTestFixtures.blob(size);
+      List<Object> list = Arrays.<Object>asList("before", blob, "after");
+
+      assertEquals(list, roundTrip(list));
+    }
+  }
+
+  // StandardMethodCodec writes into its own stream, into which large blobs are copied in chunks.
+  @Test
+  public void methodCodecEncodesLikeStandardMethodCodec() {
+    MethodCodec methodCodec = new FlutterFirebaseFirestoreMethodCodec(codec);
+    MethodCodec standardMethodCodec = new StandardMethodCodec(codec);
+    List<Object> list =
+        Arrays.<Object>asList(
+            "before", FlutterFirebaseFirestoreTestFixtures.blob(512 * 1024 + 1), "after");
+
+    assertEncodedEqual(
+        standardMethodCodec.encodeMethodCall(new MethodCall("Query#get", list)),
+        methodCodec.encodeMethodCall(new MethodCall("Query#get", list)));
+    assertEncodedEqual(
+        standardMethodCodec.encodeSuccessEnvelope(list),
+        methodCodec.encodeSuccessEnvelope(list));
+    assertEncodedEqual(
+        standardMethodCodec.encodeErrorEnvelope("unknown", "An error", list),
+        methodCodec.encodeErrorEnvelope("unknown", "An error", list));
+  }
+
+  @Test
+  public void methodCodecEnvelopeRoundTrip() {
+    MethodCodec methodCodec = new FlutterFirebaseFirestoreMethodCodec(codec);
+    List<Object> list =
+        Arrays.<Object>asList("before", FlutterFirebaseFirestoreTestFixtures.blob(512 * 1024));
+
+    ByteBuffer envelope = methodCodec.encodeSuccessEnvelope(list);
+    envelope.rewind();
+
+    assertEquals(list, methodCodec.decodeEnvelope(envelope));
+  }
+
+  private static void assertEncodedEqual(ByteBuffer expected, ByteBuffer actual) {
+    expected.rewind();
+    actual.rewind();
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void encodesQuerySnapshot() {
+    FirebaseFirestore firestore = FlutterFirebaseFirestoreTestFixtures.firestore(APP_NAME);
+    QuerySnapshot querySnapshot = FlutterFirebaseFirestoreTestFixtures.querySnapshot(firestore, 3);
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> decoded = (Map<String, Object>) roundTrip(querySnapshot);
+
+    assertEquals(
+        Arrays.asList("products/product-0", "products/product-1", "products/product-2"),
+        decoded.get("paths"));
+    assertEquals(
+        Arrays.asList(
+            FlutterFirebaseFirestoreTestFixtures.documentData(0),
+            FlutterFirebaseFirestoreTestFixtures.documentData(1),
+            FlutterFirebaseFirestoreTestFixtures.documentData(2)),
+        decoded.get("documents"));
+    assertEquals(Collections.nCopies(3, metadataMap(false, false)), decoded.get("metadatas"));
+    assertEquals(metadataMap(false, true), decoded.get("metadata"));
+
+    @SuppressWarnings("unchecked")
+    List<Map<String, Object>> documentChanges =
+        (List<Map<String, Object>>) decoded.get("documentChanges");
+    assertEquals(3, documentChanges.size());
+    Map<String, Object> documentChange = documentChanges.get(2);
+    assertEquals("DocumentChangeType.added", documentChange.get("type"));
+    assertEquals(FlutterFirebaseFirestoreTestFixtures.documentData(2), documentChange.get("data"));
+    assertEquals("products/product-2", documentChange.get("path"));
+    assertEquals(-1, documentChange.get("oldIndex"));
+    assertEquals(2, documentChange.get("newIndex"));
+    assertEquals(metadataMap(false, false), documentChange.get("metadata"));
+  }
+
+  @Test
+  public void encodesDocumentSnapshot() {
+    FirebaseFirestore firestore = FlutterFirebaseFirestoreTestFixtures.firestore(APP_NAME);
+    QueryDocumentSnapshot document =
+        FlutterFirebaseFirestoreTestFixtures.document(
+            firestore, "products/product-7", FlutterFirebaseFirestoreTestFixtures.documentData(7));
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> decoded = (Map<String, Object>) roundTrip(document);
+
+    assertEquals("products/product-7", decoded.get("path"));
+    assertEquals(FlutterFirebaseFirestoreTestFixtures.documentData(7), decoded.get("data"));
+    assertEquals(metadataMap(false, false), decoded.get("metadata"));
+  }
+
+  @Test
+  public void encodesMissingDocumentSnapshotWithoutData() {
+    FirebaseFirestore firestore = FlutterFirebaseFirestoreTestFixtures.firestore(APP_NAME);
+    DocumentSnapshot document =
+        FlutterFirebaseFirestoreTestFixtures.document(firestore, "products/missing", null);
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> decoded = (Map<String, Object>) roundTrip(document);
+
+    assertTrue(decoded.containsKey("data"));
+    assertNull(decoded.get("data"));
+  }
+
+  @Test
+  public void encodesQuerySnapshotLikeLegacyEncoder() {
+    FirebaseFirestore firestore = FlutterFirebaseFirestoreTestFixtures.firestore(APP_NAME);
+    List<QueryDocumentSnapshot> documents = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      documents.add(
+          FlutterFirebaseFirestoreTestFixtures.document(
+              firestore, "products/product-" + i, FlutterFirebaseFirestoreTestFixtures.documentData(i)));
+    }
+    List<DocumentChange> documentChanges =
+        Arrays.asList(
+            FlutterFirebaseFirestoreTestFixtures.documentChange(
+                DocumentChange.Type.ADDED, documents.get(0), -1, 0),
+            FlutterFirebaseFirestoreTestFixtures.documentChange(
+                DocumentChange.Type.MODIFIED, documents.get(5), 5, 6),
+            FlutterFirebaseFirestoreTestFixtures.documentChange(
+                DocumentChange.Type.REMOVED,
+                FlutterFirebaseFirestoreTestFixtures.document(firestore, "products/old", null),
+                7,
+                -1));
+    QuerySnapshot querySnapshot =
+        FlutterFirebaseFirestoreTestFixtures.querySnapshot(firestore, documents, documentChanges);
+
+    assertEncodedLikeLegacyEncoder(querySnapshot);
+    assertEncodedLikeLegacyEncoder(FlutterFirebaseFirestoreTestFixtures.querySnapshot(firestore, 0));
+  }
+
+  @Test
+  public void encodesDocumentSnapshotLikeLegacyEncoder() {
+    FirebaseFirestore firestore = FlutterFirebaseFirestoreTestFixtures.firestore(APP_NAME);
+
+    assertEncodedLikeLegacyEncoder(
+        FlutterFirebaseFirestoreTestFixtures.document(
+            firestore, "products/product-1", FlutterFirebaseFirestoreTestFixtures.documentData(1)));
+    assertEncodedLikeLegacyEncoder(
+        FlutterFirebaseFirestoreTestFixtures.document(firestore, "products/missing", null));
+  }
+
+  private void assertEncodedLikeLegacyEncoder(Object value) {
+    ByteBuffer expected = new FlutterFirebaseFirestoreLegacyMessageCodec().encodeMessage(value);
+    ByteBuffer actual = codec.encodeMessage(value);
+    expected.rewind();
+    actual.rewind();
+
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void decodesQueryDescriptor() {
+    FirebaseFirestore firestore = mockFirestore();
+    CollectionReference collection = firestore.collection("products");
+
+    Query query =
+        (Query)
+            decodeFromDart(firestore, DartValues.query(APP_NAME, "products", queryParameters()))
+                .get(0);
+
+    assertSame(collection, query);
+    verify(collection).whereEqualTo(FieldPath.of("category"), "books");
+    verify(collection).whereGreaterThan(FieldPath.of("details", "price"), 9.5);
+    verify(collection).whereIn(FieldPath.of("tags"), Arrays.<Object>asList("new", "sale"));
+    verify(collection).orderBy(FieldPath.of("details", "price"), Query.Direction.DESCENDING);
+    verify(collection).limit(25L);
+    verify(collection).startAfter(new Timestamp(1600000000L, 0), new GeoPoint(1, 2));
+    verify(firestore).setFirestoreSettings(any());
+  }
+
+  @Test
+  public void cachesQueriesByDescriptor() {
+    FirebaseFirestore firestore = mockFirestore();
+    Map<String, Object> otherParameters = queryParameters();
+    otherParameters.put("limit", 26);
+    Object query = DartValues.query(APP_NAME, "products", queryParameters());
+    Object otherQuery = DartValues.query(APP_NAME, "products", otherParameters);
+
+    Object first = decodeFromDart(firestore, query).get(0);
+    Object second = decodeFromDart(firestore, query).get(0);
+    decodeFromDart(firestore, otherQuery);
+    Object fourth = decodeFromDart(firestore, query).get(0);
+
+    assertSame(first, second);
+    assertSame(first, fourth);
+    verify(firestore, times(2)).collection("products");
+    verify(firestore.collection("products")).limit(25L);
+    verify(firestore.collection("products")).limit(26L);
+    assertEquals(0.5, codec.getQueryCacheHitRate(), 0);
+  }
+
+  // Values within a descriptor are padded depending on where it starts in the message.
+  @Test
+  public void cachesQueriesByAlignment() {
+    FirebaseFirestore firestore = mockFirestore();
+    Object query = DartValues.query(APP_NAME, "products", queryParameters());
+
+    decodeFromDart(firestore, query);
+    decodeFromDart(firestore, "", query);
+
+    verify(firestore, times(2)).collection("products");
+    verify(firestore.collection("products"), times(2))
+        .startAfter(new Timestamp(1600000000L, 0), new GeoPoint(1, 2));
+  }
+
+  @Test
+  public void evictsQueriesOfInstance() {
+    FirebaseFirestore firestore = mockFirestore();
+    Object query = DartValues.query(APP_NAME, "products", queryParameters());
+
+    decodeFromDart(firestore, query);
+    codec.evictQueries(firestore);
+    decodeFromDart(firestore, query);
+    codec.evictAllQueries();
+    decodeFromDart(firestore, query);
+
+    verify(firestore, times(3)).collection("products");
+  }
+
+  // An instance of APP_NAME whose "products" collection returns itself from every query method.
+  private static FirebaseFirestore mockFirestore() {
+    FirebaseApp app = mock(FirebaseApp.class);
+    when(app.getName()).thenReturn(APP_NAME);
+    FirebaseFirestore firestore = mock(FirebaseFirestore.class);
+    when(firestore.getApp()).thenReturn(app);
+    CollectionReference collection = mock(CollectionReference.class, RETURNS_SELF);
+    when(firestore.collection("products")).thenReturn(collection);
+    return firestore;
+  }
+
+  // Decodes the values, written by Dart as a list, with the given instance as that of APP_NAME.
+  private List<Object> decodeFromDart(FirebaseFirestore firestore, Object... values) {
+    FirebaseApp app = firestore.getApp();
+    try (MockedStatic<FirebaseApp> firebaseApp = mockStatic(FirebaseApp.class);
+        MockedStatic<FirebaseFirestore> firebaseFirestore = mockStatic(FirebaseFirestore.class)) {
+      firebaseApp.when(() -> FirebaseApp.getInstance(APP_NAME)).thenReturn(app);
+      firebaseFirestore.when(() -> FirebaseFirestore.getInstance(app)).thenReturn(firestore);
+
+      @SuppressWarnings("unchecked")
+      List<Object> decoded = (List<Object>) decodeFromDart(Arrays.asList(values));
+      return decoded;
+    }
+  }
+
+  /** Parameters of a query as built by the Dart query, with a value of most types. */
+  static Map<String, Object> queryParameters() {
+    Map<String, Object> parameters = new HashMap<>();
+    parameters.put(
+        "where",
+        Arrays.<Object>asList(
+            Arrays.<Object>asList(DartValues.fieldPath("category"), "==", "books"),
+            Arrays.<Object>asList(DartValues.fieldPath("details", "price"), ">", 9.5),
+            Arrays.<Object>asList(
+                DartValues.fieldPath("tags"), "in", Arrays.<Object>asList("new", "sale"))));
+    parameters.put(
+        "orderBy",
+        Collections.<Object>singletonList(
+            Arrays.<Object>asList(DartValues.fieldPath("details", "price"), true)));
+    parameters.put("limit", 25);
+    parameters.put(
+        "startAfter", Arrays.<Object>asList(new Timestamp(1600000000L, 0), new GeoPoint(1, 2)));
+    return parameters;
+  }
+
+  private Object decodeFromDart(Object value) {
+    ByteBuffer message = DartValues.WRITER.encodeMessage(value);
+    message.rewind();
+    return codec.decodeMessage(message);
+  }
+
+  private static Map<String, Object> metadataMap(boolean hasPendingWrites, boolean isFromCache) {
+    Map<String, Object> metadata = new HashMap<>();
+    metadata.put("hasPendingWrites", hasPendingWrites);
+    metadata.put("isFromCache", isFromCache);
+    return metadata;
+  }
+
+  /**
+   * Values as written by the Dart FirestoreMessageCodec, for the types only Dart sends to Android.
+   */
+  static final class DartValues extends StandardMessageCodec {
+    static final DartValues WRITER = new DartValues();
+
+    private static final class DartFieldPath {
+      final String[] segments;
+
+      DartFieldPath(String[] segments) {
+        this.segments = segments;
+      }
+    }
+
+    private static final class DartFirestore {
+      final String appName;
+
+      DartFirestore(String appName) {
+        this.appName = appName;
+      }
+    }
+
+    private static final class DartQuery {
+      final Map<String, Object> values;
+
+      DartQuery(Map<String, Object> values) {
+        this.values = values;
+      }
+    }
+
+    static Object fieldPath(String... segments) {
+      return new DartFieldPath(segments);
+    }
+
+    static Object query(String appName, String path, Map<String, Object> parameters) {
+      Map<String, Object> values = new HashMap<>();
+      values.put("firestore", new DartFirestore(appName));
+      values.put("path", path);
+      values.put("isCollectionGroup", false);
+      values.put("parameters", parameters);
+      return new DartQuery(values);
+    }
+
+    @Override
+    protected void writeValue(ByteArrayOutputStream stream, Object value) {
+      if (value instanceof Timestamp) {
+        stream.write(136);
+        writeLong(stream, ((Timestamp) value).getSeconds());
+        writeInt(stream, ((Timestamp) value).getNanoseconds());
+      } else if (value instanceof GeoPoint) {
+        stream.write(129);
+        writeAlignment(stream, 8);
+        writeDouble(stream, ((GeoPoint) value).getLatitude());
+        writeDouble(stream, ((GeoPoint) value).getLongitude());
+      } else if (value instanceof DartFieldPath) {
+        String[] segments = ((DartFieldPath) value).segments;
+        stream.write(140);
+        writeSize(stream, segments.length);
+        for (String segment : segments) {
+          writeValue(stream, segment);
+        }
+      } else if (value instanceof DartFirestore) {
+        stream.write(144);
+        writeValue(stream, ((DartFirestore) value).appName);
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("persistenceEnabled", true);
+        stream.write(146);
+        writeValue(stream, settings);
+      } else if (value instanceof DartQuery) {
+        stream.write(145);
+        writeValue(stream, ((DartQuery) value).values);
+      } else {
+        super.writeValue(stream, value);
+      }
+    }
+  }
+}
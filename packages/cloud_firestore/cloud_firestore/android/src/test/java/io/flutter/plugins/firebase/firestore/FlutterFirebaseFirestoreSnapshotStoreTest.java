@@ -0,0 +1,86 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mockStatic;
+
+import android.os.SystemClock;
+import com.google.firebase.firestore.QuerySnapshot;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+public class FlutterFirebaseFirestoreSnapshotStoreTest {
+  private MockedStatic<SystemClock> systemClock;
+  private long nowMillis;
+
+  @Before
+  public void setUp() {
+    systemClock = mockStatic(SystemClock.class);
+    systemClock.when(SystemClock::elapsedRealtime).thenAnswer(invocation -> nowMillis);
+  }
+
+  @After
+  public void tearDown() {
+    systemClock.close();
+  }
+
+  private static QuerySnapshot snapshot() {
+    return FlutterFirebaseFirestoreTestFixtures.querySnapshot(
+        FlutterFirebaseFirestoreTestFixtures.firestore("snapshot-store-test"), 1);
+  }
+
+  @Test
+  public void storesAreIndependent() {
+    FlutterFirebaseFirestoreSnapshotStore store = new FlutterFirebaseFirestoreSnapshotStore();
+    FlutterFirebaseFirestoreSnapshotStore otherStore = new FlutterFirebaseFirestoreSnapshotStore();
+    QuerySnapshot snapshot = snapshot();
+    QuerySnapshot otherSnapshot = snapshot();
+
+    int handle = store.retain(snapshot);
+    int otherHandle = otherStore.retain(otherSnapshot);
+    otherStore.releaseAll();
+
+    assertEquals(handle, otherHandle);
+    assertSame(snapshot, store.get(handle));
+    assertNull(otherStore.get(otherHandle));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedSnapshot() {
+    FlutterFirebaseFirestoreSnapshotStore store = new FlutterFirebaseFirestoreSnapshotStore();
+    int first = store.retain(snapshot());
+    int second = store.retain(snapshot());
+    store.get(first);
+
+    for (int i = 2; i < FlutterFirebaseFirestoreSnapshotStore.MAX_SNAPSHOTS + 1; i++) {
+      store.retain(snapshot());
+    }
+
+    assertEquals(FlutterFirebaseFirestoreSnapshotStore.MAX_SNAPSHOTS, store.size());
+    assertNull(store.get(second));
+  }
+
+  @Test
+  public void expiredSnapshotsArePrunedOnRetain() {
+    FlutterFirebaseFirestoreSnapshotStore store = new FlutterFirebaseFirestoreSnapshotStore();
+    int expired = store.retain(snapshot());
+    int used = store.retain(snapshot());
+    store.retain(snapshot());
+
+    nowMillis = FlutterFirebaseFirestoreSnapshotStore.EXPIRY_MILLIS / 2;
+    store.get(used);
+    nowMillis = FlutterFirebaseFirestoreSnapshotStore.EXPIRY_MILLIS + 1;
+    store.retain(snapshot());
+
+    assertEquals(2, store.size());
+    assertNull(store.get(expired));
+    assertEquals(2, store.size());
+  }
+}
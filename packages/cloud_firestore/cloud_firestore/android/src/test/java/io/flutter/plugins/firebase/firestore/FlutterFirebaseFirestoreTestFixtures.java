@@ -0,0 +1,247 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.firebase.firestore;
+
+import static net.bytebuddy.matcher.ElementMatchers.isDeclaredBy;
+import static net.bytebuddy.matcher.ElementMatchers.isPublic;
+import static net.bytebuddy.matcher.ElementMatchers.not;
+import static org.mockito.Mockito.mockStatic;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.GeoPoint;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SnapshotMetadata;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.implementation.bind.annotation.FieldValue;
+import net.bytebuddy.implementation.bind.annotation.Origin;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+import org.mockito.MockedStatic;
+import org.objenesis.ObjenesisStd;
+
+/**
+ * Snapshots of the Firestore SDK for the codec tests and benchmarks.
+ *
+ * <p>The SDK's snapshot classes cannot be constructed outside of the SDK, so they are faked by
+ * generated subclasses whose methods return fixed values by name. Unlike mocks, which record a
+ * stack trace on every call, calling a fake does not allocate, so the benchmarks measure the codec
+ * rather than the fixtures.
+ */
+final class FlutterFirebaseFirestoreTestFixtures {
+  private static final String VALUES_FIELD = "fixtureValues";
+  private static final Map<Class<?>, Class<?>> fakeTypes = new ConcurrentHashMap<>();
+  private static final ObjenesisStd objenesis = new ObjenesisStd();
+
+  private FlutterFirebaseFirestoreTestFixtures() {}
+
+  /** Returns the value of the fake's fixture for the called method. */
+  public static final class FakeMethod {
+    private FakeMethod() {}
+
+    @RuntimeType
+    public static Object call(
+        @Origin Method method, @FieldValue(VALUES_FIELD) Map<String, Object> values) {
+      Object value = values.get(method.getName());
+      if (value != null || !method.getReturnType().isPrimitive()) return value;
+
+      if (method.getReturnType() == boolean.class) return false;
+      if (method.getReturnType() == void.class) return null;
+      return 0;
+    }
+  }
+
+  /** Returns a fake of the given class whose no-argument methods return the given values. */
+  static <T> T fake(Class<T> type, Map<String, Object> values) {
+    Class<?> fakeType = fakeTypes.get(type);
+    if (fakeType == null) {
+      fakeType =
+          new ByteBuddy()
+              .subclass(type, ConstructorStrategy.Default.NO_CONSTRUCTORS)
+              .defineField(VALUES_FIELD, Map.class, Visibility.PUBLIC)
+              .method(isPublic().and(not(isDeclaredBy(Object.class))))
+              .intercept(MethodDelegation.to(FakeMethod.class))
+              .make()
+              .load(type.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+              .getLoaded();
+      fakeTypes.put(type, fakeType);
+    }
+
+    Object fake = objenesis.newInstance(fakeType);
+    try {
+      fakeType.getField(VALUES_FIELD).set(fake, values);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+    return type.cast(fake);
+  }
+
+  private static Map<String, Object> values(Object... namesAndValues) {
+    Map<String, Object> values = new HashMap<>();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      values.put((String) namesAndValues[i], namesAndValues[i + 1]);
+    }
+    return values;
+  }
+
+  static FirebaseFirestore firestore(String appName) {
+    FirebaseApp app = fake(FirebaseApp.class, values("getName", appName));
+    return fake(FirebaseFirestore.class, values("getApp", app));
+  }
+
+  /**
+   * Registers a fake instance for the app, whose snapshots are then encoded with a key dictionary
+   * if it is enabled. The instance must be evicted from the registry once done.
+   */
+  static FirebaseFirestore registerFirestore(String appName, boolean keyDictionaryEnabled) {
+    FirebaseApp app = fake(FirebaseApp.class, values("getName", appName));
+    FirebaseFirestore firestore = fake(FirebaseFirestore.class, values("getApp", app));
+
+    try (MockedStatic<FirebaseApp> firebaseApp = mockStatic(FirebaseApp.class);
+        MockedStatic<FirebaseFirestore> firebaseFirestore = mockStatic(FirebaseFirestore.class)) {
+      firebaseApp.when(() -> FirebaseApp.getInstance(appName)).thenReturn(app);
+      firebaseFirestore.when(() -> FirebaseFirestore.getInstance(app)).thenReturn(firestore);
+
+      return FlutterFirebaseFirestoreInstanceRegistry.getOrCreate(
+          appName, new FirebaseFirestoreSettings.Builder().build(), keyDictionaryEnabled);
+    }
+  }
+
+  static SnapshotMetadata metadata(boolean hasPendingWrites, boolean isFromCache) {
+    return fake(
+        SnapshotMetadata.class,
+        values("hasPendingWrites", hasPendingWrites, "isFromCache", isFromCache));
+  }
+
+  /** A document with the given data, or a document which does not exist if the data is null. */
+  static QueryDocumentSnapshot document(
+      FirebaseFirestore firestore, String path, Map<String, Object> data) {
+    DocumentReference reference =
+        fake(DocumentReference.class, values("getPath", path, "getFirestore", firestore));
+    return fake(
+        QueryDocumentSnapshot.class,
+        values(
+            "getReference",
+            reference,
+            "exists",
+            data != null,
+            "getData",
+            data,
+            "getMetadata",
+            metadata(false, false)));
+  }
+
+  static DocumentChange documentChange(
+      DocumentChange.Type type, QueryDocumentSnapshot document, int oldIndex, int newIndex) {
+    return fake(
+        DocumentChange.class,
+        values(
+            "getType",
+            type,
+            "getDocument",
+            document,
+            "getOldIndex",
+            oldIndex,
+            "getNewIndex",
+            newIndex));
+  }
+
+  /** A snapshot of the given documents, all of which were added by it. */
+  static QuerySnapshot querySnapshot(
+      FirebaseFirestore firestore, List<QueryDocumentSnapshot> documents) {
+    List<DocumentChange> documentChanges = new ArrayList<>(documents.size());
+    for (int i = 0; i < documents.size(); i++) {
+      documentChanges.add(documentChange(DocumentChange.Type.ADDED, documents.get(i), -1, i));
+    }
+    return querySnapshot(firestore, documents, documentChanges);
+  }
+
+  static QuerySnapshot querySnapshot(
+      FirebaseFirestore firestore,
+      List<QueryDocumentSnapshot> documents,
+      List<DocumentChange> documentChanges) {
+    return fake(
+        QuerySnapshot.class,
+        values(
+            "getDocuments",
+            new ArrayList<DocumentSnapshot>(documents),
+            "getDocumentChanges",
+            documentChanges,
+            "getMetadata",
+            metadata(false, true),
+            "getQuery",
+            fake(Query.class, values("getFirestore", firestore))));
+  }
+
+  /** A snapshot of {@code documentCount} documents, each as built by {@link #documentData}. */
+  static QuerySnapshot querySnapshot(FirebaseFirestore firestore, int documentCount) {
+    List<QueryDocumentSnapshot> documents = new ArrayList<>(documentCount);
+    for (int i = 0; i < documentCount; i++) {
+      documents.add(document(firestore, "products/product-" + i, documentData(i)));
+    }
+    return querySnapshot(firestore, documents);
+  }
+
+  /**
+   * Data of a typical document: scalars, a timestamp, a geo point, a small blob, an array and maps
+   * nested two levels deep, with the same keys in every document.
+   */
+  static Map<String, Object> documentData(int index) {
+    Map<String, Object> dimensions = new HashMap<>();
+    dimensions.put("width", 10.5 + index);
+    dimensions.put("height", 20.25);
+    dimensions.put("depth", 3L);
+
+    Map<String, Object> supplier = new HashMap<>();
+    supplier.put("name", "Supplier " + (index % 10));
+    supplier.put("country", "NL");
+    supplier.put("verified", index % 2 == 0);
+
+    Map<String, Object> details = new HashMap<>();
+    details.put("dimensions", dimensions);
+    details.put("supplier", supplier);
+    details.put("description", "A product description which is a bit longer than the others.");
+
+    Map<String, Object> data = new HashMap<>();
+    data.put("name", "Product " + index);
+    data.put("price", 9.99 + index);
+    data.put("stock", (long) index);
+    data.put("available", index % 3 != 0);
+    data.put("createdAt", new Timestamp(1600000000L + index, 123000000));
+    data.put("location", new GeoPoint(52.37, 4.89));
+    data.put("thumbnail", Blob.fromBytes(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+    data.put("tags", Arrays.<Object>asList("new", "sale", "popular", (long) index));
+    data.put("details", details);
+    data.put("discontinued", null);
+    return data;
+  }
+
+  /** A blob of {@code size} bytes which are not all the same. */
+  static Blob blob(int size) {
+    byte[] bytes = new byte[size];
+    for (int i = 0; i < size; i++) {
+      bytes[i] = (byte) (i * 31);
+    }
+    return Blob.fromBytes(bytes);
+  }
+}
@@ -17,6 +17,7 @@ export 'package:cloud_firestore_platform_interface/cloud_firestore_platform_inte
         ListEquality,
         FieldPath,
         Blob,
+        BulkWriteChunk,
         GeoPoint,
         Timestamp,
         Source,
@@ -29,11 +30,13 @@ export 'package:firebase_core_platform_interface/firebase_core_platform_interfac
 
 part 'src/collection_reference.dart';
 part 'src/document_change.dart';
+part 'src/document_get_result.dart';
 part 'src/document_reference.dart';
 part 'src/document_snapshot.dart';
 part 'src/field_value.dart';
 part 'src/firestore.dart';
 part 'src/query.dart';
+part 'src/query_cursor.dart';
 part 'src/query_document_snapshot.dart';
 part 'src/query_snapshot.dart';
 part 'src/snapshot_metadata.dart';
@@ -0,0 +1,33 @@
+// Copyright 2020, the Chromium project authors.  Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+part of cloud_firestore;
+
+/// The outcome of getting a single document of a [FirebaseFirestore.getAll]
+/// call.
+///
+/// Each document is fetched independently, so either its [snapshot] or the
+/// [error] which prevented it from being fetched is set.
+class DocumentGetResult {
+  final FirebaseFirestore _firestore;
+  final DocumentGetResultPlatform _delegate;
+
+  DocumentGetResult._(this._firestore, this._delegate);
+
+  /// The reference of the document.
+  DocumentReference get reference =>
+      DocumentReference._(_firestore, _delegate.reference);
+
+  /// The snapshot of the document, or `null` if it could not be fetched.
+  DocumentSnapshot get snapshot => _delegate.snapshot == null
+      ? null
+      : DocumentSnapshot._(_firestore, _delegate.snapshot);
+
+  /// The error which prevented the document from being fetched, or `null` if
+  /// it was fetched.
+  FirebaseException get error => _delegate.error;
+
+  /// Whether the document was fetched.
+  bool get isSuccessful => _delegate.isSuccessful;
+}
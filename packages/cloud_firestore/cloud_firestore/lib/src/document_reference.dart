@@ -67,9 +67,20 @@ class DocumentReference {
   ///
   /// An initial event is immediately sent, and further events will be
   /// sent whenever the document is modified.
-  Stream<DocumentSnapshot> snapshots({bool includeMetadataChanges = false}) =>
-      _delegate.snapshots(includeMetadataChanges: includeMetadataChanges).map(
-          (delegateSnapshot) =>
+  ///
+  /// Setting a [throttleInterval] delivers at most one snapshot per interval,
+  /// skipping all but the latest snapshot arriving within it. This is currently
+  /// only supported on Android.
+  Stream<DocumentSnapshot> snapshots({
+    bool includeMetadataChanges = false,
+    Duration throttleInterval = Duration.zero,
+  }) =>
+      _delegate
+          .snapshots(
+            includeMetadataChanges: includeMetadataChanges,
+            throttleInterval: throttleInterval,
+          )
+          .map((delegateSnapshot) =>
               DocumentSnapshot._(firestore, delegateSnapshot));
 
   /// Sets data on the document, overwriting any existing data. If the document
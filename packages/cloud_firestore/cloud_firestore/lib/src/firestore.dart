@@ -91,6 +91,12 @@ class FirebaseFirestore extends FirebasePluginPlatform {
     return _delegate.clearPersistence();
   }
 
+  /// Deletes every query snapshot persisted for this instance with
+  /// [GetOptions.persistKey], e.g. once the user signs out.
+  Future<void> clearPersistedQuerySnapshots() {
+    return _delegate.clearPersistedQuerySnapshots();
+  }
+
   /// Enable persistence of Firestore data.
   /// This is a web only method. Use [Settings.persistenceEnabled] for non Web platforms.
   Future<void> enablePersistence() async {
@@ -167,12 +173,22 @@ class FirebaseFirestore extends FirebasePluginPlatform {
   ///
   /// By default transactions are limited to 5 seconds of execution time. This
   /// timeout can be adjusted by setting the timeout parameter.
+  ///
+  /// If the documents the [TransactionHandler] reads are known up front, they
+  /// can be passed as [prefetch]. On Android they are then read before each
+  /// attempt and returned by [Transaction.get] without further round trips.
   Future<T> runTransaction<T>(TransactionHandler<T> transactionHandler,
-      {Duration timeout = const Duration(seconds: 30)}) {
+      {Duration timeout = const Duration(seconds: 30),
+      List<DocumentReference> prefetch = const <DocumentReference>[]}) {
     assert(transactionHandler != null, "transactionHandler cannot be null");
+    assert(prefetch != null, "prefetch cannot be null");
+    assert(prefetch.every((reference) => reference.firestore == this),
+        "a prefetched document is from a different Firestore instance");
+    List<String> prefetchPaths =
+        prefetch.map((reference) => reference.path).toList();
     return _delegate.runTransaction<T>((transaction) {
       return transactionHandler(Transaction._(this, transaction));
-    }, timeout: timeout);
+    }, timeout: timeout, prefetch: prefetchPaths);
   }
 
   /// Specifies custom settings to be used to configure this [FirebaseFirestore] instance.
@@ -219,6 +235,60 @@ class FirebaseFirestore extends FirebasePluginPlatform {
     return _delegate.waitForPendingWrites();
   }
 
+  /// Gets the documents of the given [references] in a single call, rather
+  /// than calling [DocumentReference.get] for each of them.
+  ///
+  /// At most [maxConcurrency] documents are fetched at the same time. Each
+  /// document is fetched independently, so the failure of one document does
+  /// not prevent the others from being fetched: the [DocumentGetResult] of
+  /// every document holds either its snapshot or its error, in the order of
+  /// [references].
+  Future<List<DocumentGetResult>> getAll(List<DocumentReference> references,
+      {GetOptions options, int maxConcurrency = 10}) async {
+    assert(references != null, "references cannot be null");
+    assert(references.every((reference) => reference.firestore == this),
+        "a document is from a different Firestore instance");
+    assert(maxConcurrency != null && maxConcurrency > 0,
+        "maxConcurrency must be a positive number greater than 0");
+
+    List<DocumentGetResultPlatform> results = await _delegate.getAll(
+        references.map((reference) => reference._delegate).toList(),
+        options: options ?? const GetOptions(),
+        maxConcurrency: maxConcurrency);
+
+    return results
+        .map((result) => DocumentGetResult._(this, result))
+        .toList(growable: false);
+  }
+
+  /// Enables or disables the recording of metrics about the plugin itself.
+  ///
+  /// While enabled, the latency of each method call, the time spent queued
+  /// before running natively, the time taken and bytes used to encode each
+  /// type of snapshot and to decode each query are recorded. Recording is
+  /// cheap enough to be left enabled in production. Metrics are shared by all
+  /// instances, and disabling them discards everything recorded so far.
+  ///
+  /// This is currently only supported on Android.
+  Future<void> setMetricsEnabled(bool enabled) {
+    assert(enabled != null);
+    return _delegate.setMetricsEnabled(enabled);
+  }
+
+  /// Returns the metrics recorded since they were enabled with
+  /// [setMetricsEnabled].
+  ///
+  /// Latency histograms are keyed by method name and reported in
+  /// microseconds, encoded and decoded sizes are keyed by type and reported in
+  /// bytes. Each histogram is summarized by its `count`, `mean`, `p50`, `p90`,
+  /// `p99` and `max`. Counters such as the number of active `listeners` and
+  /// `transactions` are always included.
+  ///
+  /// This is currently only supported on Android.
+  Future<Map<String, dynamic>> getMetrics() {
+    return _delegate.getMetrics();
+  }
+
   @override
   bool operator ==(dynamic o) =>
       o is FirebaseFirestore && o.app.name == app.name;
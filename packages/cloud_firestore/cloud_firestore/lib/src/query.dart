@@ -178,10 +178,40 @@ class Query {
     return QuerySnapshot._(firestore, snapshotDelegate);
   }
 
+  /// Reads the snapshot of this query which was persisted under [key] by a
+  /// previous call to [get] with [GetOptions.persistKey], e.g. during the
+  /// previous launch of the app, or returns `null` if there is none.
+  ///
+  /// The persisted snapshot can be shown straight away while the query is
+  /// fetched again, as its documents may have changed since it was persisted.
+  /// This is currently only supported on Android.
+  Future<QuerySnapshot> getPersisted(String key) async {
+    assert(key != null && key.isNotEmpty, "key cannot be null or empty");
+
+    QuerySnapshotPlatform snapshotDelegate = await _delegate.getPersisted(key);
+    return snapshotDelegate == null
+        ? null
+        : QuerySnapshot._(firestore, snapshotDelegate);
+  }
+
   @Deprecated("Deprecated in favor of `.get()`")
   // ignore: public_member_api_docs
   Future<QuerySnapshot> getDocuments([GetOptions options]) => get(options);
 
+  /// Creates a [QueryCursor] which fetches the results of this query one page
+  /// at a time, rather than all at once.
+  ///
+  /// The [limit] of this query bounds the documents of all pages together,
+  /// after which the cursor returns empty pages. A query using [limitToLast]
+  /// cannot be paged through, as pages are fetched in order from the start of
+  /// the results, and throws a [StateError].
+  ///
+  /// This is currently only supported on Android.
+  QueryCursor cursor([GetOptions options]) {
+    return QueryCursor._(
+        firestore, _delegate.cursor(options ?? const GetOptions()));
+  }
+
   /// Creates and returns a new Query that's additionally limited to only return up
   /// to the specified number of documents.
   Query limit(int limit) {
@@ -201,10 +231,54 @@ class Query {
     return Query._(firestore, _delegate.limitToLast(limit));
   }
 
+  /// Creates and returns a new [Query] whose snapshots only contain the data
+  /// of the given [fields] of each document, given as a [String] or
+  /// [FieldPath].
+  ///
+  /// The whole document is still read by Firestore, but only the selected
+  /// fields are transferred to Dart, which reduces the cost of queries whose
+  /// documents have many more fields than are used. Fields which do not exist
+  /// in a document are omitted from its data.
+  ///
+  /// This is currently only supported on Android, other platforms return
+  /// every field.
+  Query select(List<dynamic> fields) {
+    assert(fields != null && fields.isNotEmpty,
+        "select() requires at least one field");
+    fields.forEach(_assertValidFieldType);
+
+    return Query._(
+        firestore,
+        _delegate.select(fields
+            .map((dynamic field) =>
+                field is String ? FieldPath.fromString(field) : field)
+            .toList()
+            .cast<FieldPath>()));
+  }
+
   /// Notifies of query results at this location.
-  Stream<QuerySnapshot> snapshots({bool includeMetadataChanges = false}) =>
+  ///
+  /// Setting [changesOnly] to `true` reduces the amount of data sent from the
+  /// native platform for large result sets: after the first snapshot only the
+  /// changed documents are transferred and applied to the previous snapshot.
+  /// In this mode [QuerySnapshot.docChanges] also reports documents whose
+  /// metadata changed.
+  ///
+  /// Setting a [throttleInterval] delivers at most one snapshot per interval.
+  /// Snapshots arriving within the interval are combined into the next one,
+  /// whose [QuerySnapshot.docChanges] contains the changes of all of them.
+  /// This is currently only supported on Android.
+  Stream<QuerySnapshot> snapshots({
+    bool includeMetadataChanges = false,
+    bool changesOnly = false,
+    Duration throttleInterval = Duration.zero,
+  }) =>
       _delegate
-          .snapshots(includeMetadataChanges: includeMetadataChanges)
+          .snapshots(
+            includeMetadataChanges: includeMetadataChanges,
+            changesOnly: changesOnly,
+            throttleInterval: throttleInterval,
+          )
           .map((item) {
         return QuerySnapshot._(firestore, item);
       });
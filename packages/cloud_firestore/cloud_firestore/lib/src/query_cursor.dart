@@ -0,0 +1,56 @@
+// Copyright 2020, the Chromium project authors.  Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+part of cloud_firestore;
+
+/// A cursor over the results of a [Query], created by calling [Query.cursor].
+///
+/// Each page continues after the last document of the previous page, so large
+/// result sets can be iterated without being fetched at once.
+class QueryCursor {
+  final FirebaseFirestore _firestore;
+  final QueryCursorPlatform _delegate;
+
+  bool _hasMore = true;
+
+  QueryCursor._(this._firestore, this._delegate) {
+    QueryCursorPlatform.verifyExtends(_delegate);
+  }
+
+  /// Whether more documents may be available.
+  ///
+  /// This becomes `false` once a page contains fewer documents than requested.
+  bool get hasMore => _hasMore;
+
+  /// Fetches the next page of at most [pageSize] documents.
+  Future<QuerySnapshot> next(int pageSize) async {
+    assert(pageSize != null && pageSize > 0,
+        "pageSize must be a positive number greater than 0");
+    QuerySnapshot snapshot =
+        QuerySnapshot._(_firestore, await _delegate.next(pageSize));
+
+    if (snapshot.size < pageSize) {
+      _hasMore = false;
+    }
+
+    return snapshot;
+  }
+
+  /// Fetches pages of at most [pageSize] documents until no more are
+  /// available, closing the cursor once done.
+  Stream<QuerySnapshot> pages(int pageSize) async* {
+    try {
+      while (_hasMore) {
+        yield await next(pageSize);
+      }
+    } finally {
+      await close();
+    }
+  }
+
+  /// Releases the resources held by this cursor.
+  ///
+  /// No further pages can be fetched once the cursor has been closed.
+  Future<void> close() => _delegate.close();
+}
@@ -39,4 +39,36 @@ class QuerySnapshot {
 
   /// Returns the size (number of documents) of this snapshot.
   int get size => _delegate.size;
+
+  /// Whether the documents of this snapshot were fetched without their data,
+  /// see [GetOptions.lazy].
+  ///
+  /// The documents of a lazy snapshot return `null` from `data()`, their
+  /// data has to be fetched with [fetchData] instead.
+  bool get isLazy => _delegate.isLazy;
+
+  /// Fetches the data of the documents at the given [indexes] of [docs].
+  ///
+  /// If [fields] is given, only the data of those fields, given as a [String]
+  /// or [FieldPath], is returned, and only that data is fetched for a lazy
+  /// snapshot. Fields which do not exist in a document are omitted from its
+  /// data.
+  ///
+  /// The data of a lazy snapshot is only retained natively for a limited time
+  /// and number of snapshots, after which the query has to be fetched again.
+  Future<List<Map<String, dynamic>>> fetchData(List<int> indexes,
+      {List<dynamic> fields}) {
+    assert(indexes != null);
+
+    return _delegate.getData(indexes,
+        fields: fields?.map((dynamic field) {
+          assert(field is String || field is FieldPath,
+              "Supported [field] types are [String] and [FieldPath]");
+          return field is String ? FieldPath.fromString(field) : field;
+        })?.toList()?.cast<FieldPath>());
+  }
+
+  /// Releases the data retained natively for a lazy snapshot once it is no
+  /// longer needed, rather than waiting for it to expire.
+  Future<void> release() => _delegate.release();
 }
@@ -28,6 +28,28 @@ class Transaction {
     return DocumentSnapshot._(_firestore, documentSnapshotPlatform);
   }
 
+  /// Reads the documents referenced by the provided [documentReferences] in a
+  /// single call, returning their snapshots in the same order.
+  ///
+  /// Reading them in a single call is currently only supported on Android.
+  /// Other platforms read each document as [get] does.
+  Future<List<DocumentSnapshot>> getAll(
+      List<DocumentReference> documentReferences) async {
+    assert(documentReferences != null);
+    assert(
+        documentReferences
+            .every((reference) => reference.firestore == _firestore),
+        "a document provided is from a different Firestore instance");
+
+    List<DocumentSnapshotPlatform> documentSnapshotPlatforms = await _delegate
+        .getAll(documentReferences.map((reference) => reference.path).toList());
+
+    return documentSnapshotPlatforms
+        .map((documentSnapshotPlatform) =>
+            DocumentSnapshot._(_firestore, documentSnapshotPlatform))
+        .toList();
+  }
+
   /// Deletes the document referred to by the provided [documentReference].
   Transaction delete(DocumentReference documentReference) {
     assert(documentReference != null);
@@ -23,6 +23,24 @@ class WriteBatch {
   /// Calling this method prevents any future operations from being added.
   Future<void> commit() => _delegate.commit();
 
+  /// Commits all of the writes in this write batch in chunks of at most 500
+  /// writes, allowing more writes than a single batch supports.
+  ///
+  /// At most [maxConcurrency] chunks are committed at once. Each chunk is
+  /// committed atomically, but the writes as a whole are not: a failed chunk
+  /// does not prevent the others from being committed. A [BulkWriteChunk] is
+  /// emitted as each chunk completes, and the stream closes once every chunk
+  /// has completed.
+  ///
+  /// This is currently only supported on Android.
+  ///
+  /// Calling this method prevents any future operations from being added.
+  Stream<BulkWriteChunk> commitInChunks({int maxConcurrency = 4}) {
+    assert(maxConcurrency != null && maxConcurrency > 0,
+        'maxConcurrency must be a positive number');
+    return _delegate.commitInChunks(maxConcurrency: maxConcurrency);
+  }
+
   /// Deletes the document referred to by [document].
   void delete(DocumentReference document) {
     assert(document != null);
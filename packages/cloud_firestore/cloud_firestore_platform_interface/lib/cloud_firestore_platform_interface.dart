@@ -8,16 +8,19 @@ import 'src/internal/pointer.dart';
 
 export 'package:collection/collection.dart' show ListEquality;
 export 'src/blob.dart';
+export 'src/bulk_write_chunk.dart';
 export 'src/field_path.dart';
 export 'src/geo_point.dart';
 export 'src/platform_interface/platform_interface_firestore.dart';
 export 'src/platform_interface/platform_interface_collection_reference.dart';
 export 'src/platform_interface/platform_interface_document_change.dart';
+export 'src/platform_interface/platform_interface_document_get_result.dart';
 export 'src/platform_interface/platform_interface_document_reference.dart';
 export 'src/platform_interface/platform_interface_document_snapshot.dart';
 export 'src/platform_interface/platform_interface_field_value.dart';
 export 'src/platform_interface/platform_interface_field_value_factory.dart';
 export 'src/platform_interface/platform_interface_query.dart';
+export 'src/platform_interface/platform_interface_query_cursor.dart';
 export 'src/platform_interface/platform_interface_query_snapshot.dart';
 export 'src/platform_interface/platform_interface_transaction.dart';
 export 'src/platform_interface/platform_interface_write_batch.dart';
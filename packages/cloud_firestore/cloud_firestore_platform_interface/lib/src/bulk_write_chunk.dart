@@ -0,0 +1,40 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+import 'package:firebase_core/firebase_core.dart';
+
+/// The outcome of committing a single chunk of a bulk write.
+///
+/// Bulk writes are split into chunks of at most 500 writes, each of which is
+/// committed as a separate atomic batch. A [BulkWriteChunk] is emitted as each
+/// chunk completes, in the order in which they complete.
+class BulkWriteChunk {
+  /// Creates a [BulkWriteChunk] instance.
+  const BulkWriteChunk({
+    this.chunkIndex,
+    this.chunkCount,
+    this.completedChunkCount,
+    this.writeCount,
+    this.error,
+  });
+
+  /// The position of this chunk within the bulk write.
+  final int chunkIndex;
+
+  /// The total number of chunks the bulk write was split into.
+  final int chunkCount;
+
+  /// The number of chunks which have completed so far, including this one.
+  final int completedChunkCount;
+
+  /// The number of writes contained in this chunk.
+  final int writeCount;
+
+  /// The error which caused this chunk to fail, or `null` if its writes were
+  /// committed.
+  final FirebaseException error;
+
+  /// Whether the writes of this chunk were committed.
+  bool get isSuccessful => error == null;
+}
@@ -30,8 +30,30 @@ class GetOptions {
   /// QuerySnapshot with no documents.
   final Source source;
 
+  /// Whether the documents of a query snapshot are returned without their
+  /// data, which is then fetched on demand for specific documents or fields.
+  ///
+  /// This avoids transferring the data of documents which are never used,
+  /// e.g. ones which are never scrolled into view. It is currently only
+  /// supported when getting a query on Android, and ignored otherwise.
+  final bool lazy;
+
+  /// The key under which the query snapshot is also persisted to app storage,
+  /// or `null` to not persist it.
+  ///
+  /// A persisted snapshot survives app restarts and can be read back with
+  /// `Query.getPersisted` to be shown straight away on the next launch, while
+  /// the query is fetched again. It is currently only supported when getting
+  /// a query which is not [lazy] on Android, and ignored otherwise.
+  final String persistKey;
+
   /// Creates a [GetOptions] instance.
   const GetOptions({
     this.source = Source.serverAndCache,
-  }) : assert(source != null);
+    this.lazy = false,
+    this.persistKey,
+  })  : assert(source != null),
+        assert(lazy != null),
+        assert(!lazy || persistKey == null,
+            'lazy query snapshots cannot be persisted');
 }
@@ -18,7 +18,9 @@ class MethodChannelDocumentChange extends DocumentChangePlatform {
               firestore,
               data['path'],
               <String, dynamic>{
-                'data': Map<String, dynamic>.from(data['data']),
+                'data': data['data'] == null
+                    ? null
+                    : Map<String, dynamic>.from(data['data']),
                 'metadata': Map<String, dynamic>.from(data['metadata']),
               },
             ));
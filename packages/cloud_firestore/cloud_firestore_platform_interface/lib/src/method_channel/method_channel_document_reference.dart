@@ -78,9 +78,12 @@ class MethodChannelDocumentReference extends DocumentReferencePlatform {
   }
 
   @override
-  Stream<DocumentSnapshotPlatform> snapshots(
-      {bool includeMetadataChanges = false}) {
+  Stream<DocumentSnapshotPlatform> snapshots({
+    bool includeMetadataChanges = false,
+    Duration throttleInterval = Duration.zero,
+  }) {
     assert(includeMetadataChanges != null);
+    assert(throttleInterval != null && !throttleInterval.isNegative);
     int handle = MethodChannelFirebaseFirestore.nextMethodChannelHandleId;
 
     // It's fine to let the StreamController be garbage collected once all the
@@ -97,6 +100,7 @@ class MethodChannelDocumentReference extends DocumentReferencePlatform {
             'firestore': firestore,
             'reference': this,
             'includeMetadataChanges': includeMetadataChanges,
+            'throttleIntervalMillis': throttleInterval.inMilliseconds,
           },
         );
       },
@@ -15,6 +15,7 @@ import 'method_channel_transaction.dart';
 import 'method_channel_write_batch.dart';
 import 'utils/firestore_message_codec.dart';
 import 'utils/exception.dart';
+import 'utils/source.dart';
 
 /// The entry point for accessing a Firestore.
 ///
@@ -31,6 +32,9 @@ class MethodChannelFirebaseFirestore extends FirebaseFirestorePlatform {
         case 'QuerySnapshot#event':
           return _handleQuerySnapshotEvent(call.arguments);
           break;
+        case 'QuerySnapshot#changes':
+          return _handleQuerySnapshotChanges(call.arguments);
+          break;
         case 'QuerySnapshot#error':
           return _handleQuerySnapshotError(call.arguments);
           break;
@@ -40,6 +44,9 @@ class MethodChannelFirebaseFirestore extends FirebaseFirestorePlatform {
         case 'DocumentSnapshot#error':
           return _handleDocumentSnapshotError(call.arguments);
           break;
+        case 'WriteBatch#bulkCommitProgress':
+          return _handleBulkCommitProgress(call.arguments);
+          break;
         case 'Transaction#attempt':
           return _handleTransactionAttempt(call.arguments);
           break;
@@ -68,8 +75,42 @@ class MethodChannelFirebaseFirestore extends FirebaseFirestorePlatform {
   /// add a [MethodChannelQuerySnapshot] to the [StreamController].
   void _handleQuerySnapshotEvent(Map<dynamic, dynamic> arguments) async {
     try {
-      queryObservers[arguments['handle']]
-          .add(MethodChannelQuerySnapshot(this, arguments['snapshot']));
+      final int handle = arguments['handle'];
+      final QuerySnapshotPlatform snapshot =
+          MethodChannelQuerySnapshot(this, arguments['snapshot']);
+
+      if (lastQuerySnapshots.containsKey(handle)) {
+        lastQuerySnapshots[handle] = snapshot;
+      }
+
+      queryObservers[handle].add(snapshot);
+    } catch (error) {
+      _handleQuerySnapshotError(<dynamic, dynamic>{
+        'handle': arguments['handle'],
+        'error': error,
+      });
+    }
+  }
+
+  /// When a [QuerySnapshot] changes event is fired on the [MethodChannel],
+  /// apply the document changes to the previous snapshot of the listener and
+  /// add the resulting [MethodChannelQuerySnapshot] to the [StreamController].
+  void _handleQuerySnapshotChanges(Map<dynamic, dynamic> arguments) async {
+    try {
+      final int handle = arguments['handle'];
+      final QuerySnapshotPlatform previous = lastQuerySnapshots[handle];
+
+      if (previous == null) {
+        throw StateError(
+            'Received document changes for listener $handle before an initial snapshot.');
+      }
+
+      final QuerySnapshotPlatform snapshot =
+          MethodChannelQuerySnapshot.fromChanges(
+              this, previous, arguments['snapshot']);
+
+      lastQuerySnapshots[handle] = snapshot;
+      queryObservers[handle].add(snapshot);
     } catch (error) {
       _handleQuerySnapshotError(<dynamic, dynamic>{
         'handle': arguments['handle'],
@@ -113,6 +154,37 @@ class MethodChannelFirebaseFirestore extends FirebaseFirestorePlatform {
     _handleError(documentObservers[arguments['handle']], arguments);
   }
 
+  /// When a chunk of a bulk write completes, add a [BulkWriteChunk] to the
+  /// [StreamController] of the bulk write.
+  void _handleBulkCommitProgress(Map<dynamic, dynamic> arguments) {
+    final StreamController<BulkWriteChunk> controller =
+        bulkWriteObservers[arguments['handle']];
+
+    if (controller == null) {
+      return;
+    }
+
+    FirebaseException error;
+
+    if (arguments['error'] != null) {
+      Map<String, dynamic> errorMap =
+          Map<String, dynamic>.from(arguments['error']);
+      error = FirebaseException(
+        plugin: 'cloud_firestore',
+        code: errorMap['code'],
+        message: errorMap['message'],
+      );
+    }
+
+    controller.add(BulkWriteChunk(
+      chunkIndex: arguments['chunkIndex'],
+      chunkCount: arguments['chunkCount'],
+      completedChunkCount: arguments['completedChunkCount'],
+      writeCount: arguments['writeCount'],
+      error: error,
+    ));
+  }
+
   /// When a transaction is attempted, it sends a [MethodChannel] call.
   /// The user handler is executed, and the result or error is emitted via
   /// a stream to the [runTransaction] handler. Once the handler has completed,
@@ -120,8 +192,9 @@ class MethodChannelFirebaseFirestore extends FirebaseFirestorePlatform {
   Future<Map<String, dynamic>> _handleTransactionAttempt(
       Map<dynamic, dynamic> arguments) async {
     final int transactionId = arguments['transactionId'];
-    final TransactionPlatform transaction =
-        MethodChannelTransaction(transactionId, arguments["appName"]);
+    final TransactionPlatform transaction = MethodChannelTransaction(
+        transactionId, arguments["appName"],
+        prefetched: arguments["prefetched"]);
     final StreamController controller =
         _transactionStreamControllerHandlers[transactionId];
 
@@ -189,18 +262,38 @@ class MethodChannelFirebaseFirestore extends FirebaseFirestorePlatform {
     StandardMethodCodec(FirestoreMessageCodec()),
   );
 
+  /// The name of the channel over which persisted query snapshots are read.
+  ///
+  /// Native replies with the persisted snapshot exactly as it was encoded by
+  /// the [FirestoreMessageCodec], rather than as the result of a method call.
+  static const String persistedSnapshotsChannelName =
+      'plugins.flutter.io/firebase_firestore/persisted_snapshots';
+
   /// A map containing all the pending Query Observers, keyed by their id.
   /// This is shared amongst all [MethodChannelQuery] objects, and the `QuerySnapshot`
   /// `MethodCall` handler initialized in the constructor of this class.
   static final Map<int, StreamController<QuerySnapshotPlatform>>
       queryObservers = <int, StreamController<QuerySnapshotPlatform>>{};
 
+  /// A map containing the most recent snapshot of each Query Observer
+  /// listening with `changesOnly` enabled, keyed by their id.
+  ///
+  /// Native only sends the document changes after the first snapshot for these
+  /// listeners, which are applied to the snapshot stored here.
+  static final Map<int, QuerySnapshotPlatform> lastQuerySnapshots =
+      <int, QuerySnapshotPlatform>{};
+
   /// A map containing all the pending Document Observers, keyed by their id.
   /// This is shared amongst all [MethodChannelDocumentReference] objects, and the
   /// `DocumentSnapshot` `MethodCall` handler initialized in the constructor of this class.
   static final Map<int, StreamController<DocumentSnapshotPlatform>>
       documentObservers = <int, StreamController<DocumentSnapshotPlatform>>{};
 
+  /// A map containing the [StreamController] of each pending bulk write,
+  /// keyed by their id.
+  static final Map<int, StreamController<BulkWriteChunk>> bulkWriteObservers =
+      <int, StreamController<BulkWriteChunk>>{};
+
   /// A map containing all observes for the [snapshotsInSync] method.
   static final Map<int, StreamController<void>> snapshotInSyncObservers =
       <int, StreamController<void>>{};
@@ -236,6 +329,14 @@ class MethodChannelFirebaseFirestore extends FirebaseFirestorePlatform {
     }).catchError(catchPlatformException);
   }
 
+  @override
+  Future<void> clearPersistedQuerySnapshots() async {
+    await channel.invokeMethod<void>(
+        'Firestore#clearPersistedQuerySnapshots', <String, dynamic>{
+      'firestore': this,
+    }).catchError(catchPlatformException);
+  }
+
   @override
   Future<void> enablePersistence() async {
     throw UnimplementedError(
@@ -305,9 +406,11 @@ class MethodChannelFirebaseFirestore extends FirebaseFirestorePlatform {
   Future<T> runTransaction<T>(
     TransactionHandler<T> transactionHandler, {
     Duration timeout = const Duration(seconds: 30),
+    List<String> prefetch = const <String>[],
   }) async {
     assert(timeout.inMilliseconds > 0,
         'Transaction timeout must be more than 0 milliseconds');
+    assert(prefetch != null);
 
     final int transactionId = _transactionHandlerId++;
     StreamController streamController = StreamController();
@@ -330,7 +433,8 @@ class MethodChannelFirebaseFirestore extends FirebaseFirestorePlatform {
     await channel.invokeMethod<T>('Transaction#create', <String, dynamic>{
       'firestore': this,
       'transactionId': transactionId,
-      'timeout': timeout.inMilliseconds
+      'timeout': timeout.inMilliseconds,
+      'prefetch': prefetch.map(doc).toList(),
     }).catchError((Object e) {
       exception = e;
     });
@@ -374,4 +478,78 @@ class MethodChannelFirebaseFirestore extends FirebaseFirestorePlatform {
       'firestore': this,
     }).catchError(catchPlatformException);
   }
+
+  @override
+  Future<List<DocumentGetResultPlatform>> getAll(
+      List<DocumentReferencePlatform> references,
+      {GetOptions options = const GetOptions(),
+      int maxConcurrency = 10}) async {
+    assert(maxConcurrency != null && maxConcurrency > 0,
+        'maxConcurrency must be a positive number greater than 0');
+
+    if (references.isEmpty) {
+      return <DocumentGetResultPlatform>[];
+    }
+
+    final Map<String, dynamic> data =
+        await channel.invokeMapMethod<String, dynamic>(
+      'Firestore#getAll',
+      <String, dynamic>{
+        'firestore': this,
+        'references': references,
+        'source': getSourceString(options.source),
+        'maxConcurrency': maxConcurrency,
+      },
+    ).catchError(catchPlatformException);
+
+    final List<dynamic> snapshots = data['snapshots'];
+    final List<dynamic> errors = data['errors'];
+
+    return List<DocumentGetResultPlatform>.generate(references.length,
+        (int index) {
+      final DocumentReferencePlatform reference = references[index];
+
+      if (errors[index] != null) {
+        final Map<String, dynamic> errorMap =
+            Map<String, dynamic>.from(errors[index]);
+        return DocumentGetResultPlatform(
+          reference,
+          error: FirebaseException(
+            plugin: 'cloud_firestore',
+            code: errorMap['code'] ?? 'unknown',
+            message: errorMap['message'],
+          ),
+        );
+      }
+
+      return DocumentGetResultPlatform(
+        reference,
+        snapshot: DocumentSnapshotPlatform(this, reference.path,
+            Map<String, dynamic>.from(snapshots[index])),
+      );
+    });
+  }
+
+  @override
+  Future<void> setMetricsEnabled(bool enabled) async {
+    assert(enabled != null);
+    await channel.invokeMethod<void>(
+      'Firestore#setMetricsEnabled',
+      <String, dynamic>{'enabled': enabled},
+    ).catchError(catchPlatformException);
+  }
+
+  @override
+  Future<Map<String, dynamic>> getMetrics() async {
+    final Map<dynamic, dynamic> metrics = await channel
+        .invokeMapMethod<dynamic, dynamic>('Firestore#getMetrics')
+        .catchError(catchPlatformException);
+    return _toStringKeyedMap(metrics);
+  }
+
+  // Metrics are nested maps, whose keys are all strings.
+  static Map<String, dynamic> _toStringKeyedMap(Map<dynamic, dynamic> map) {
+    return map.map((dynamic key, dynamic value) => MapEntry<String, dynamic>(
+        key, value is Map ? _toStringKeyedMap(value) : value));
+  }
 }
@@ -6,9 +6,12 @@ import 'dart:async';
 
 import 'package:cloud_firestore_platform_interface/cloud_firestore_platform_interface.dart';
 import 'package:cloud_firestore_platform_interface/src/internal/pointer.dart';
+import 'package:flutter/services.dart';
 
 import 'method_channel_firestore.dart';
+import 'method_channel_query_cursor.dart';
 import 'method_channel_query_snapshot.dart';
+import 'utils/firestore_message_codec.dart';
 import 'utils/source.dart';
 import 'utils/exception.dart';
 
@@ -96,11 +99,55 @@ class MethodChannelQuery extends QueryPlatform {
         'query': this,
         'firestore': firestore,
         'source': getSourceString(options.source),
+        'lazy': options.lazy,
+        'persistKey': options.persistKey,
+        'select': parameters['select'],
       },
     ).catchError(catchPlatformException);
     return MethodChannelQuerySnapshot(firestore, data);
   }
 
+  @override
+  Future<QuerySnapshotPlatform> getPersisted(String key) async {
+    const FirestoreMessageCodec codec = FirestoreMessageCodec();
+
+    // Platforms which do not persist snapshots have no handler, so their
+    // reply is empty as well.
+    final ByteData reply =
+        await ServicesBinding.instance.defaultBinaryMessenger.send(
+      MethodChannelFirebaseFirestore.persistedSnapshotsChannelName,
+      codec.encodeMessage(<String, dynamic>{
+        'appName': firestore.app.name,
+        'key': key,
+      }),
+    );
+
+    if (reply == null) {
+      return null;
+    }
+
+    return MethodChannelQuerySnapshot(
+        firestore, Map<String, dynamic>.from(codec.decodeMessage(reply)));
+  }
+
+  @override
+  QueryCursorPlatform cursor([GetOptions options]) {
+    if (parameters['limitToLast'] != null) {
+      throw StateError(
+          'A query cursor pages from the start of the results, so its query cannot use limitToLast().');
+    }
+    return MethodChannelQueryCursor(this, options ?? const GetOptions());
+  }
+
+  @override
+  QueryPlatform select(List<FieldPath> fields) {
+    // Sent as the components of each path, which native uses to nest the
+    // selected fields as they are in the document.
+    return _copyWithParameters(<String, dynamic>{
+      'select': fields.map((FieldPath field) => field.components).toList(),
+    });
+  }
+
   @override
   QueryPlatform limit(int limit) {
     return _copyWithParameters(<String, dynamic>{
@@ -120,8 +167,12 @@ class MethodChannelQuery extends QueryPlatform {
   @override
   Stream<QuerySnapshotPlatform> snapshots({
     bool includeMetadataChanges = false,
+    bool changesOnly = false,
+    Duration throttleInterval = Duration.zero,
   }) {
     assert(includeMetadataChanges != null);
+    assert(changesOnly != null);
+    assert(throttleInterval != null && !throttleInterval.isNegative);
     int handle = MethodChannelFirebaseFirestore.nextMethodChannelHandleId;
 
     // It's fine to let the StreamController be garbage collected once all the
@@ -130,6 +181,9 @@ class MethodChannelQuery extends QueryPlatform {
     controller = StreamController<QuerySnapshotPlatform>.broadcast(
       onListen: () {
         MethodChannelFirebaseFirestore.queryObservers[handle] = controller;
+        if (changesOnly) {
+          MethodChannelFirebaseFirestore.lastQuerySnapshots[handle] = null;
+        }
         MethodChannelFirebaseFirestore.channel.invokeMethod<void>(
           'Query#addSnapshotListener',
           <String, dynamic>{
@@ -137,11 +191,15 @@ class MethodChannelQuery extends QueryPlatform {
             'handle': handle,
             'firestore': firestore,
             'includeMetadataChanges': includeMetadataChanges,
+            'changesOnly': changesOnly,
+            'throttleIntervalMillis': throttleInterval.inMilliseconds,
+            'select': parameters['select'],
           },
         );
       },
       onCancel: () {
         MethodChannelFirebaseFirestore.queryObservers.remove(handle);
+        MethodChannelFirebaseFirestore.lastQuerySnapshots.remove(handle);
         MethodChannelFirebaseFirestore.channel.invokeMethod<void>(
           'Firestore#removeListener',
           <String, dynamic>{'handle': handle},
@@ -0,0 +1,100 @@
+// Copyright 2020, the Chromium project authors.  Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+import 'dart:async';
+
+import 'package:cloud_firestore_platform_interface/cloud_firestore_platform_interface.dart';
+
+import 'method_channel_firestore.dart';
+import 'method_channel_query.dart';
+import 'method_channel_query_snapshot.dart';
+import 'utils/exception.dart';
+import 'utils/source.dart';
+
+/// An implementation of [QueryCursorPlatform] that uses [MethodChannel] to
+/// communicate with Firebase plugins.
+///
+/// The query and the last document of each page are kept on the native side,
+/// so only the page size is sent for each page. Once the limit of the query
+/// has been reached, native returns no page and an empty one is returned.
+class MethodChannelQueryCursor extends QueryCursorPlatform {
+  /// Create a [MethodChannelQueryCursor] for the given [query].
+  MethodChannelQueryCursor(this._query, this._options) : super();
+
+  final MethodChannelQuery _query;
+
+  final GetOptions _options;
+
+  final int _handle = MethodChannelFirebaseFirestore.nextMethodChannelHandleId;
+
+  static const Map<String, dynamic> _emptyPage = <String, dynamic>{
+    'paths': <String>[],
+    'documents': <dynamic>[],
+    'metadatas': <dynamic>[],
+    'documentChanges': <dynamic>[],
+    'metadata': <String, dynamic>{
+      'hasPendingWrites': false,
+      'isFromCache': false,
+    },
+  };
+
+  /// Completes once the native cursor has been created, which happens when
+  /// the first page is requested.
+  Future<void> _created;
+
+  bool _closed = false;
+
+  @override
+  Future<QuerySnapshotPlatform> next(int pageSize) async {
+    assert(pageSize != null && pageSize > 0,
+        'pageSize must be a positive number greater than 0');
+
+    if (_closed) {
+      throw StateError('This cursor has been closed.');
+    }
+
+    _created ??= MethodChannelFirebaseFirestore.channel
+        .invokeMethod<void>('Query#createCursor', <String, dynamic>{
+      'handle': _handle,
+      'query': _query,
+      'firestore': _query.firestore,
+      'source': getSourceString(_options.source),
+      'select': _query.parameters['select'],
+      'limit': _query.parameters['limit'],
+      'limitToLast': _query.parameters['limitToLast'],
+    }).catchError(catchPlatformException);
+
+    await _created;
+
+    final Map<String, dynamic> data = await MethodChannelFirebaseFirestore
+        .channel
+        .invokeMapMethod<String, dynamic>(
+      'QueryCursor#next',
+      <String, dynamic>{
+        'handle': _handle,
+        'pageSize': pageSize,
+      },
+    ).catchError(catchPlatformException);
+
+    return MethodChannelQuerySnapshot(_query.firestore, data ?? _emptyPage);
+  }
+
+  @override
+  Future<void> close() async {
+    if (_closed) {
+      return;
+    }
+
+    _closed = true;
+
+    if (_created == null) {
+      return;
+    }
+
+    await MethodChannelFirebaseFirestore.channel.invokeMethod<void>(
+      'QueryCursor#dispose',
+      <String, dynamic>{'handle': _handle},
+    );
+  }
+}
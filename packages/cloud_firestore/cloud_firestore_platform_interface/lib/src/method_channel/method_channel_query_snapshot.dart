@@ -4,6 +4,8 @@
 import 'package:cloud_firestore_platform_interface/cloud_firestore_platform_interface.dart';
 
 import 'method_channel_document_change.dart';
+import 'method_channel_firestore.dart';
+import 'utils/exception.dart';
 
 /// An implementation of [QuerySnapshotPlatform] that uses [MethodChannel] to
 /// communicate with Firebase plugins.
@@ -11,14 +13,18 @@ class MethodChannelQuerySnapshot extends QuerySnapshotPlatform {
   /// Creates a [MethodChannelQuerySnapshot] from the given [data]
   MethodChannelQuerySnapshot(
       FirebaseFirestorePlatform firestore, Map<dynamic, dynamic> data)
-      : super(
-            List<DocumentSnapshotPlatform>.generate(data['documents'].length,
+      : _handle = data['handle'],
+        super(
+            List<DocumentSnapshotPlatform>.generate(data['paths'].length,
                 (int index) {
               return DocumentSnapshotPlatform(
                 firestore,
                 data['paths'][index],
                 <String, dynamic>{
-                  'data': Map<String, dynamic>.from(data['documents'][index]),
+                  // Lazy snapshots are sent without any documents.
+                  'data': data['documents'] == null
+                      ? null
+                      : Map<String, dynamic>.from(data['documents'][index]),
                   'metadata': <String, dynamic>{
                     'isFromCache': data['metadatas'][index]['isFromCache'],
                     'hasPendingWrites': data['metadatas'][index]
@@ -38,4 +44,101 @@ class MethodChannelQuerySnapshot extends QuerySnapshotPlatform {
               data['metadata']['hasPendingWrites'],
               data['metadata']['isFromCache'],
             ));
+
+  MethodChannelQuerySnapshot._(
+    List<DocumentSnapshotPlatform> docs,
+    List<DocumentChangePlatform> docChanges,
+    SnapshotMetadataPlatform metadata,
+  )   : _handle = null,
+        super(docs, docChanges, metadata);
+
+  /// The handle of the native snapshot retaining the document data of a lazy
+  /// snapshot, or `null` if the data was sent along with the snapshot.
+  final int _handle;
+
+  @override
+  bool get isLazy => _handle != null;
+
+  @override
+  Future<List<Map<String, dynamic>>> getData(List<int> indexes,
+      {List<FieldPath> fields}) async {
+    if (_handle == null) {
+      return super.getData(indexes, fields: fields);
+    }
+
+    final List<dynamic> data = await MethodChannelFirebaseFirestore.channel
+        .invokeListMethod<dynamic>(
+      'QuerySnapshot#getData',
+      <String, dynamic>{
+        'handle': _handle,
+        'indexes': indexes,
+        'fields': fields
+            ?.map((FieldPath fieldPath) => fieldPath.components)
+            ?.toList(),
+      },
+    ).catchError(catchPlatformException);
+
+    return data
+        .map((dynamic documentData) => documentData == null
+            ? null
+            : Map<String, dynamic>.from(documentData))
+        .toList();
+  }
+
+  @override
+  Future<void> release() async {
+    if (_handle == null) {
+      return;
+    }
+
+    await MethodChannelFirebaseFirestore.channel.invokeMethod<void>(
+      'QuerySnapshot#release',
+      <String, dynamic>{'handle': _handle},
+    );
+  }
+
+  /// Creates a [MethodChannelQuerySnapshot] by applying the document changes
+  /// in [data] to the documents of the [previous] snapshot.
+  ///
+  /// Changes are applied in order, as their indexes assume all prior changes
+  /// have already been applied.
+  factory MethodChannelQuerySnapshot.fromChanges(
+      FirebaseFirestorePlatform firestore,
+      QuerySnapshotPlatform previous,
+      Map<dynamic, dynamic> data) {
+    final List<DocumentSnapshotPlatform> docs =
+        List<DocumentSnapshotPlatform>.from(previous.docs);
+    final List<DocumentChangePlatform> docChanges =
+        List<DocumentChangePlatform>.generate(data['documentChanges'].length,
+            (int index) {
+      return MethodChannelDocumentChange(
+        firestore,
+        Map<String, dynamic>.from(data['documentChanges'][index]),
+      );
+    });
+
+    for (final DocumentChangePlatform change in docChanges) {
+      switch (change.type) {
+        case DocumentChangeType.added:
+          docs.insert(change.newIndex, change.document);
+          break;
+        case DocumentChangeType.modified:
+          docs.removeAt(change.oldIndex);
+          docs.insert(change.newIndex, change.document);
+          break;
+        case DocumentChangeType.removed:
+          docs.removeAt(change.oldIndex);
+          break;
+      }
+    }
+
+    return MethodChannelQuerySnapshot._(
+      docs,
+      docChanges,
+      SnapshotMetadataPlatform(
+        data['metadata']['hasPendingWrites'],
+        data['metadata']['isFromCache'],
+      ),
+    );
+  }
 }
@@ -19,15 +19,30 @@ class MethodChannelTransaction extends TransactionPlatform {
   FirebaseFirestorePlatform _firestore;
 
   /// Constructor.
-  MethodChannelTransaction(int transactionId, this.appName)
+  ///
+  /// The [prefetched] snapshots are the documents read by native before the
+  /// transaction attempt, which are served by [get] and [getAll] without a
+  /// further round trip.
+  MethodChannelTransaction(int transactionId, this.appName,
+      {List<dynamic> prefetched})
       : _transactionId = transactionId,
         super() {
     _firestore =
         FirebaseFirestorePlatform.instanceFor(app: Firebase.app(appName));
+
+    if (prefetched != null) {
+      for (dynamic snapshot in prefetched) {
+        Map<String, dynamic> snapshotMap = Map<String, dynamic>.from(snapshot);
+        _prefetchedSnapshots[snapshotMap['path']] = snapshotMap;
+      }
+    }
   }
 
   List<Map<String, dynamic>> _commands = [];
 
+  /// The prefetched document snapshots, keyed by their path.
+  Map<String, Map<String, dynamic>> _prefetchedSnapshots = {};
+
   /// Returns all transaction commands for the current instance.
   @override
   List<Map<String, dynamic>> get commands {
@@ -42,6 +57,14 @@ class MethodChannelTransaction extends TransactionPlatform {
     assert(_commands.isEmpty,
         "Transactions require all reads to be executed before all writes.");
 
+    if (_prefetchedSnapshots.containsKey(documentPath)) {
+      return DocumentSnapshotPlatform(
+        _firestore,
+        documentPath,
+        _prefetchedSnapshots[documentPath],
+      );
+    }
+
     final Map<String, dynamic> result = await MethodChannelFirebaseFirestore
         .channel
         .invokeMapMethod<String, dynamic>('Transaction#get', <String, dynamic>{
@@ -57,6 +80,55 @@ class MethodChannelTransaction extends TransactionPlatform {
     );
   }
 
+  /// Reads the documents referenced by the provided [documentPaths] in a
+  /// single call, skipping any which were prefetched.
+  ///
+  /// Platforms which do not implement `Transaction#getAll`, currently all but
+  /// Android, read the documents with one `Transaction#get` call each instead.
+  ///
+  /// Requires all reads to be executed before all writes, otherwise an [AssertionError] will be thrown
+  @override
+  Future<List<DocumentSnapshotPlatform>> getAll(
+      List<String> documentPaths) async {
+    assert(_commands.isEmpty,
+        "Transactions require all reads to be executed before all writes.");
+
+    final List<String> missingPaths = documentPaths
+        .where((path) => !_prefetchedSnapshots.containsKey(path))
+        .toSet()
+        .toList();
+
+    final Map<String, Map<String, dynamic>> snapshots =
+        Map<String, Map<String, dynamic>>.from(_prefetchedSnapshots);
+
+    if (missingPaths.isNotEmpty) {
+      try {
+        final List<dynamic> results = await MethodChannelFirebaseFirestore
+            .channel
+            .invokeListMethod<dynamic>('Transaction#getAll', <String, dynamic>{
+          'firestore': _firestore,
+          'transactionId': _transactionId,
+          'references': missingPaths.map(_firestore.doc).toList(),
+        });
+
+        for (int i = 0; i < missingPaths.length; i++) {
+          snapshots[missingPaths[i]] = Map<String, dynamic>.from(results[i]);
+        }
+      } on MissingPluginException {
+        final List<DocumentSnapshotPlatform> documentSnapshots = [];
+        for (final String path in documentPaths) {
+          documentSnapshots.add(await get(path));
+        }
+        return documentSnapshots;
+      }
+    }
+
+    return documentPaths
+        .map((path) =>
+            DocumentSnapshotPlatform(_firestore, path, snapshots[path]))
+        .toList();
+  }
+
   @override
   MethodChannelTransaction delete(String documentPath) {
     _commands.add(<String, String>{
@@ -5,6 +5,7 @@
 import 'dart:async';
 
 import 'package:cloud_firestore_platform_interface/cloud_firestore_platform_interface.dart';
+import 'package:flutter/services.dart';
 
 import 'method_channel_firestore.dart';
 import 'utils/exception.dart';
@@ -48,6 +49,40 @@ class MethodChannelWriteBatch extends WriteBatchPlatform {
     }).catchError(catchPlatformException);
   }
 
+  @override
+  Stream<BulkWriteChunk> commitInChunks({int maxConcurrency = 4}) {
+    assert(maxConcurrency != null && maxConcurrency > 0,
+        'maxConcurrency must be a positive number');
+    _assertNotCommitted();
+    _committed = true;
+
+    if (_writes.isEmpty) {
+      return Stream<BulkWriteChunk>.empty();
+    }
+
+    int handle = MethodChannelFirebaseFirestore.nextMethodChannelHandleId;
+    StreamController<BulkWriteChunk> controller =
+        StreamController<BulkWriteChunk>();
+    MethodChannelFirebaseFirestore.bulkWriteObservers[handle] = controller;
+
+    MethodChannelFirebaseFirestore.channel
+        .invokeMethod<void>('WriteBatch#bulkCommit', <String, dynamic>{
+      'firestore': _firestore,
+      'writes': _writes,
+      'handle': handle,
+      'maxConcurrency': maxConcurrency,
+    }).catchError((Object error) {
+      controller.addError(error is PlatformException
+          ? platformExceptionToFirebaseException(error)
+          : error);
+    }).whenComplete(() {
+      MethodChannelFirebaseFirestore.bulkWriteObservers.remove(handle);
+      controller.close();
+    });
+
+    return controller.stream;
+  }
+
   @override
   void delete(String documentPath) {
     _assertNotCommitted();
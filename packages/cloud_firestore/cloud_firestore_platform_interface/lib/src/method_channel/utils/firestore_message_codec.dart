@@ -2,6 +2,8 @@
 // for details. All rights reserved. Use of this source code is governed by a
 // BSD-style license that can be found in the LICENSE file.
 
+import 'dart:convert';
+
 import 'package:cloud_firestore_platform_interface/cloud_firestore_platform_interface.dart';
 import 'package:firebase_core/firebase_core.dart';
 import 'package:flutter/foundation.dart';
@@ -37,6 +39,16 @@ class FirestoreMessageCodec extends StandardMessageCodec {
   static const int _kFirestoreInstance = 144;
   static const int _kFirestoreQuery = 145;
   static const int _kFirestoreSettings = 146;
+  static const int _kFieldKeyDefinition = 147;
+  static const int _kFieldKey = 148;
+
+  /// The document field names defined by the message being decoded, indexed
+  /// by their id.
+  ///
+  /// Native assigns ids from 0 for each snapshot and defines every id before
+  /// referring to it, so entries left over from a previous message are always
+  /// redefined before they are read.
+  static final List<String> _fieldKeys = <String>[];
 
   static const Map<FieldValueType, int> _kFieldValueCodes =
       <FieldValueType, int>{
@@ -137,6 +149,18 @@ class FirestoreMessageCodec extends StandardMessageCodec {
         return Blob(bytes);
       case _kDocumentId:
         return FieldPath.documentId;
+      case _kFieldKeyDefinition:
+        final int id = readSize(buffer);
+        final int length = readSize(buffer);
+        final String key = utf8.decoder.convert(buffer.getUint8List(length));
+        if (id == _fieldKeys.length) {
+          _fieldKeys.add(key);
+        } else {
+          _fieldKeys[id] = key;
+        }
+        return key;
+      case _kFieldKey:
+        return _fieldKeys[readSize(buffer)];
       case _kNaN:
         return double.nan;
       case _kInfinity:
@@ -0,0 +1,29 @@
+// Copyright 2020, the Chromium project authors.  Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+import 'package:cloud_firestore_platform_interface/cloud_firestore_platform_interface.dart';
+import 'package:firebase_core/firebase_core.dart';
+
+/// The outcome of getting a single document of a
+/// [FirebaseFirestorePlatform.getAll] call.
+///
+/// Each document is fetched independently, so either its [snapshot] or the
+/// [error] which prevented it from being fetched is set.
+class DocumentGetResultPlatform {
+  /// Creates a [DocumentGetResultPlatform] instance.
+  const DocumentGetResultPlatform(this.reference, {this.snapshot, this.error});
+
+  /// The reference of the document.
+  final DocumentReferencePlatform reference;
+
+  /// The snapshot of the document, or `null` if it could not be fetched.
+  final DocumentSnapshotPlatform snapshot;
+
+  /// The error which prevented the document from being fetched, or `null` if
+  /// it was fetched.
+  final FirebaseException error;
+
+  /// Whether the document was fetched.
+  bool get isSuccessful => error == null;
+}
@@ -69,8 +69,13 @@ abstract class DocumentReferencePlatform extends PlatformInterface {
   }
 
   /// Notifies of documents at this location
-  Stream<DocumentSnapshotPlatform> snapshots(
-      {bool includeMetadataChanges = false}) {
+  ///
+  /// A non-zero [throttleInterval] limits the stream to at most one snapshot
+  /// per interval, skipping all but the latest snapshot.
+  Stream<DocumentSnapshotPlatform> snapshots({
+    bool includeMetadataChanges = false,
+    Duration throttleInterval = Duration.zero,
+  }) {
     throw UnimplementedError("snapshots() is not implemented");
   }
 
@@ -76,6 +76,13 @@ abstract class FirebaseFirestorePlatform extends PlatformInterface {
     throw UnimplementedError('clearPersistence() is not implemented');
   }
 
+  /// Deletes every query snapshot persisted for the current instance with
+  /// [GetOptions.persistKey].
+  Future<void> clearPersistedQuerySnapshots() {
+    throw UnimplementedError(
+        'clearPersistedQuerySnapshots() is not implemented');
+  }
+
   /// Enable persistence of Firestore data. Web only.
   Future<void> enablePersistence() async {
     throw UnimplementedError('enablePersistence() is not implemented');
@@ -137,8 +144,13 @@ abstract class FirebaseFirestorePlatform extends PlatformInterface {
   ///
   /// By default transactions are limited to 5 seconds of execution time. This
   /// timeout can be adjusted by setting the [timeout] parameter.
+  ///
+  /// The documents referenced by the [prefetch] paths are read before each
+  /// attempt, allowing implementations to serve them to the [TransactionHandler]
+  /// without further round trips.
   Future<T> runTransaction<T>(TransactionHandler<T> transactionHandler,
-      {Duration timeout = const Duration(seconds: 30)}) {
+      {Duration timeout = const Duration(seconds: 30),
+      List<String> prefetch = const <String>[]}) {
     throw UnimplementedError('runTransaction() is not implemented');
   }
 
@@ -186,6 +198,35 @@ abstract class FirebaseFirestorePlatform extends PlatformInterface {
     throw UnimplementedError('waitForPendingWrites() is not implemented');
   }
 
+  /// Gets the documents of the given [references] in a single call.
+  ///
+  /// At most [maxConcurrency] documents are fetched at the same time. Each
+  /// document is fetched independently, so the result of every document
+  /// holds either its snapshot or the error which prevented it from being
+  /// fetched, in the order of [references].
+  Future<List<DocumentGetResultPlatform>> getAll(
+      List<DocumentReferencePlatform> references,
+      {GetOptions options = const GetOptions(),
+      int maxConcurrency = 10}) {
+    throw UnimplementedError('getAll() is not implemented');
+  }
+
+  /// Enables or disables the recording of metrics about the plugin itself,
+  /// such as method call latencies and the size of encoded snapshots.
+  ///
+  /// Metrics are shared by all instances. Disabling them discards everything
+  /// recorded so far.
+  Future<void> setMetricsEnabled(bool enabled) {
+    throw UnimplementedError('setMetricsEnabled() is not implemented');
+  }
+
+  /// Returns the metrics recorded since they were enabled with
+  /// [setMetricsEnabled], along with counters which are always kept, such as
+  /// the number of active listeners.
+  Future<Map<String, dynamic>> getMetrics() {
+    throw UnimplementedError('getMetrics() is not implemented');
+  }
+
   @override
   bool operator ==(dynamic o) =>
       o is FirebaseFirestorePlatform && o.app.name == app.name;
@@ -116,6 +116,18 @@ abstract class QueryPlatform extends PlatformInterface {
     throw UnimplementedError("get() is not implemented");
   }
 
+  /// Reads the query snapshot which was persisted under [key] by a previous
+  /// call to [get] with [GetOptions.persistKey], or `null` if there is none.
+  Future<QuerySnapshotPlatform> getPersisted(String key) {
+    throw UnimplementedError("getPersisted() is not implemented");
+  }
+
+  /// Creates a [QueryCursorPlatform] which fetches the documents matching the
+  /// query one page at a time.
+  QueryCursorPlatform cursor([GetOptions options]) {
+    throw UnimplementedError("cursor() is not implemented");
+  }
+
   /// Creates and returns a new Query that's additionally limited to only return up
   /// to the specified number of documents.
   QueryPlatform limit(int limit) {
@@ -130,9 +142,27 @@ abstract class QueryPlatform extends PlatformInterface {
     throw UnimplementedError("limitToLast() is not implemented");
   }
 
+  /// Creates and returns a new [QueryPlatform] whose snapshots only contain
+  /// the data of the given [fields] of each document.
+  ///
+  /// Implementations which cannot limit the data they transfer may return
+  /// the data of every field.
+  QueryPlatform select(List<FieldPath> fields) {
+    throw UnimplementedError("select() is not implemented");
+  }
+
   /// Notifies of query results at this location
+  ///
+  /// If [changesOnly] is `true`, implementations may transfer only the changed
+  /// documents after the first snapshot and rebuild each [QuerySnapshotPlatform]
+  /// from the previous one.
+  ///
+  /// A non-zero [throttleInterval] limits the stream to at most one snapshot
+  /// per interval, combining the document changes of any skipped snapshots.
   Stream<QuerySnapshotPlatform> snapshots({
     bool includeMetadataChanges = false,
+    bool changesOnly = false,
+    Duration throttleInterval = Duration.zero,
   }) {
     throw UnimplementedError("snapshots() is not implemented");
   }
@@ -0,0 +1,41 @@
+// Copyright 2020, the Chromium project authors.  Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+import 'dart:async';
+
+import 'package:cloud_firestore_platform_interface/cloud_firestore_platform_interface.dart';
+import 'package:plugin_platform_interface/plugin_platform_interface.dart';
+
+/// A cursor over the results of a [QueryPlatform], which fetches them one page
+/// at a time.
+///
+/// Each page continues after the last document of the previous page.
+abstract class QueryCursorPlatform extends PlatformInterface {
+  /// Create a [QueryCursorPlatform] instance
+  QueryCursorPlatform() : super(token: _token);
+
+  static final Object _token = Object();
+
+  /// Throws an [AssertionError] if [instance] does not extend
+  /// [QueryCursorPlatform].
+  ///
+  /// This is used by the app-facing [QueryCursor] to ensure that
+  /// the object in which it's going to delegate calls has been
+  /// constructed properly.
+  static verifyExtends(QueryCursorPlatform instance) {
+    PlatformInterface.verifyToken(instance, _token);
+  }
+
+  /// Fetches the next page of at most [pageSize] documents.
+  Future<QuerySnapshotPlatform> next(int pageSize) {
+    throw UnimplementedError("next() is not implemented");
+  }
+
+  /// Releases the resources held by this cursor.
+  ///
+  /// No further pages can be fetched once the cursor has been closed.
+  Future<void> close() {
+    throw UnimplementedError("close() is not implemented");
+  }
+}
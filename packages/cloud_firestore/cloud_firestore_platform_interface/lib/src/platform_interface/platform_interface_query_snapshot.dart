@@ -43,4 +43,63 @@ class QuerySnapshotPlatform extends PlatformInterface {
 
   /// The number of documents in this [QuerySnapshotPlatform].
   int get size => docs.length;
+
+  /// Whether the [docs] of this snapshot were sent without their data, which
+  /// has to be fetched with [getData]. See [GetOptions.lazy].
+  bool get isLazy => false;
+
+  /// Fetches the data of the documents at the given [indexes] of [docs].
+  ///
+  /// If [fields] is given, only the data of those fields is returned. Fields
+  /// which do not exist in a document are omitted from its data.
+  ///
+  /// Returns the data the [docs] already hold, unless overridden to fetch the
+  /// data of a lazy snapshot.
+  Future<List<Map<String, dynamic>>> getData(List<int> indexes,
+      {List<FieldPath> fields}) async {
+    return indexes.map((int index) {
+      final Map<String, dynamic> data = docs[index].data();
+      return data == null || fields == null
+          ? data
+          : _selectFields(data, fields);
+    }).toList();
+  }
+
+  // Returns the given fields of [data], nested as they are in [data]. Fields
+  // which do not exist are omitted.
+  static Map<String, dynamic> _selectFields(
+      Map<String, dynamic> data, List<FieldPath> fields) {
+    final Map<String, dynamic> selected = <String, dynamic>{};
+
+    for (final FieldPath fieldPath in fields) {
+      final List<String> components = fieldPath.components;
+      dynamic value = data;
+      bool exists = true;
+      for (final String component in components) {
+        if (value is Map && value.containsKey(component)) {
+          value = value[component];
+        } else {
+          exists = false;
+          break;
+        }
+      }
+      if (!exists) continue;
+
+      Map<String, dynamic> parent = selected;
+      for (final String component
+          in components.sublist(0, components.length - 1)) {
+        if (parent[component] is! Map<String, dynamic>) {
+          parent[component] = <String, dynamic>{};
+        }
+        parent = parent[component];
+      }
+      parent[components.last] = value;
+    }
+
+    return selected;
+  }
+
+  /// Releases the document data retained for a lazy snapshot, after which
+  /// [getData] can no longer be called.
+  Future<void> release() async {}
 }
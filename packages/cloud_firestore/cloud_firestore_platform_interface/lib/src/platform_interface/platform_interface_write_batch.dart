@@ -36,6 +36,19 @@ abstract class WriteBatchPlatform extends PlatformInterface {
     throw UnimplementedError("commit() is not implemented");
   }
 
+  /// Commits all of the writes in this write batch in chunks of at most 500
+  /// writes, committing at most [maxConcurrency] chunks at once.
+  ///
+  /// Unlike [commit], the writes are not applied as a single atomic unit: each
+  /// chunk is committed atomically, and a failed chunk does not prevent the
+  /// others from being committed. A [BulkWriteChunk] is emitted as each chunk
+  /// completes, and the stream closes once every chunk has completed.
+  ///
+  /// Calling this method prevents any future operations from being added.
+  Stream<BulkWriteChunk> commitInChunks({int maxConcurrency = 4}) {
+    throw UnimplementedError("commitInChunks() is not implemented");
+  }
+
   /// Deletes the document referred to by a [documentPath].
   void delete(String documentPath) {
     throw UnimplementedError("delete() is not implemented");
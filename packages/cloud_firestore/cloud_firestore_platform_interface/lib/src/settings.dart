@@ -11,7 +11,8 @@ class Settings {
       {this.persistenceEnabled,
       this.host,
       this.sslEnabled,
-      this.cacheSizeBytes});
+      this.cacheSizeBytes,
+      this.keyDictionaryEnabled});
 
   /// Constant used to indicate the LRU garbage collection should be disabled.
   ///
@@ -39,13 +40,22 @@ class Settings {
   /// and can be set to [Settings.CACHE_SIZE_UNLIMITED] to disable garbage collection.
   final int cacheSizeBytes;
 
+  /// Whether document field names should be sent from native only once per
+  /// snapshot, with repeated occurrences referring back to the first one.
+  ///
+  /// This reduces the size of snapshots whose documents share the same fields,
+  /// such as most query results. It is currently only supported on Android,
+  /// and has no effect on other platforms.
+  final bool keyDictionaryEnabled;
+
   /// Returns the settings as a [Map]
   Map<String, dynamic> get asMap {
     return {
       'persistenceEnabled': persistenceEnabled,
       'host': host,
       'sslEnabled': sslEnabled,
-      'cacheSizeBytes': cacheSizeBytes
+      'cacheSizeBytes': cacheSizeBytes,
+      'keyDictionaryEnabled': keyDictionaryEnabled,
     };
   }
 
@@ -14,5 +14,18 @@ void main() {
     test('provides a default source if none provided', () {
       expect(GetOptions().source, equals(Source.serverAndCache));
     });
+
+    test('is not lazy by default', () {
+      expect(GetOptions().lazy, isFalse);
+    });
+
+    test('is not persisted by default', () {
+      expect(GetOptions().persistKey, isNull);
+    });
+
+    test('throws if a lazy snapshot is persisted', () {
+      expect(() => GetOptions(lazy: true, persistKey: 'feed'),
+          throwsAssertionError);
+    });
   });
 }
@@ -64,12 +64,40 @@ void main() {
         case 'Firestore#enableNetwork':
         case 'Firestore#disableNetwork':
         case 'Firestore#clearPersistence':
+        case 'Firestore#setMetricsEnabled':
           if (mockExceptionThrown) {
             throw Exception();
           } else if (mockPlatformExceptionThrown) {
             throw PlatformException(code: 'UNKNOWN');
           }
           return Future.delayed(Duration.zero);
+        case 'Firestore#getAll':
+          return <dynamic, dynamic>{
+            'snapshots': <dynamic>[
+              <dynamic, dynamic>{
+                'data': kMockDocumentSnapshotData,
+                'metadata': <dynamic, dynamic>{
+                  'hasPendingWrites': false,
+                  'isFromCache': false,
+                },
+              },
+              null,
+            ],
+            'errors': <dynamic>[
+              null,
+              <dynamic, dynamic>{
+                'code': 'permission-denied',
+                'message': 'Missing or insufficient permissions.',
+              },
+            ],
+          };
+        case 'Firestore#getMetrics':
+          return <dynamic, dynamic>{
+            'listeners': 2,
+            'methodLatencyMicros': <dynamic, dynamic>{
+              'Query#get': <dynamic, dynamic>{'count': 1, 'p50': 480},
+            },
+          };
         default:
           return null;
       }
@@ -312,7 +340,8 @@ void main() {
           isMethodCall('Transaction#create', arguments: <String, dynamic>{
             'firestore': firestore,
             'transactionId': handleId,
-            'timeout': 3000
+            'timeout': 3000,
+            'prefetch': [],
           }),
         ]);
       });
@@ -401,5 +430,75 @@ void main() {
             throwsA(isInstanceOf<FirebaseException>()));
       });
     });
+
+    group('setMetricsEnabled()', () {
+      test('invoke Firestore#setMetricsEnabled with correct args', () async {
+        await firestore.setMetricsEnabled(true);
+
+        expect(
+          log,
+          equals(<Matcher>[
+            isMethodCall(
+              'Firestore#setMetricsEnabled',
+              arguments: <String, dynamic>{'enabled': true},
+            ),
+          ]),
+        );
+      });
+
+      test('catch [PlatformException] error', () {
+        mockPlatformExceptionThrown = true;
+
+        expect(() => firestore.setMetricsEnabled(true),
+            throwsA(isInstanceOf<FirebaseException>()));
+      });
+    });
+
+    group('getAll()', () {
+      test('returns the result of each document', () async {
+        List<DocumentGetResultPlatform> results = await firestore.getAll(
+            [firestore.doc('foo/allowed'), firestore.doc('foo/denied')],
+            maxConcurrency: 4);
+
+        expect(log.single.method, equals('Firestore#getAll'));
+        expect(log.single.arguments['source'], equals('default'));
+        expect(log.single.arguments['maxConcurrency'], equals(4));
+        expect(log.single.arguments['references'], hasLength(2));
+
+        expect(results, hasLength(2));
+        expect(results[0].isSuccessful, isTrue);
+        expect(results[0].reference.path, equals('foo/allowed'));
+        expect(results[0].snapshot.data(), equals(kMockDocumentSnapshotData));
+        expect(results[1].isSuccessful, isFalse);
+        expect(results[1].reference.path, equals('foo/denied'));
+        expect(results[1].snapshot, isNull);
+        expect(results[1].error.code, equals('permission-denied'));
+      });
+
+      test('does not invoke the channel without references', () async {
+        List<DocumentGetResultPlatform> results = await firestore.getAll([]);
+
+        expect(results, isEmpty);
+        expect(log, isEmpty);
+      });
+    });
+
+    group('getMetrics()', () {
+      test('returns the metrics with string keys', () async {
+        Map<String, dynamic> metrics = await firestore.getMetrics();
+
+        expect(
+          log,
+          equals(<Matcher>[
+            isMethodCall('Firestore#getMetrics', arguments: null),
+          ]),
+        );
+        expect(metrics['listeners'], equals(2));
+        expect(
+            metrics['methodLatencyMicros']['Query#get']['p50'], equals(480));
+        expect(metrics['methodLatencyMicros'],
+            isInstanceOf<Map<String, dynamic>>());
+      });
+    });
   });
 }
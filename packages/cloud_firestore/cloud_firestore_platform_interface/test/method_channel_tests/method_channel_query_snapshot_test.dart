@@ -0,0 +1,202 @@
+// Copyright 2020, the Chromium project authors.  Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+import 'package:cloud_firestore_platform_interface/cloud_firestore_platform_interface.dart';
+import 'package:firebase_core/firebase_core.dart';
+import 'package:flutter/services.dart';
+import 'package:flutter_test/flutter_test.dart';
+import 'package:cloud_firestore_platform_interface/src/method_channel/method_channel_query_snapshot.dart';
+
+import '../utils/test_common.dart';
+
+Map<String, dynamic> _change(String type, String path, int oldIndex,
+    int newIndex, Map<String, dynamic> data) {
+  return <String, dynamic>{
+    'type': 'DocumentChangeType.$type',
+    'path': path,
+    'oldIndex': oldIndex,
+    'newIndex': newIndex,
+    'data': data,
+    'metadata': kMockSnapshotMetadata,
+  };
+}
+
+void main() {
+  initializeMethodChannel();
+
+  group('$MethodChannelQuerySnapshot', () {
+    FirebaseFirestorePlatform firestore;
+    QuerySnapshotPlatform initial;
+
+    setUpAll(() async {
+      await Firebase.initializeApp(
+        name: 'testApp',
+        options: const FirebaseOptions(
+          appId: '1:1234567890:ios:42424242424242',
+          apiKey: '123',
+          projectId: '123',
+          messagingSenderId: '1234567890',
+        ),
+      );
+      firestore = FirebaseFirestorePlatform.instance;
+
+      initial = MethodChannelQuerySnapshot(firestore, <String, dynamic>{
+        'paths': <String>['foo/a', 'foo/b', 'foo/c'],
+        'documents': <dynamic>[
+          <String, dynamic>{'v': 'a'},
+          <String, dynamic>{'v': 'b'},
+          <String, dynamic>{'v': 'c'},
+        ],
+        'metadatas': <dynamic>[
+          kMockSnapshotMetadata,
+          kMockSnapshotMetadata,
+          kMockSnapshotMetadata,
+        ],
+        'documentChanges': <dynamic>[],
+        'metadata': kMockSnapshotMetadata,
+      });
+    });
+
+    group('fromChanges()', () {
+      test('applies added, modified and removed changes in order', () {
+        QuerySnapshotPlatform snapshot =
+            MethodChannelQuerySnapshot.fromChanges(
+                firestore, initial, <String, dynamic>{
+          'documentChanges': <dynamic>[
+            _change('removed', 'foo/a', 0, -1, <String, dynamic>{'v': 'a'}),
+            _change('modified', 'foo/c', 1, 0, <String, dynamic>{'v': 'c2'}),
+            _change('added', 'foo/d', -1, 2, <String, dynamic>{'v': 'd'}),
+          ],
+          'metadata': <String, dynamic>{
+            'hasPendingWrites': true,
+            'isFromCache': false,
+          },
+        });
+
+        expect(snapshot.docs.map((doc) => doc.id), equals(['c', 'b', 'd']));
+        expect(snapshot.docs[0].data(), equals(<String, dynamic>{'v': 'c2'}));
+        expect(snapshot.docChanges.length, equals(3));
+        expect(snapshot.metadata.hasPendingWrites, isTrue);
+      });
+
+      test('does not modify the previous snapshot', () {
+        MethodChannelQuerySnapshot.fromChanges(
+            firestore, initial, <String, dynamic>{
+          'documentChanges': <dynamic>[
+            _change('removed', 'foo/a', 0, -1, <String, dynamic>{'v': 'a'}),
+          ],
+          'metadata': kMockSnapshotMetadata,
+        });
+
+        expect(initial.docs.map((doc) => doc.id), equals(['a', 'b', 'c']));
+      });
+    });
+
+    group('lazy snapshots', () {
+      final List<MethodCall> log = <MethodCall>[];
+      QuerySnapshotPlatform lazy;
+
+      setUp(() {
+        log.clear();
+        handleMethodCall((MethodCall call) async {
+          log.add(call);
+          if (call.method == 'QuerySnapshot#getData') {
+            return <dynamic>[
+              <String, dynamic>{'v': 'b'}
+            ];
+          }
+          return null;
+        });
+
+        lazy = MethodChannelQuerySnapshot(firestore, <String, dynamic>{
+          'paths': <String>['foo/a', 'foo/b'],
+          'handle': 7,
+          'metadatas': <dynamic>[kMockSnapshotMetadata, kMockSnapshotMetadata],
+          'documentChanges': <dynamic>[
+            _change('added', 'foo/a', -1, 0, null),
+            _change('added', 'foo/b', -1, 1, null),
+          ],
+          'metadata': kMockSnapshotMetadata,
+        });
+      });
+
+      test('have documents without data', () {
+        expect(lazy.isLazy, isTrue);
+        expect(lazy.docs.map((doc) => doc.id), equals(['a', 'b']));
+        expect(lazy.docs[0].data(), isNull);
+        expect(lazy.docChanges[1].document.data(), isNull);
+      });
+
+      test('getData() fetches the data of the given documents and fields',
+          () async {
+        List<Map<String, dynamic>> data = await lazy.getData(<int>[1],
+            fields: <FieldPath>[
+              FieldPath(<String>['v'])
+            ]);
+
+        expect(data, equals([<String, dynamic>{'v': 'b'}]));
+        expect(log, <Matcher>[
+          isMethodCall('QuerySnapshot#getData', arguments: <String, dynamic>{
+            'handle': 7,
+            'indexes': <int>[1],
+            'fields': <List<String>>[
+              <String>['v']
+            ],
+          }),
+        ]);
+      });
+
+      test('release() releases the native snapshot', () async {
+        await lazy.release();
+
+        expect(log, <Matcher>[
+          isMethodCall('QuerySnapshot#release',
+              arguments: <String, dynamic>{'handle': 7}),
+        ]);
+      });
+
+      test('getData() of a snapshot which is not lazy does not call native',
+          () async {
+        expect(initial.isLazy, isFalse);
+        expect(await initial.getData(<int>[2]),
+            equals([<String, dynamic>{'v': 'c'}]));
+        await initial.release();
+        expect(log, isEmpty);
+      });
+
+      test('getData() of a snapshot which is not lazy selects the given fields',
+          () async {
+        QuerySnapshotPlatform snapshot =
+            MethodChannelQuerySnapshot(firestore, <String, dynamic>{
+          'paths': <String>['foo/a'],
+          'documents': <dynamic>[
+            <String, dynamic>{
+              'v': 'a',
+              'w': 'b',
+              'nested': <String, dynamic>{'x': 1, 'y': 2},
+            },
+          ],
+          'metadatas': <dynamic>[kMockSnapshotMetadata],
+          'documentChanges': <dynamic>[],
+          'metadata': kMockSnapshotMetadata,
+        });
+
+        expect(
+            await snapshot.getData(<int>[0], fields: <FieldPath>[
+              FieldPath(<String>['v']),
+              FieldPath(<String>['nested', 'y']),
+              FieldPath(<String>['missing']),
+              FieldPath(<String>['v', 'missing']),
+            ]),
+            equals([
+              <String, dynamic>{
+                'v': 'a',
+                'nested': <String, dynamic>{'y': 2},
+              }
+            ]));
+        expect(log, isEmpty);
+      });
+    });
+  });
+}
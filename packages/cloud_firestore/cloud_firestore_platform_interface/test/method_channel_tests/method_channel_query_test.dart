@@ -10,6 +10,7 @@ import 'package:flutter_test/flutter_test.dart';
 import 'package:flutter/services.dart';
 import 'package:cloud_firestore_platform_interface/src/method_channel/method_channel_firestore.dart';
 import 'package:cloud_firestore_platform_interface/src/method_channel/method_channel_query.dart';
+import 'package:cloud_firestore_platform_interface/src/method_channel/utils/firestore_message_codec.dart';
 
 import '../utils/test_common.dart';
 
@@ -116,6 +117,22 @@ void main() {
       expect(q.parameters['orderBy'], equals(['foo']));
       expect(q.parameters['endBefore'], equals(fields));
     });
+    test("select()", () {
+      MethodChannelQuery q = query.select(<FieldPath>[
+        FieldPath(<String>['foo']),
+        FieldPath(<String>['bar', 'baz']),
+      ]);
+
+      expect(q, isNot(same(query)));
+      expect(query.parameters['select'], isNull);
+      expect(
+          q.parameters['select'],
+          equals(<List<String>>[
+            <String>['foo'],
+            <String>['bar', 'baz'],
+          ]));
+    });
+
     group("get()", () {
       setUp(() async {
         MethodChannelFirebaseFirestore.channel
@@ -128,6 +145,16 @@ void main() {
                     code: 'ERROR', details: {'code': 'UNKNOWN_PATH'});
               }
 
+              if (methodCall.arguments['lazy']) {
+                return <String, dynamic>{
+                  'paths': <String>["${query.path}/0"],
+                  'handle': 1,
+                  'metadatas': <Map<String, dynamic>>[kMockSnapshotMetadata],
+                  'metadata': kMockSnapshotMetadata,
+                  'documentChanges': <dynamic>[],
+                };
+              }
+
               return <String, dynamic>{
                 'paths': <String>["${query.path}/0"],
                 'documents': <dynamic>[kMockDocumentSnapshotDocument],
@@ -154,6 +181,15 @@ void main() {
         QuerySnapshotPlatform snapshot = await query.get(getOptions);
         expect(snapshot, isA<QuerySnapshotPlatform>());
         expect(snapshot.docs.length, 1);
+        expect(snapshot.isLazy, isFalse);
+      });
+
+      test("returns a lazy [QuerySnapshotPlatform] instance", () async {
+        QuerySnapshotPlatform snapshot =
+            await query.get(const GetOptions(lazy: true));
+        expect(snapshot.isLazy, isTrue);
+        expect(snapshot.docs.length, 1);
+        expect(snapshot.docs[0].data(), isNull);
       });
 
       test("throws a [FirebaseException]", () async {
@@ -176,6 +212,123 @@ void main() {
       });
     });
 
+    group("getPersisted()", () {
+      const FirestoreMessageCodec codec = FirestoreMessageCodec();
+      Map<String, dynamic> request;
+
+      setUp(() {
+        request = null;
+        ServicesBinding.instance.defaultBinaryMessenger.setMockMessageHandler(
+            MethodChannelFirebaseFirestore.persistedSnapshotsChannelName,
+            (ByteData message) async {
+          request = Map<String, dynamic>.from(codec.decodeMessage(message));
+          if (request['key'] != 'feed') {
+            return null;
+          }
+
+          return codec.encodeMessage(<String, dynamic>{
+            'paths': <String>['foo/0'],
+            'documents': <dynamic>[kMockSnapshotData],
+            'metadatas': <Map<String, dynamic>>[kMockSnapshotMetadata],
+            'metadata': kMockSnapshotMetadata,
+            'documentChanges': <dynamic>[],
+          });
+        });
+      });
+
+      tearDown(() {
+        ServicesBinding.instance.defaultBinaryMessenger.setMockMessageHandler(
+            MethodChannelFirebaseFirestore.persistedSnapshotsChannelName,
+            null);
+      });
+
+      test("returns the persisted snapshot", () async {
+        QuerySnapshotPlatform snapshot = await query.getPersisted('feed');
+
+        expect(request['key'], equals('feed'));
+        expect(request['appName'], equals(query.firestore.app.name));
+        expect(snapshot.docs.length, 1);
+        expect(snapshot.docs[0].data(), equals(kMockSnapshotData));
+      });
+
+      test("returns null if nothing was persisted", () async {
+        expect(await query.getPersisted('unknown'), isNull);
+      });
+    });
+
+    group("cursor()", () {
+      final List<MethodCall> log = <MethodCall>[];
+      bool limitReached;
+      setUp(() {
+        log.clear();
+        limitReached = false;
+        handleMethodCall((MethodCall call) async {
+          log.add(call);
+          if (call.method == 'QueryCursor#next' && !limitReached) {
+            return <String, dynamic>{
+              'paths': <String>['foo/0'],
+              'documents': <dynamic>[kMockSnapshotData],
+              'metadatas': <Map<String, dynamic>>[kMockSnapshotMetadata],
+              'metadata': kMockSnapshotMetadata,
+              'documentChanges': <dynamic>[],
+            };
+          }
+          return null;
+        });
+      });
+
+      test("creates the native cursor once and fetches each page", () async {
+        QueryCursorPlatform cursor =
+            query.cursor(const GetOptions(source: Source.server));
+
+        QuerySnapshotPlatform snapshot = await cursor.next(1);
+        expect(snapshot.docs.length, 1);
+        await cursor.next(2);
+
+        expect(log.map((call) => call.method).toList(), <String>[
+          'Query#createCursor',
+          'QueryCursor#next',
+          'QueryCursor#next',
+        ]);
+        expect(log[0].arguments['source'], equals('server'));
+        expect(log[1].arguments['handle'], equals(log[0].arguments['handle']));
+        expect(log[2].arguments['pageSize'], equals(2));
+      });
+
+      test("close() disposes of the native cursor", () async {
+        QueryCursorPlatform cursor = query.cursor();
+        await cursor.next(1);
+        await cursor.close();
+
+        expect(log.last.method, equals('QueryCursor#dispose'));
+        expect(() => cursor.next(1), throwsStateError);
+      });
+
+      test("close() does not call native if no page was fetched", () async {
+        await query.cursor().close();
+        expect(log, isEmpty);
+      });
+
+      test("sends the limit of the query", () async {
+        await query.limit(3).cursor().next(2);
+
+        expect(log[0].arguments['limit'], equals(3));
+        expect(log[0].arguments['limitToLast'], isNull);
+      });
+
+      test("returns an empty page once the limit has been reached", () async {
+        limitReached = true;
+        QuerySnapshotPlatform snapshot = await query.limit(3).cursor().next(2);
+
+        expect(snapshot.docs, isEmpty);
+        expect(snapshot.docChanges, isEmpty);
+      });
+
+      test("throws for a query using limitToLast", () {
+        expect(() => query.limitToLast(3).cursor(), throwsStateError);
+      });
+    });
+
     test("limit()", () {
       MethodChannelQuery q = query.limit(1);
 
@@ -237,6 +390,9 @@ void main() {
           'handle': handleId,
           'firestore': isInstanceOf<FirebaseFirestorePlatform>(),
           'includeMetadataChanges': false,
+          'changesOnly': false,
+          'throttleIntervalMillis': 0,
+          'select': null,
         });
         expect(log[1].arguments, <String, dynamic>{'handle': handleId});
       });
@@ -253,6 +409,15 @@ void main() {
       expect(() => query.snapshots(includeMetadataChanges: null),
           throwsAssertionError);
     });
+    test('should throw if changesOnly is null', () {
+      expect(() => query.snapshots(changesOnly: null), throwsAssertionError);
+    });
+    test('should throw if throttleInterval is negative', () {
+      expect(
+          () => query.snapshots(
+              throttleInterval: const Duration(milliseconds: -1)),
+          throwsAssertionError);
+    });
 
     test("startAfterDocument()", () {
       List<List<dynamic>> orders = List.from([
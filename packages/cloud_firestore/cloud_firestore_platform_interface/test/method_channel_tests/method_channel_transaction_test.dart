@@ -4,6 +4,7 @@
 
 import 'package:cloud_firestore_platform_interface/cloud_firestore_platform_interface.dart';
 import 'package:firebase_core/firebase_core.dart';
+import 'package:flutter/services.dart';
 import 'package:flutter_test/flutter_test.dart';
 import 'package:mockito/mockito.dart';
 
@@ -27,6 +28,31 @@ void main() {
 
   bool isMethodCalled = false;
 
+  dynamic handleTransactionCall(MethodCall call) {
+    switch (call.method) {
+      case 'Transaction#getAll':
+        isMethodCalled = true;
+        return (call.arguments['references'] as List)
+            .map((reference) => <String, dynamic>{
+                  'path': reference.path,
+                  'data': <String, dynamic>{'key1': 'val1'},
+                  'metadata': kMockSnapshotMetadata,
+                })
+            .toList();
+        break;
+      case 'Transaction#get':
+        isMethodCalled = true;
+        return <String, dynamic>{
+          'path': 'foo/bar',
+          'data': <String, dynamic>{'key1': 'val1'},
+          'metadata': kMockSnapshotMetadata,
+        };
+        break;
+      default:
+        return null;
+    }
+  }
+
   group('$MethodChannelTransaction', () {
     setUpAll(() async {
       await Firebase.initializeApp(
@@ -38,20 +64,7 @@ void main() {
           messagingSenderId: '1234567890',
         ),
       );
-      handleMethodCall((call) {
-        switch (call.method) {
-          case 'Transaction#get':
-            isMethodCalled = true;
-            return <String, dynamic>{
-              'path': 'foo/bar',
-              'data': <String, dynamic>{'key1': 'val1'},
-              'metadata': kMockSnapshotMetadata,
-            };
-            break;
-          default:
-            return null;
-        }
-      });
+      handleMethodCall(handleTransactionCall);
     });
     TransactionPlatform transaction;
     final mockDocumentReference = MockDocumentReference();
@@ -89,6 +102,75 @@ void main() {
       });
     });
 
+    group('getAll()', () {
+      test('should throw if getAll is called after a command', () async {
+        transaction.set(mockDocumentReference.path, {'foo': 'bar'});
+        expect(() => transaction.getAll([mockDocumentReference.path]),
+            throwsAssertionError);
+      });
+
+      test('returns a [DocumentSnapshotPlatform] for each path in order',
+          () async {
+        List<DocumentSnapshotPlatform> result =
+            await transaction.getAll(['foo/bar', 'foo/baz']);
+        expect(isMethodCalled, isTrue,
+            reason: "Transaction.getAll was not called");
+        expect(result.map((snapshot) => snapshot.reference.path),
+            equals(['foo/bar', 'foo/baz']));
+        expect(result[1].data(), equals(<String, dynamic>{'key1': 'val1'}));
+      });
+
+      test('reads each document with get() where getAll is not implemented',
+          () async {
+        final List<String> paths = [];
+        handleMethodCall((call) {
+          if (call.method == 'Transaction#getAll') {
+            throw MissingPluginException();
+          }
+          paths.add(call.arguments['reference'].path);
+          return handleTransactionCall(call);
+        });
+        addTearDown(() => handleMethodCall(handleTransactionCall));
+
+        List<DocumentSnapshotPlatform> result =
+            await transaction.getAll(['foo/bar', 'foo/baz']);
+        expect(paths, equals(['foo/bar', 'foo/baz']));
+        expect(result.map((snapshot) => snapshot.reference.path),
+            equals(['foo/bar', 'foo/baz']));
+        expect(result[1].data(), equals(<String, dynamic>{'key1': 'val1'}));
+      });
+    });
+
+    group('prefetched', () {
+      setUp(() {
+        transaction = MethodChannelTransaction(
+            _kTransactionId, FirebaseFirestorePlatform.instance.app.name,
+            prefetched: [
+              <String, dynamic>{
+                'path': 'foo/bar',
+                'data': <String, dynamic>{'key2': 'val2'},
+                'metadata': kMockSnapshotMetadata,
+              }
+            ]);
+      });
+
+      test('get() returns a prefetched document without a method call',
+          () async {
+        DocumentSnapshotPlatform result = await transaction.get('foo/bar');
+        expect(isMethodCalled, isFalse);
+        expect(result.data(), equals(<String, dynamic>{'key2': 'val2'}));
+      });
+
+      test('getAll() only reads documents which were not prefetched',
+          () async {
+        List<DocumentSnapshotPlatform> result =
+            await transaction.getAll(['foo/bar', 'foo/baz']);
+        expect(isMethodCalled, isTrue);
+        expect(result[0].data(), equals(<String, dynamic>{'key2': 'val2'}));
+        expect(result[1].data(), equals(<String, dynamic>{'key1': 'val1'}));
+      });
+    });
+
     test("delete()", () {
       transaction.delete(mockDocumentReference.path);
 
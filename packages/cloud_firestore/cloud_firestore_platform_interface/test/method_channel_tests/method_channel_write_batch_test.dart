@@ -25,6 +25,7 @@ void main() {
       log.add(call);
       switch (call.method) {
         case 'WriteBatch#commit':
+        case 'WriteBatch#bulkCommit':
           if (mockExceptionThrown) {
             throw Exception();
           } else if (mockPlatformExceptionThrown) {
@@ -129,6 +130,60 @@ void main() {
       });
     });
 
+    group('commitInChunks()', () {
+      test('throw [StateError] if batch has already been commited', () async {
+        final MethodChannelWriteBatch batch = firestore.batch();
+        await batch.commit();
+
+        expect(() => batch.commitInChunks(), throwsStateError);
+      });
+
+      test('throws if maxConcurrency is not positive', () {
+        final MethodChannelWriteBatch batch = firestore.batch();
+        expect(() => batch.commitInChunks(maxConcurrency: 0),
+            throwsAssertionError);
+      });
+
+      test('returns an empty stream if writes is empty', () async {
+        final MethodChannelWriteBatch batch = firestore.batch();
+        expect(await batch.commitInChunks().toList(), isEmpty);
+        expect(log.length, 0);
+      });
+
+      test('invokes native method WriteBatch#bulkCommit', () async {
+        final MethodChannelWriteBatch batch = firestore.batch();
+        batch.delete('foo/bar');
+        await batch.commitInChunks(maxConcurrency: 2).toList();
+        expect(
+          log,
+          <Matcher>[
+            isMethodCall(
+              'WriteBatch#bulkCommit',
+              arguments: <String, dynamic>{
+                'firestore': firestore,
+                'writes': [
+                  <String, dynamic>{'path': 'foo/bar', 'type': 'DELETE'}
+                ],
+                'handle': anything,
+                'maxConcurrency': 2,
+              },
+            ),
+          ],
+        );
+      });
+
+      test(
+          'catches [PlatformException] from WriteBatch#bulkCommit and emits a [FirebaseException]',
+          () async {
+        final MethodChannelWriteBatch batch = firestore.batch();
+        batch.delete('foo/bar');
+        mockPlatformExceptionThrown = true;
+
+        await expectLater(batch.commitInChunks(),
+            emitsError(isA<FirebaseException>()));
+      });
+    });
+
     group('set()', () {
       test('invokes native method WriteBatch#commit with no merge ', () async {
         final MethodChannelWriteBatch batch = firestore.batch();
@@ -98,6 +98,46 @@ void main() {
     test('encode and decode FieldPath', () {
       _checkEncodeDecode<dynamic>(codec, FieldPath.documentId);
     });
+
+    test('decode field keys from a key dictionary', () {
+      const StandardMessageCodec standardCodec = StandardMessageCodec();
+      final WriteBuffer buffer = WriteBuffer();
+
+      void writeFieldKeyDefinition(int id, String key) {
+        buffer.putUint8(147);
+        standardCodec.writeSize(buffer, id);
+        standardCodec.writeSize(buffer, key.length);
+        buffer.putUint8List(Uint8List.fromList(key.codeUnits));
+      }
+
+      void writeFieldKey(int id) {
+        buffer.putUint8(148);
+        standardCodec.writeSize(buffer, id);
+      }
+
+      // [{'name': 'foo', 'age': 1}, {'age': 2, 'name': 'bar'}]
+      buffer.putUint8(12);
+      standardCodec.writeSize(buffer, 2);
+      buffer.putUint8(13);
+      standardCodec.writeSize(buffer, 2);
+      writeFieldKeyDefinition(0, 'name');
+      standardCodec.writeValue(buffer, 'foo');
+      writeFieldKeyDefinition(1, 'age');
+      standardCodec.writeValue(buffer, 1);
+      buffer.putUint8(13);
+      standardCodec.writeSize(buffer, 2);
+      writeFieldKey(1);
+      standardCodec.writeValue(buffer, 2);
+      writeFieldKey(0);
+      standardCodec.writeValue(buffer, 'bar');
+
+      expect(
+          codec.decodeMessage(buffer.done()),
+          equals(<dynamic>[
+            <dynamic, dynamic>{'name': 'foo', 'age': 1},
+            <dynamic, dynamic>{'age': 2, 'name': 'bar'},
+          ]));
+    });
   });
 }
 
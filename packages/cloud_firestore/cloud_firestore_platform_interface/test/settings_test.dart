@@ -28,7 +28,8 @@ void main() {
         'persistenceEnabled': null,
         'host': null,
         'sslEnabled': null,
-        'cacheSizeBytes': null
+        'cacheSizeBytes': null,
+        'keyDictionaryEnabled': null,
       });
 
       expect(
@@ -37,12 +38,14 @@ void main() {
             host: 'foo bar',
             sslEnabled: true,
             cacheSizeBytes: Settings.CACHE_SIZE_UNLIMITED,
+            keyDictionaryEnabled: true,
           ).asMap,
           <String, dynamic>{
             'persistenceEnabled': true,
             'host': 'foo bar',
             'sslEnabled': true,
             'cacheSizeBytes': Settings.CACHE_SIZE_UNLIMITED,
+            'keyDictionaryEnabled': true,
           });
     });
 
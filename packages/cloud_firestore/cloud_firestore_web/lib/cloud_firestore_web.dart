@@ -87,7 +87,8 @@ class FirebaseFirestoreWeb extends FirebaseFirestorePlatform {
 
   @override
   Future<T> runTransaction<T>(TransactionHandler transactionHandler,
-      {Duration timeout = const Duration(seconds: 30)}) async {
+      {Duration timeout = const Duration(seconds: 30),
+      List<String> prefetch = const <String>[]}) async {
     try {
       dynamic result = await _webFirestore.runTransaction((transaction) async {
         return transactionHandler(
@@ -101,6 +102,27 @@ class FirebaseFirestoreWeb extends FirebaseFirestorePlatform {
     }
   }
 
+  @override
+  Future<List<DocumentGetResultPlatform>> getAll(
+      List<DocumentReferencePlatform> references,
+      {GetOptions options = const GetOptions(),
+      int maxConcurrency = 10}) {
+    // The JS SDK multiplexes every read over a single connection, so the
+    // documents are all requested at once and [maxConcurrency] is ignored.
+    return Future.wait(references.map((reference) async {
+      try {
+        return DocumentGetResultPlatform(reference,
+            snapshot: await reference.get(options));
+      } on FirebaseException catch (e) {
+        return DocumentGetResultPlatform(reference, error: e);
+      }
+    }));
+  }
+
+  /// Query snapshots are not persisted on web, so there is nothing to clear.
+  @override
+  Future<void> clearPersistedQuerySnapshots() async {}
+
   @override
   set settings(Settings settings) {
     int cacheSizeBytes;
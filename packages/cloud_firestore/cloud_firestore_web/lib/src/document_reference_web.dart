@@ -71,6 +71,7 @@ class DocumentReferenceWeb extends DocumentReferencePlatform {
   @override
   Stream<DocumentSnapshotPlatform> snapshots({
     bool includeMetadataChanges = false,
+    Duration throttleInterval = Duration.zero,
   }) {
     Stream<web.DocumentSnapshot> querySnapshots = _delegate.onSnapshot;
     if (includeMetadataChanges) {
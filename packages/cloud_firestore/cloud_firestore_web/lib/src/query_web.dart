@@ -130,6 +130,21 @@ class QueryWeb extends QueryPlatform {
     }
   }
 
+  /// Query snapshots are not persisted on web, so there is never one to read.
+  @override
+  Future<QuerySnapshotPlatform> getPersisted(String key) async {
+    return null;
+  }
+
+  /// The web SDK cannot limit the fields of the documents it returns, so the
+  /// selected fields are recorded but every field is returned.
+  @override
+  QueryPlatform select(List<FieldPath> fields) {
+    return _copyWithParameters(<String, dynamic>{
+      'select': fields.map((FieldPath field) => field.components).toList(),
+    });
+  }
+
   @override
   QueryPlatform limit(int limit) {
     return _copyWithParameters(<String, dynamic>{
@@ -150,6 +165,8 @@ class QueryWeb extends QueryPlatform {
   @override
   Stream<QuerySnapshotPlatform> snapshots({
     bool includeMetadataChanges = false,
+    bool changesOnly = false,
+    Duration throttleInterval = Duration.zero,
   }) {
     Stream<web.QuerySnapshot> querySnapshots;
     if (includeMetadataChanges) {
@@ -3,15 +3,17 @@
 // found in the LICENSE file.
 package io.flutter.plugins.firebase.core;
 
-import static io.flutter.plugins.firebase.core.FlutterFirebasePlugin.cachedThreadPool;
+import static io.flutter.plugins.firebase.core.FlutterFirebaseExecutors.getSharedExecutor;
 
 import android.content.Context;
+import android.util.Log;
 import androidx.annotation.NonNull;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
+import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.PluginRegistry;
@@ -27,6 +29,8 @@ import java.util.Objects;
  * <p>Instantiate this in an add to app scenario to gracefully handle activity and context changes.
  */
 public class FlutterFirebaseCorePlugin implements FlutterPlugin, MethodChannel.MethodCallHandler {
+  private static final String TAG = "FLTFirebaseCore";
+
   private static final String KEY_API_KEY = "apiKey";
   private static final String KEY_APP_NAME = "appName";
   private static final String KEY_APP_ID = "appId";
@@ -41,12 +45,16 @@ public class FlutterFirebaseCorePlugin implements FlutterPlugin, MethodChannel.M
   private static final String KEY_IS_AUTOMATIC_DATA_COLLECTION_ENABLED =
       "isAutomaticDataCollectionEnabled";
   private static final String KEY_PLUGIN_CONSTANTS = "pluginConstants";
+  private static final String KEY_LAZY_PLUGIN_CONSTANTS = "lazyPluginConstants";
+  private static final String KEY_PLUGIN_NAME = "pluginName";
 
   private static final String CHANNEL_NAME = "plugins.flutter.io/firebase_core";
 
   private MethodChannel channel;
+  private BinaryMessenger messenger;
   private Context applicationContext;
   private boolean coreInitialized = false;
+  private volatile FlutterFirebaseStartupTrace lastInitializeCoreTrace;
 
   /**
    * Default Constructor.
@@ -56,7 +64,8 @@ public class FlutterFirebaseCorePlugin implements FlutterPlugin, MethodChannel.M
    */
   public FlutterFirebaseCorePlugin() {}
 
-  private FlutterFirebaseCorePlugin(Context applicationContext) {
+  private FlutterFirebaseCorePlugin(BinaryMessenger messenger, Context applicationContext) {
+    this.messenger = messenger;
     this.applicationContext = applicationContext;
   }
 
@@ -70,26 +79,47 @@ public class FlutterFirebaseCorePlugin implements FlutterPlugin, MethodChannel.M
   @SuppressWarnings("unused")
   public static void registerWith(PluginRegistry.Registrar registrar) {
     final MethodChannel channel = new MethodChannel(registrar.messenger(), CHANNEL_NAME);
-    channel.setMethodCallHandler(new FlutterFirebaseCorePlugin(registrar.context()));
+    channel.setMethodCallHandler(
+        new FlutterFirebaseCorePlugin(registrar.messenger(), registrar.context()));
   }
 
   @Override
   public void onAttachedToEngine(FlutterPluginBinding binding) {
     applicationContext = binding.getApplicationContext();
-    channel = new MethodChannel(binding.getBinaryMessenger(), CHANNEL_NAME);
+    messenger = binding.getBinaryMessenger();
+    channel = new MethodChannel(messenger, CHANNEL_NAME);
     channel.setMethodCallHandler(this);
   }
 
   @Override
   public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
     channel.setMethodCallHandler(null);
+    FlutterFirebasePluginRegistry.unregisterEngine(messenger);
+    messenger = null;
     applicationContext = null;
   }
 
-  private Task<Map<String, Object>> firebaseAppToMap(FirebaseApp firebaseApp) {
-    return Tasks.call(
-        cachedThreadPool,
-        () -> {
+  private static boolean isLazyPluginConstants(Map<String, Object> arguments) {
+    return arguments != null && Boolean.TRUE.equals(arguments.get(KEY_LAZY_PLUGIN_CONSTANTS));
+  }
+
+  // When the constants of plugins are lazy, only the options of the app are returned and each
+  // plugin resolves its constants on first use through Firebase#getPluginConstants.
+  private static Task<Map<String, Object>> firebaseAppToMap(
+      BinaryMessenger messenger,
+      FirebaseApp firebaseApp,
+      FlutterFirebaseStartupTrace trace,
+      boolean lazyPluginConstants) {
+    Task<Map<String, Object>> pluginConstantsTask =
+        lazyPluginConstants
+            ? Tasks.forResult(null)
+            : FlutterFirebasePluginRegistry.getPluginConstantsForFirebaseApp(
+                messenger, firebaseApp, trace);
+
+    return pluginConstantsTask.onSuccessTask(
+        getSharedExecutor(),
+        pluginConstants -> {
+          long startNanos = System.nanoTime();
           Map<String, Object> appMap = new HashMap<>();
           Map<String, String> optionsMap = new HashMap<>();
           FirebaseOptions options = firebaseApp.getOptions();
@@ -123,65 +153,131 @@ public class FlutterFirebaseCorePlugin implements FlutterPlugin, MethodChannel.M
           appMap.put(
               KEY_IS_AUTOMATIC_DATA_COLLECTION_ENABLED,
               firebaseApp.isDataCollectionDefaultEnabled());
-          appMap.put(
-              KEY_PLUGIN_CONSTANTS,
-              Tasks.await(
-                  FlutterFirebasePluginRegistry.getPluginConstantsForFirebaseApp(firebaseApp)));
+          if (pluginConstants != null) {
+            appMap.put(KEY_PLUGIN_CONSTANTS, pluginConstants);
+          }
 
-          return appMap;
+          trace.record(
+              FlutterFirebaseStartupTrace.PHASE_OPTIONS,
+              firebaseApp.getName(),
+              null,
+              startNanos);
+          return Tasks.forResult(appMap);
         });
   }
 
   private Task<Map<String, Object>> initializeApp(Map<String, Object> arguments) {
+    FlutterFirebaseStartupTrace trace = new FlutterFirebaseStartupTrace("Firebase#initializeApp");
+    BinaryMessenger messenger = this.messenger;
+
     return Tasks.call(
-        cachedThreadPool,
-        () -> {
-          String name = (String) Objects.requireNonNull(arguments.get(KEY_APP_NAME));
-
-          @SuppressWarnings("unchecked")
-          Map<String, String> optionsMap =
-              (Map<String, String>) Objects.requireNonNull(arguments.get(KEY_OPTIONS));
-
-          FirebaseOptions options =
-              new FirebaseOptions.Builder()
-                  .setApiKey(Objects.requireNonNull(optionsMap.get(KEY_API_KEY)))
-                  .setApplicationId(Objects.requireNonNull(optionsMap.get(KEY_APP_ID)))
-                  .setDatabaseUrl(optionsMap.get(KEY_DATABASE_URL))
-                  .setGcmSenderId(optionsMap.get(KEY_MESSAGING_SENDER_ID))
-                  .setProjectId(optionsMap.get(KEY_PROJECT_ID))
-                  .setStorageBucket(optionsMap.get(KEY_STORAGE_BUCKET))
-                  .setGaTrackingId(optionsMap.get(KEY_TRACKING_ID))
-                  .build();
-
-          FirebaseApp firebaseApp = FirebaseApp.initializeApp(applicationContext, options, name);
-          return Tasks.await(firebaseAppToMap(firebaseApp));
-        });
+            getSharedExecutor(),
+            () -> {
+              String name = (String) Objects.requireNonNull(arguments.get(KEY_APP_NAME));
+
+              @SuppressWarnings("unchecked")
+              Map<String, String> optionsMap =
+                  (Map<String, String>) Objects.requireNonNull(arguments.get(KEY_OPTIONS));
+
+              FirebaseOptions options =
+                  new FirebaseOptions.Builder()
+                      .setApiKey(Objects.requireNonNull(optionsMap.get(KEY_API_KEY)))
+                      .setApplicationId(Objects.requireNonNull(optionsMap.get(KEY_APP_ID)))
+                      .setDatabaseUrl(optionsMap.get(KEY_DATABASE_URL))
+                      .setGcmSenderId(optionsMap.get(KEY_MESSAGING_SENDER_ID))
+                      .setProjectId(optionsMap.get(KEY_PROJECT_ID))
+                      .setStorageBucket(optionsMap.get(KEY_STORAGE_BUCKET))
+                      .setGaTrackingId(optionsMap.get(KEY_TRACKING_ID))
+                      .build();
+
+              return FirebaseApp.initializeApp(applicationContext, options, name);
+            })
+        .onSuccessTask(
+            getSharedExecutor(),
+            firebaseApp ->
+                firebaseAppToMap(
+                    messenger, firebaseApp, trace, isLazyPluginConstants(arguments)))
+        .onSuccessTask(
+            getSharedExecutor(),
+            appMap -> {
+              trace.end();
+              Log.d(TAG, trace.getSummary());
+              return Tasks.forResult(appMap);
+            });
   }
 
-  private Task<List<Map<String, Object>>> initializeCore() {
-    return Tasks.call(
-        cachedThreadPool,
-        () -> {
-          if (!coreInitialized) {
-            coreInitialized = true;
-          } else {
-            Tasks.await(FlutterFirebasePluginRegistry.didReinitializeFirebaseCore());
-          }
+  // The apps are mapped concurrently, each requesting the constants of every plugin at once, so
+  // initialization takes as long as the slowest plugin rather than the sum of all of them. The
+  // time taken by each phase is logged and kept for Firebase#getStartupTrace.
+  private Task<List<Map<String, Object>>> initializeCore(Map<String, Object> arguments) {
+    boolean lazyPluginConstants = isLazyPluginConstants(arguments);
+    FlutterFirebaseStartupTrace trace = new FlutterFirebaseStartupTrace("Firebase#initializeCore");
+    BinaryMessenger messenger = this.messenger;
+
+    Task<Void> reinitializeTask;
+    if (!coreInitialized) {
+      coreInitialized = true;
+      reinitializeTask = Tasks.forResult(null);
+    } else {
+      reinitializeTask =
+          FlutterFirebasePluginRegistry.didReinitializeFirebaseCore(messenger, trace);
+    }
 
-          List<FirebaseApp> firebaseApps = FirebaseApp.getApps(applicationContext);
-          List<Map<String, Object>> firebaseAppsList = new ArrayList<>(firebaseApps.size());
+    return reinitializeTask
+        .onSuccessTask(
+            getSharedExecutor(),
+            ignored -> {
+              long startNanos = System.nanoTime();
+              List<FirebaseApp> firebaseApps = FirebaseApp.getApps(applicationContext);
+              trace.record(
+                  FlutterFirebaseStartupTrace.PHASE_APP_DISCOVERY, null, null, startNanos);
+
+              List<Task<Map<String, Object>>> firebaseAppTasks =
+                  new ArrayList<>(firebaseApps.size());
+              for (FirebaseApp firebaseApp : firebaseApps) {
+                firebaseAppTasks.add(
+                    firebaseAppToMap(messenger, firebaseApp, trace, lazyPluginConstants));
+              }
+
+              return Tasks.<Map<String, Object>>whenAllSuccess(firebaseAppTasks);
+            })
+        .onSuccessTask(
+            getSharedExecutor(),
+            appMaps -> {
+              // Kept before Dart receives the apps, which may then request the trace at once.
+              trace.end();
+              lastInitializeCoreTrace = trace;
+              Log.i(TAG, trace.getSummary());
+              return Tasks.forResult(appMaps);
+            });
+  }
 
-          for (FirebaseApp firebaseApp : firebaseApps) {
-            firebaseAppsList.add(Tasks.await(firebaseAppToMap(firebaseApp)));
-          }
+  private Task<Map<String, Object>> getPluginConstants(Map<String, Object> arguments) {
+    BinaryMessenger messenger = this.messenger;
 
-          return firebaseAppsList;
-        });
+    return Tasks.call(
+            getSharedExecutor(),
+            () -> {
+              String appName = (String) Objects.requireNonNull(arguments.get(KEY_APP_NAME));
+              return FirebaseApp.getInstance(appName);
+            })
+        .onSuccessTask(
+            getSharedExecutor(),
+            firebaseApp -> {
+              String pluginName = (String) Objects.requireNonNull(arguments.get(KEY_PLUGIN_NAME));
+              return FlutterFirebasePluginRegistry.getPluginConstants(
+                  messenger, pluginName, firebaseApp);
+            });
+  }
+
+  private Task<Map<String, Object>> getStartupTrace() {
+    FlutterFirebaseStartupTrace trace = lastInitializeCoreTrace;
+    return Tasks.forResult(trace != null ? trace.toMap() : null);
   }
 
   private Task<Void> setAutomaticDataCollectionEnabled(Map<String, Object> arguments) {
     return Tasks.call(
-        cachedThreadPool,
+        getSharedExecutor(),
         () -> {
           String appName = (String) Objects.requireNonNull(arguments.get(KEY_APP_NAME));
           boolean enabled = (boolean) Objects.requireNonNull(arguments.get(KEY_ENABLED));
@@ -193,7 +289,7 @@ public class FlutterFirebaseCorePlugin implements FlutterPlugin, MethodChannel.M
 
   private Task<Void> setAutomaticResourceManagementEnabled(Map<String, Object> arguments) {
     return Tasks.call(
-        cachedThreadPool,
+        getSharedExecutor(),
         () -> {
           String appName = (String) Objects.requireNonNull(arguments.get(KEY_APP_NAME));
           boolean enabled = (boolean) Objects.requireNonNull(arguments.get(KEY_ENABLED));
@@ -205,7 +301,7 @@ public class FlutterFirebaseCorePlugin implements FlutterPlugin, MethodChannel.M
 
   private Task<Void> deleteApp(Map<String, Object> arguments) {
     return Tasks.call(
-        cachedThreadPool,
+        getSharedExecutor(),
         () -> {
           String appName = (String) Objects.requireNonNull(arguments.get(KEY_APP_NAME));
           FirebaseApp firebaseApp = FirebaseApp.getInstance(appName);
@@ -215,6 +311,8 @@ public class FlutterFirebaseCorePlugin implements FlutterPlugin, MethodChannel.M
             // Ignore app not found exceptions.
           }
 
+          FlutterFirebasePluginRegistry.clearPluginConstants(appName);
+
           return null;
         });
   }
@@ -228,7 +326,13 @@ public class FlutterFirebaseCorePlugin implements FlutterPlugin, MethodChannel.M
         methodCallTask = initializeApp(call.arguments());
         break;
       case "Firebase#initializeCore":
-        methodCallTask = initializeCore();
+        methodCallTask = initializeCore(call.arguments());
+        break;
+      case "Firebase#getPluginConstants":
+        methodCallTask = getPluginConstants(call.arguments());
+        break;
+      case "Firebase#getStartupTrace":
+        methodCallTask = getStartupTrace();
         break;
       case "FirebaseApp#setAutomaticDataCollectionEnabled":
         methodCallTask = setAutomaticDataCollectionEnabled(call.arguments());
@@ -0,0 +1,31 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+package io.flutter.plugins.firebase.core;
+
+import androidx.annotation.Keep;
+import androidx.annotation.NonNull;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the executors FlutterFire plugins run their work on.
+ *
+ * <p>An app can provide its own implementation through {@link
+ * FlutterFirebaseExecutors#setExecutorProvider}, e.g. to share its own thread pool with the
+ * plugins.
+ */
+@Keep
+public interface FlutterFirebaseExecutorProvider {
+  /**
+   * Creates an executor for the given plugin.
+   *
+   * @param name The name of the executor, for example: `Firestore`, which should be used to name
+   *     its threads.
+   * @param maxPoolSize The maximum number of tasks the executor should run at the same time.
+   * @return The executor. Its gauges are only reported by {@link
+   *     FlutterFirebaseExecutors#getGauges} if it is a {@link
+   *     java.util.concurrent.ThreadPoolExecutor}.
+   */
+  @NonNull
+  ExecutorService createExecutor(@NonNull String name, int maxPoolSize);
+}
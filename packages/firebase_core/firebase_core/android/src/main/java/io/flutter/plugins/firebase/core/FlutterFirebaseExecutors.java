@@ -0,0 +1,152 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+package io.flutter.plugins.firebase.core;
+
+import androidx.annotation.Keep;
+import androidx.annotation.NonNull;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executors FlutterFire plugins run their work on.
+ *
+ * <p>By default each executor is a bounded {@link ThreadPoolExecutor} with named threads, whose
+ * idle threads are stopped after {@link #KEEP_ALIVE_SECONDS}. An app can replace them by calling
+ * {@link #setExecutorProvider} and {@link #setSharedMaxPoolSize}, e.g. in {@code
+ * Application#onCreate}, before any plugin has been registered.
+ */
+@Keep
+public final class FlutterFirebaseExecutors {
+  static final long KEEP_ALIVE_SECONDS = 30;
+  private static final String SHARED_EXECUTOR_NAME = "Shared";
+
+  // The executors which have been created, keyed by their name, for their gauges to be reported.
+  private static final ConcurrentHashMap<String, ExecutorService> executors =
+      new ConcurrentHashMap<>();
+
+  private static volatile FlutterFirebaseExecutorProvider executorProvider =
+      FlutterFirebaseExecutors::newThreadPoolExecutor;
+  private static volatile int sharedMaxPoolSize =
+      Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+  private FlutterFirebaseExecutors() {}
+
+  /**
+   * Sets the provider used to create the executors which have not been created yet. The shared
+   * executor is created the first time any plugin uses it.
+   */
+  public static void setExecutorProvider(@NonNull FlutterFirebaseExecutorProvider provider) {
+    executorProvider = provider;
+  }
+
+  /**
+   * Sets the maximum number of tasks the shared executor runs at the same time. If it has already
+   * been created by the default provider, its size is updated straight away.
+   */
+  public static void setSharedMaxPoolSize(int maxPoolSize) {
+    if (maxPoolSize < 1) {
+      throw new IllegalArgumentException("maxPoolSize must be at least 1.");
+    }
+
+    sharedMaxPoolSize = maxPoolSize;
+
+    ExecutorService sharedExecutor = executors.get(SHARED_EXECUTOR_NAME);
+    if (sharedExecutor instanceof ThreadPoolExecutor) {
+      ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) sharedExecutor;
+      // The core size may never exceed the maximum size, so they are updated in that order.
+      if (maxPoolSize > threadPoolExecutor.getMaximumPoolSize()) {
+        threadPoolExecutor.setMaximumPoolSize(maxPoolSize);
+        threadPoolExecutor.setCorePoolSize(maxPoolSize);
+      } else {
+        threadPoolExecutor.setCorePoolSize(maxPoolSize);
+        threadPoolExecutor.setMaximumPoolSize(maxPoolSize);
+      }
+    }
+  }
+
+  /**
+   * The executor shared by every plugin. It is bounded, so tasks running on it should chain other
+   * tasks rather than block on them with Tasks.await.
+   */
+  @NonNull
+  public static ExecutorService getSharedExecutor() {
+    return SharedExecutorHolder.EXECUTOR;
+  }
+
+  /**
+   * Creates an executor through the current provider, for a plugin which needs an executor of its
+   * own rather than the shared one.
+   *
+   * @param name The name of the executor, for example: `Firestore`. Only the gauges of the latest
+   *     executor created with a name are reported.
+   * @param maxPoolSize The maximum number of tasks the executor runs at the same time.
+   */
+  @NonNull
+  public static ExecutorService newExecutor(@NonNull String name, int maxPoolSize) {
+    if (maxPoolSize < 1) {
+      throw new IllegalArgumentException("maxPoolSize must be at least 1.");
+    }
+
+    ExecutorService executor = executorProvider.createExecutor(name, maxPoolSize);
+    executors.put(name, executor);
+    return executor;
+  }
+
+  /**
+   * Returns the gauges of the given executor: the number of tasks it is running, queued and has
+   * completed, as well as its current and maximum number of threads. The map is empty if the
+   * executor is not a {@link ThreadPoolExecutor}.
+   */
+  @NonNull
+  public static Map<String, Object> getGauges(@NonNull ExecutorService executor) {
+    Map<String, Object> gauges = new HashMap<>();
+    if (!(executor instanceof ThreadPoolExecutor)) return gauges;
+
+    ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) executor;
+    gauges.put("activeTasks", threadPoolExecutor.getActiveCount());
+    gauges.put("queuedTasks", threadPoolExecutor.getQueue().size());
+    gauges.put("completedTasks", threadPoolExecutor.getCompletedTaskCount());
+    gauges.put("poolSize", threadPoolExecutor.getPoolSize());
+    gauges.put("maxPoolSize", threadPoolExecutor.getMaximumPoolSize());
+    return gauges;
+  }
+
+  /** Returns the gauges of every executor which has been created, keyed by its name. */
+  @NonNull
+  public static Map<String, Object> getGauges() {
+    Map<String, Object> gauges = new HashMap<>();
+    for (Map.Entry<String, ExecutorService> entry : executors.entrySet()) {
+      gauges.put(entry.getKey(), getGauges(entry.getValue()));
+    }
+    return gauges;
+  }
+
+  // Runs at most maxPoolSize tasks at once, queueing the others, and stops idle threads so that
+  // an unused executor holds no threads.
+  private static ExecutorService newThreadPoolExecutor(String name, int maxPoolSize) {
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor threadPoolExecutor =
+        new ThreadPoolExecutor(
+            maxPoolSize,
+            maxPoolSize,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable ->
+                new Thread(runnable, "FLTFirebase" + name + "-" + threadCount.incrementAndGet()));
+    threadPoolExecutor.allowCoreThreadTimeOut(true);
+    return threadPoolExecutor;
+  }
+
+  // Creates the shared executor on first use, so that an app can configure it beforehand.
+  private static final class SharedExecutorHolder {
+    static final ExecutorService EXECUTOR = newExecutor(SHARED_EXECUTOR_NAME, sharedMaxPoolSize);
+  }
+}
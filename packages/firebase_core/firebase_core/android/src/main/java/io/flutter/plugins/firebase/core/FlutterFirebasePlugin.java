@@ -12,8 +12,14 @@ import java.util.concurrent.Executors;
 
 @Keep
 public interface FlutterFirebasePlugin {
-  // A shared ExecutorService used by all FlutterFire Plugins for their GMS Tasks.
-  ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+  /**
+   * An unbounded ExecutorService for the GMS Tasks of FlutterFire Plugins, kept for plugins whose
+   * tasks block on other tasks with Tasks.await.
+   *
+   * @deprecated Use {@link FlutterFirebaseExecutors#getSharedExecutor()}, which is bounded and
+   *     names its threads, and chain tasks rather than block on them.
+   */
+  @Deprecated ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
 
   /**
    * FlutterFire plugins implementing FlutterFirebasePlugin must provide this method to provide it's
@@ -3,31 +3,118 @@
 // found in the LICENSE file.
 package io.flutter.plugins.firebase.core;
 
-import static io.flutter.plugins.firebase.core.FlutterFirebasePlugin.cachedThreadPool;
+import static io.flutter.plugins.firebase.core.FlutterFirebaseExecutors.getSharedExecutor;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import androidx.annotation.Keep;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.FirebaseApp;
+import io.flutter.plugin.common.BinaryMessenger;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * The registry of FlutterFire plugins, through which FlutterFirebaseCorePlugin gathers their
+ * constants and notifies them that core was reinitialized.
+ *
+ * <p>Plugins are registered per FlutterEngine, identified by its {@link BinaryMessenger}, so that
+ * an app running several engines, e.g. a background isolate, only reaches the plugins attached to
+ * the engine which called Firebase#initializeCore. The registry may be used from any thread:
+ * plugins are iterated on a snapshot, unaffected by plugins registering meanwhile.
+ */
 @Keep
 public class FlutterFirebasePluginRegistry {
+  private static final String TAG = "FLTFirebaseCore";
 
-  private static final Map<String, FlutterFirebasePlugin> registeredPlugins = new WeakHashMap<>();
+  // How long a plugin may take to provide its constants before Firebase#initializeCore carries on
+  // without them, so that a single slow plugin cannot stall the initialization of every plugin.
+  static final long PLUGIN_CONSTANTS_TIMEOUT_MILLIS = 5000;
+
+  // Keyed by the BinaryMessenger of each engine, which is unique to the engine.
+  private static final ConcurrentHashMap<BinaryMessenger, EngineRegistry> engines =
+      new ConcurrentHashMap<>();
+  // Plugins registered without an engine are reached from every engine.
+  private static final ConcurrentHashMap<String, FlutterFirebasePlugin> sharedPlugins =
+      new ConcurrentHashMap<>();
+  private static final Handler timeoutHandler = new Handler(Looper.getMainLooper());
 
   /**
-   * Register a Flutter Firebase plugin with the Firebase plugin registry.
+   * Register a Flutter Firebase plugin with the Firebase plugin registry, for every engine.
    *
    * @param channelName The MethodChannel name for the plugin to be registered, for example:
    *     `plugins.flutter.io/firebase_core`
    * @param flutterFirebasePlugin A FlutterPlugin that implements FlutterFirebasePlugin.
+   * @deprecated Use {@link #registerPlugin(BinaryMessenger, String, FlutterFirebasePlugin)}, as a
+   *     plugin registered this way is replaced by the plugin of whichever engine registers last.
    */
+  @Deprecated
   public static void registerPlugin(
       String channelName, FlutterFirebasePlugin flutterFirebasePlugin) {
-    registeredPlugins.put(channelName, flutterFirebasePlugin);
+    sharedPlugins.put(channelName, flutterFirebasePlugin);
+  }
+
+  /**
+   * Register a Flutter Firebase plugin with the Firebase plugin registry, for the engine of the
+   * provided messenger. A plugin should unregister itself once detached from the engine.
+   *
+   * @param messenger The BinaryMessenger of the engine the plugin is attached to.
+   * @param channelName The MethodChannel name for the plugin to be registered, for example:
+   *     `plugins.flutter.io/firebase_core`
+   * @param flutterFirebasePlugin A FlutterPlugin that implements FlutterFirebasePlugin.
+   */
+  public static void registerPlugin(
+      BinaryMessenger messenger, String channelName, FlutterFirebasePlugin flutterFirebasePlugin) {
+    getEngine(messenger).plugins.put(channelName, flutterFirebasePlugin);
+  }
+
+  /**
+   * Unregister a Flutter Firebase plugin from the engine of the provided messenger.
+   *
+   * @param messenger The BinaryMessenger of the engine the plugin was attached to.
+   * @param channelName The MethodChannel name the plugin was registered with.
+   */
+  public static void unregisterPlugin(BinaryMessenger messenger, String channelName) {
+    EngineRegistry engine = engines.get(messenger);
+    if (engine != null) {
+      engine.plugins.remove(channelName);
+    }
+  }
+
+  /** Forgets every plugin and constant of the engine of the provided messenger once detached. */
+  static void unregisterEngine(BinaryMessenger messenger) {
+    engines.remove(messenger);
+  }
+
+  private static EngineRegistry getEngine(BinaryMessenger messenger) {
+    EngineRegistry engine = engines.get(messenger);
+    if (engine == null) {
+      engine = new EngineRegistry();
+      EngineRegistry existingEngine = engines.putIfAbsent(messenger, engine);
+      if (existingEngine != null) {
+        engine = existingEngine;
+      }
+    }
+    return engine;
+  }
+
+  // A snapshot of the plugins reached from the engine, in which a plugin of the engine takes
+  // precedence over a shared plugin registered with the same channel name.
+  private static Map<String, FlutterFirebasePlugin> getPlugins(BinaryMessenger messenger) {
+    Map<String, FlutterFirebasePlugin> plugins = new HashMap<>(sharedPlugins);
+    EngineRegistry engine = engines.get(messenger);
+    if (engine != null) {
+      plugins.putAll(engine.plugins);
+    }
+    return plugins;
   }
 
   /**
@@ -35,25 +122,183 @@ public class FlutterFirebasePluginRegistry {
    * constants to be initialized during FirebaseCore.initializeApp in Dart. Here we call this method
    * on each of the registered plugins and gather their constants for use in Dart.
    *
+   * <p>The constants of all plugins are requested at once. A plugin which has not provided its
+   * constants within {@link #PLUGIN_CONSTANTS_TIMEOUT_MILLIS} is given null constants, while a
+   * plugin which fails to provide them fails the returned task.
+   *
+   * @param messenger The BinaryMessenger of the engine whose plugins should return constants.
    * @param firebaseApp The Firebase App that the plugin should return constants for.
+   * @param trace The trace recording how long each plugin took to provide its constants.
    * @return A task returning the discovered constants for each plugin (using channelName as the Map
    *     key) for the provided Firebase App.
    */
-  static Task<Map<String, Object>> getPluginConstantsForFirebaseApp(FirebaseApp firebaseApp) {
+  static Task<Map<String, Object>> getPluginConstantsForFirebaseApp(
+      BinaryMessenger messenger, FirebaseApp firebaseApp, FlutterFirebaseStartupTrace trace) {
+    List<String> channelNames = new ArrayList<>();
+
     return Tasks.call(
-        cachedThreadPool,
-        () -> {
-          Map<String, Object> pluginConstants = new HashMap<>(registeredPlugins.size());
+            getSharedExecutor(),
+            () -> {
+              List<Task<Map<String, Object>>> constantsTasks = new ArrayList<>();
+
+              for (Map.Entry<String, FlutterFirebasePlugin> entry :
+                  getPlugins(messenger).entrySet()) {
+                channelNames.add(entry.getKey());
+                constantsTasks.add(
+                    getPluginConstantsWithTimeout(
+                        entry.getKey(), entry.getValue(), firebaseApp, trace));
+              }
 
-          for (Map.Entry<String, FlutterFirebasePlugin> entry : registeredPlugins.entrySet()) {
-            String channelName = entry.getKey();
-            FlutterFirebasePlugin plugin = entry.getValue();
-            pluginConstants.put(
-                channelName, Tasks.await(plugin.getPluginConstantsForFirebaseApp(firebaseApp)));
+              return constantsTasks;
+            })
+        .onSuccessTask(getSharedExecutor(), Tasks::<Map<String, Object>>whenAllSuccess)
+        .onSuccessTask(
+            getSharedExecutor(),
+            constants -> {
+              Map<String, Object> pluginConstants = new HashMap<>(channelNames.size());
+              for (int i = 0; i < channelNames.size(); i++) {
+                pluginConstants.put(channelNames.get(i), constants.get(i));
+              }
+              return Tasks.forResult(pluginConstants);
+            });
+  }
+
+  /**
+   * Resolves the constants of a single plugin for the provided Firebase App, when Dart first uses
+   * the plugin after Firebase#initializeCore skipped the constants of every plugin.
+   *
+   * <p>The constants are cached until the app is deleted or core is reinitialized. A plugin which
+   * fails to provide them is asked again on the next request.
+   *
+   * @param messenger The BinaryMessenger of the engine whose plugin should return constants.
+   * @param channelName The MethodChannel name of the plugin.
+   * @param firebaseApp The Firebase App that the plugin should return constants for.
+   * @return A task returning the constants of the plugin, or null if no plugin is registered with
+   *     the channel name or the engine has been unregistered.
+   */
+  static Task<Map<String, Object>> getPluginConstants(
+      BinaryMessenger messenger, String channelName, FirebaseApp firebaseApp) {
+    // The engine is not recreated once unregistered, as it would never be unregistered again.
+    EngineRegistry engine = engines.get(messenger);
+    FlutterFirebasePlugin plugin = getPlugins(messenger).get(channelName);
+    if (engine == null || plugin == null) {
+      return Tasks.forResult(null);
+    }
+
+    String appName = firebaseApp.getName();
+    ConcurrentHashMap<String, ConcurrentHashMap<String, Task<Map<String, Object>>>>
+        resolvedPluginConstants = engine.resolvedPluginConstants;
+    ConcurrentHashMap<String, Task<Map<String, Object>>> appConstants =
+        resolvedPluginConstants.get(appName);
+    if (appConstants == null) {
+      appConstants = new ConcurrentHashMap<>();
+      ConcurrentHashMap<String, Task<Map<String, Object>>> existingAppConstants =
+          resolvedPluginConstants.putIfAbsent(appName, appConstants);
+      if (existingAppConstants != null) {
+        appConstants = existingAppConstants;
+      }
+    }
+
+    TaskCompletionSource<Map<String, Object>> completionSource = new TaskCompletionSource<>();
+    Task<Map<String, Object>> existingTask =
+        appConstants.putIfAbsent(channelName, completionSource.getTask());
+    if (existingTask != null) {
+      return existingTask;
+    }
+
+    ConcurrentHashMap<String, Task<Map<String, Object>>> cachedAppConstants = appConstants;
+
+    plugin
+        .getPluginConstantsForFirebaseApp(firebaseApp)
+        .addOnCompleteListener(
+            getSharedExecutor(),
+            task -> {
+              if (task.isSuccessful()) {
+                completionSource.trySetResult(task.getResult());
+                return;
+              }
+
+              cachedAppConstants.remove(channelName, completionSource.getTask());
+              if (task.getException() != null) {
+                completionSource.trySetException(task.getException());
+              } else {
+                completionSource.trySetException(
+                    new CancellationException(channelName + " cancelled providing its constants."));
+              }
+            });
+
+    return completionSource.getTask();
+  }
+
+  /**
+   * Forgets the constants resolved for the provided Firebase App by every engine, e.g. once it is
+   * deleted, as apps are shared by every engine.
+   */
+  static void clearPluginConstants(String appName) {
+    for (EngineRegistry engine : engines.values()) {
+      engine.resolvedPluginConstants.remove(appName);
+    }
+  }
+
+  private static Task<Map<String, Object>> getPluginConstantsWithTimeout(
+      String channelName,
+      FlutterFirebasePlugin plugin,
+      FirebaseApp firebaseApp,
+      FlutterFirebaseStartupTrace trace) {
+    TaskCompletionSource<Map<String, Object>> completionSource = new TaskCompletionSource<>();
+    // Whichever of the timeout and the plugin comes first records the phase, before completing the
+    // task the trace waits for, so that the phase is never recorded once the trace has ended.
+    AtomicBoolean settled = new AtomicBoolean();
+    long startNanos = System.nanoTime();
+
+    Runnable timeout =
+        () -> {
+          if (settled.compareAndSet(false, true)) {
+            trace.recordTimedOut(
+                FlutterFirebaseStartupTrace.PHASE_PLUGIN_CONSTANTS,
+                firebaseApp.getName(),
+                channelName,
+                startNanos);
+            completionSource.setResult(null);
+            Log.w(
+                TAG,
+                channelName
+                    + " did not provide its constants for app "
+                    + firebaseApp.getName()
+                    + " within "
+                    + PLUGIN_CONSTANTS_TIMEOUT_MILLIS
+                    + "ms, continuing without them.");
           }
+        };
+    timeoutHandler.postDelayed(timeout, PLUGIN_CONSTANTS_TIMEOUT_MILLIS);
+
+    plugin
+        .getPluginConstantsForFirebaseApp(firebaseApp)
+        .addOnCompleteListener(
+            getSharedExecutor(),
+            task -> {
+              timeoutHandler.removeCallbacks(timeout);
+              if (!settled.compareAndSet(false, true)) {
+                return;
+              }
+
+              trace.record(
+                  FlutterFirebaseStartupTrace.PHASE_PLUGIN_CONSTANTS,
+                  firebaseApp.getName(),
+                  channelName,
+                  startNanos);
+
+              if (task.isSuccessful()) {
+                completionSource.setResult(task.getResult());
+              } else if (task.getException() != null) {
+                completionSource.setException(task.getException());
+              } else {
+                completionSource.setException(
+                    new CancellationException(channelName + " cancelled providing its constants."));
+              }
+            });
 
-          return pluginConstants;
-        });
+    return completionSource.getTask();
   }
 
   /**
@@ -62,16 +307,56 @@ public class FlutterFirebasePluginRegistry {
    *
    * <p>This is used by plugins to know if they need to cleanup previous resources between Hot
    * Restarts as `initializeCore` can only be called once in Dart.
+   *
+   * @param messenger The BinaryMessenger of the engine whose plugins should be notified.
+   * @param trace The trace recording how long each plugin took to be notified.
    */
-  static Task<Void> didReinitializeFirebaseCore() {
+  static Task<Void> didReinitializeFirebaseCore(
+      BinaryMessenger messenger, FlutterFirebaseStartupTrace trace) {
     return Tasks.call(
-        cachedThreadPool,
-        () -> {
-          for (Map.Entry<String, FlutterFirebasePlugin> entry : registeredPlugins.entrySet()) {
-            FlutterFirebasePlugin plugin = entry.getValue();
-            Tasks.await(plugin.didReinitializeFirebaseCore());
-          }
-          return null;
-        });
+            getSharedExecutor(),
+            () -> {
+              List<Task<Void>> reinitializeTasks = new ArrayList<>();
+              for (Map.Entry<String, FlutterFirebasePlugin> entry :
+                  getPlugins(messenger).entrySet()) {
+                String channelName = entry.getKey();
+                long startNanos = System.nanoTime();
+                reinitializeTasks.add(
+                    entry
+                        .getValue()
+                        .didReinitializeFirebaseCore()
+                        .addOnCompleteListener(
+                            getSharedExecutor(),
+                            task ->
+                                trace.record(
+                                    FlutterFirebaseStartupTrace.PHASE_DID_REINITIALIZE,
+                                    null,
+                                    channelName,
+                                    startNanos)));
+              }
+              return reinitializeTasks;
+            })
+        .onSuccessTask(getSharedExecutor(), Tasks::whenAll)
+        .continueWithTask(
+            getSharedExecutor(),
+            task -> {
+              // Plugins may provide different constants once they have cleaned up, so constants
+              // resolved before or while they did so are forgotten.
+              EngineRegistry engine = engines.get(messenger);
+              if (engine != null) {
+                engine.resolvedPluginConstants.clear();
+              }
+              return task;
+            });
+  }
+
+  // The plugins registered for, and the constants resolved by, a single engine.
+  private static final class EngineRegistry {
+    final ConcurrentHashMap<String, FlutterFirebasePlugin> plugins = new ConcurrentHashMap<>();
+
+    // The constants resolved on first use through Firebase#getPluginConstants, keyed by app name
+    // and then by channel name. Holding the task lets concurrent requests share a resolution.
+    final ConcurrentHashMap<String, ConcurrentHashMap<String, Task<Map<String, Object>>>>
+        resolvedPluginConstants = new ConcurrentHashMap<>();
   }
 }
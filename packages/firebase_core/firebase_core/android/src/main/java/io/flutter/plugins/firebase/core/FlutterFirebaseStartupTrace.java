@@ -0,0 +1,166 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+package io.flutter.plugins.firebase.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records how long each phase of initializing Firebase took, e.g. gathering the constants of a
+ * plugin for an app, so that a slow phase can be told apart from the others.
+ *
+ * <p>Phases may run concurrently and be recorded from any thread. Times are relative to the start
+ * of the trace and in microseconds.
+ */
+class FlutterFirebaseStartupTrace {
+  static final String PHASE_APP_DISCOVERY = "appDiscovery";
+  static final String PHASE_OPTIONS = "options";
+  static final String PHASE_PLUGIN_CONSTANTS = "pluginConstants";
+  static final String PHASE_DID_REINITIALIZE = "didReinitializeFirebaseCore";
+
+  private final String name;
+  private final long startNanos = System.nanoTime();
+  private final List<Phase> phases = new ArrayList<>();
+  private volatile long endNanos;
+
+  FlutterFirebaseStartupTrace(@NonNull String name) {
+    this.name = name;
+  }
+
+  /**
+   * Records a phase which started at the given time and ended now.
+   *
+   * @param phase The kind of phase, one of the PHASE_ constants.
+   * @param appName The app the phase ran for, if any.
+   * @param pluginName The channel name of the plugin the phase ran for, if any.
+   * @param phaseStartNanos The {@link System#nanoTime()} at which the phase started.
+   */
+  void record(
+      @NonNull String phase,
+      @Nullable String appName,
+      @Nullable String pluginName,
+      long phaseStartNanos) {
+    add(new Phase(phase, appName, pluginName, phaseStartNanos, System.nanoTime(), false));
+  }
+
+  /**
+   * Records a phase which started at the given time and was given up on now, before it ended, so
+   * that it is part of the trace even if it ends after the trace.
+   *
+   * @see #record
+   */
+  void recordTimedOut(
+      @NonNull String phase,
+      @Nullable String appName,
+      @Nullable String pluginName,
+      long phaseStartNanos) {
+    add(new Phase(phase, appName, pluginName, phaseStartNanos, System.nanoTime(), true));
+  }
+
+  private void add(Phase phase) {
+    synchronized (phases) {
+      phases.add(phase);
+    }
+  }
+
+  /** Ends the trace, once every phase has been recorded. */
+  void end() {
+    endNanos = System.nanoTime();
+  }
+
+  /**
+   * Returns the trace as sent to Dart: its name, total duration and phases in the order they
+   * started, each with its start, its duration and whether it timed out.
+   */
+  @NonNull
+  Map<String, Object> toMap() {
+    List<Map<String, Object>> phaseMaps = new ArrayList<>();
+    for (Phase phase : getSortedPhases()) {
+      Map<String, Object> phaseMap = new HashMap<>();
+      phaseMap.put("phase", phase.phase);
+      phaseMap.put("appName", phase.appName);
+      phaseMap.put("pluginName", phase.pluginName);
+      phaseMap.put("startMicros", toMicros(phase.startNanos - startNanos));
+      phaseMap.put("durationMicros", toMicros(phase.endNanos - phase.startNanos));
+      phaseMap.put("timedOut", phase.timedOut);
+      phaseMaps.add(phaseMap);
+    }
+
+    Map<String, Object> trace = new HashMap<>();
+    trace.put("name", name);
+    trace.put("durationMicros", toMicros(endNanos - startNanos));
+    trace.put("phases", phaseMaps);
+    return trace;
+  }
+
+  /**
+   * Returns a single line summary of the trace, for example: {@code Firebase#initializeCore took
+   * 42ms: appDiscovery 1ms, pluginConstants [DEFAULT] plugins.flutter.io/firebase_firestore 38ms}.
+   */
+  @NonNull
+  String getSummary() {
+    StringBuilder summary = new StringBuilder();
+    summary.append(name).append(" took ").append(toMillis(endNanos - startNanos)).append("ms");
+
+    String separator = ": ";
+    for (Phase phase : getSortedPhases()) {
+      summary.append(separator).append(phase.phase);
+      if (phase.appName != null) summary.append(' ').append(phase.appName);
+      if (phase.pluginName != null) summary.append(' ').append(phase.pluginName);
+      summary.append(' ').append(toMillis(phase.endNanos - phase.startNanos)).append("ms");
+      if (phase.timedOut) summary.append(" (timed out)");
+      separator = ", ";
+    }
+
+    return summary.toString();
+  }
+
+  private List<Phase> getSortedPhases() {
+    List<Phase> sortedPhases;
+    synchronized (phases) {
+      sortedPhases = new ArrayList<>(phases);
+    }
+
+    Collections.sort(
+        sortedPhases, (first, second) -> Long.compare(first.startNanos, second.startNanos));
+    return sortedPhases;
+  }
+
+  private static long toMicros(long nanos) {
+    return nanos / 1000;
+  }
+
+  private static long toMillis(long nanos) {
+    return nanos / 1000000;
+  }
+
+  private static final class Phase {
+    final String phase;
+    @Nullable final String appName;
+    @Nullable final String pluginName;
+    final long startNanos;
+    final long endNanos;
+    final boolean timedOut;
+
+    Phase(
+        String phase,
+        @Nullable String appName,
+        @Nullable String pluginName,
+        long startNanos,
+        long endNanos,
+        boolean timedOut) {
+      this.phase = phase;
+      this.appName = appName;
+      this.pluginName = pluginName;
+      this.startNanos = startNanos;
+      this.endNanos = endNanos;
+      this.timedOut = timedOut;
+    }
+  }
+}
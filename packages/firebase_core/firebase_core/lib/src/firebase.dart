@@ -25,6 +25,18 @@ class Firebase {
   // Ensures end-users cannot initialize the class.
   Firebase._();
 
+  /// Whether the constants of each FlutterFire plugin are resolved when the
+  /// plugin is first used, rather than for every plugin by [initializeApp].
+  ///
+  /// Enabling this shortens app startup when many plugins are installed but
+  /// only some of them are used early on. It must be set before the first call
+  /// to [initializeApp].
+  static bool get lazyPluginConstants => _delegate.lazyPluginConstants;
+
+  static set lazyPluginConstants(bool lazyPluginConstants) {
+    _delegate.lazyPluginConstants = lazyPluginConstants;
+  }
+
   /// Returns a list of all [FirebaseApp] instances that have been created.
   static List<FirebaseApp> get apps {
     return _delegate.apps
@@ -53,6 +65,20 @@ class Firebase {
     return app == null ? null : FirebaseApp._(app);
   }
 
+  /// Returns how long each phase of the native initialization of Firebase took
+  /// during the last call to [initializeApp] which initialized core.
+  ///
+  /// The trace holds its `name`, its total `durationMicros` and its `phases`,
+  /// each of which has a `phase`, an `appName` and a `pluginName` where
+  /// relevant, its `startMicros` and `durationMicros`, and whether it
+  /// `timedOut`, such as a plugin which did not provide its constants in time.
+  /// Useful to find which plugin slows down app startup.
+  ///
+  /// Only recorded on Android; returns null on other platforms.
+  static Future<Map<String, dynamic>> getStartupTrace() {
+    return _delegate.getStartupTrace();
+  }
+
   @override
   bool operator ==(dynamic other) {
     if (identical(this, other)) return true;
@@ -26,9 +26,13 @@ class MethodChannelFirebase extends FirebasePlatform {
   /// can use initializeCore method to return any initialization data, such as
   /// any Firebase apps created natively and any constants which are required
   /// for a plugin to function correctly before usage.
+  ///
+  /// When [lazyPluginConstants] is enabled, the constants of plugins are
+  /// skipped and resolved on first use instead.
   Future<void> _initializeCore() async {
     List<Map> apps = await channel.invokeListMethod<Map>(
       'Firebase#initializeCore',
+      <String, dynamic>{'lazyPluginConstants': lazyPluginConstants},
     );
 
     apps.forEach(_initializeFirebaseAppFromMap);
@@ -99,7 +103,11 @@ class MethodChannelFirebase extends FirebasePlatform {
 
     _initializeFirebaseAppFromMap(await channel.invokeMapMethod(
       'Firebase#initializeApp',
-      <String, dynamic>{'appName': name, 'options': options.asMap},
+      <String, dynamic>{
+        'appName': name,
+        'options': options.asMap,
+        'lazyPluginConstants': lazyPluginConstants,
+      },
     ));
 
     return appInstances[name];
@@ -117,4 +125,37 @@ class MethodChannelFirebase extends FirebasePlatform {
 
     throw noAppExists(name);
   }
+
+  /// Resolves the constants of a plugin with the native
+  /// Firebase#getPluginConstants method, which caches them for the app.
+  ///
+  /// Returns null if the platform does not resolve constants on demand, in
+  /// which case they were all returned while initializing core.
+  @override
+  Future<Map<dynamic, dynamic>> getPluginConstants(
+      String appName, String pluginName) async {
+    try {
+      return await channel.invokeMapMethod<dynamic, dynamic>(
+        'Firebase#getPluginConstants',
+        <String, dynamic>{'appName': appName, 'pluginName': pluginName},
+      );
+    } on MissingPluginException {
+      return null;
+    }
+  }
+
+  /// Returns the trace of the native Firebase#initializeCore method.
+  ///
+  /// Returns null if core has not been initialized yet or the platform does not
+  /// record the trace.
+  @override
+  Future<Map<String, dynamic>> getStartupTrace() async {
+    try {
+      return await channel.invokeMapMethod<String, dynamic>(
+        'Firebase#getStartupTrace',
+      );
+    } on MissingPluginException {
+      return null;
+    }
+  }
 }
@@ -33,6 +33,13 @@ abstract class FirebasePlatform extends PlatformInterface {
     _instance = instance;
   }
 
+  /// Whether the constants of each plugin are resolved on first use, with
+  /// [FirebasePluginPlatform.resolvePluginConstants], rather than for every
+  /// plugin while Firebase is initialized.
+  ///
+  /// Must be set before Firebase is initialized.
+  bool lazyPluginConstants = false;
+
   /// Returns all initialized [FirebaseApp] instances.
   List<FirebaseAppPlatform> get apps {
     throw UnimplementedError('apps has not been implemented.');
@@ -50,4 +57,19 @@ abstract class FirebasePlatform extends PlatformInterface {
   FirebaseAppPlatform app([String name = defaultFirebaseAppName]) {
     throw UnimplementedError('app() has not been implemented.');
   }
+
+  /// Returns the constants of the plugin with the given [pluginName], i.e. its
+  /// method channel name, for the app with the given [appName].
+  ///
+  /// Returns null if the platform has no constants for the plugin.
+  Future<Map<dynamic, dynamic>> getPluginConstants(
+      String appName, String pluginName) {
+    throw UnimplementedError('getPluginConstants() has not been implemented.');
+  }
+
+  /// Returns how long each phase of the last native initialization of Firebase
+  /// took, or null if the platform does not record it.
+  Future<Map<String, dynamic>> getStartupTrace() {
+    throw UnimplementedError('getStartupTrace() has not been implemented.');
+  }
 }
@@ -33,6 +33,9 @@ abstract class FirebasePluginPlatform extends PlatformInterface {
   }
 
   /// Returns any plugin constants this plugin app instance has initialized.
+  ///
+  /// When [FirebasePlatform.lazyPluginConstants] is enabled, this is empty until
+  /// [resolvePluginConstants] has completed.
   Map<dynamic, dynamic> get pluginConstants {
     if (_constantsForPluginApps[_appName] != null &&
         _constantsForPluginApps[_appName][_methodChannelName] != null) {
@@ -41,4 +44,25 @@ abstract class FirebasePluginPlatform extends PlatformInterface {
 
     return {};
   }
+
+  /// Returns the plugin constants of this plugin app instance, requesting them
+  /// from the platform if they were not provided while Firebase was initialized.
+  ///
+  /// Plugins should await this before first reading [pluginConstants] when
+  /// [FirebasePlatform.lazyPluginConstants] is enabled. The constants are
+  /// cached, so later calls complete without a platform call.
+  Future<Map<dynamic, dynamic>> resolvePluginConstants() async {
+    Map<dynamic, dynamic> appConstants = _constantsForPluginApps[_appName];
+
+    if (appConstants == null ||
+        !appConstants.containsKey(_methodChannelName)) {
+      Map<dynamic, dynamic> constants = await FirebasePlatform.instance
+          .getPluginConstants(_appName, _methodChannelName);
+
+      _constantsForPluginApps[_appName] ??= <dynamic, dynamic>{};
+      _constantsForPluginApps[_appName][_methodChannelName] = constants;
+    }
+
+    return pluginConstants;
+  }
 }
@@ -23,6 +23,7 @@ void main() {
     setUp(() async {
       MethodChannelFirebase.isCoreInitialized = false;
       MethodChannelFirebase.appInstances = {};
+      channelPlatform.lazyPluginConstants = false;
 
       MethodChannelFirebase.channel
           .setMockMethodCallHandler((MethodCall methodCall) async {
@@ -51,6 +52,22 @@ void main() {
                 'projectId': 'testing',
               },
             };
+          case 'Firebase#getPluginConstants':
+            return <dynamic, dynamic>{'foo': 'bar'};
+          case 'Firebase#getStartupTrace':
+            return <dynamic, dynamic>{
+              'name': 'Firebase#initializeCore',
+              'durationMicros': 1200,
+              'phases': <dynamic>[
+                <dynamic, dynamic>{
+                  'phase': 'appDiscovery',
+                  'appName': null,
+                  'pluginName': null,
+                  'startMicros': 100,
+                  'durationMicros': 200,
+                },
+              ],
+            };
           default:
             return null;
         }
@@ -79,7 +96,7 @@ void main() {
           <Matcher>[
             isMethodCall(
               'Firebase#initializeCore',
-              arguments: null,
+              arguments: <String, dynamic>{'lazyPluginConstants': false},
             ),
           ],
         );
@@ -143,13 +160,14 @@ void main() {
             <Matcher>[
               isMethodCall(
                 'Firebase#initializeCore',
-                arguments: null,
+                arguments: <String, dynamic>{'lazyPluginConstants': false},
               ),
               isMethodCall(
                 'Firebase#initializeApp',
                 arguments: <String, dynamic>{
                   'appName': 'foo',
                   'options': testOptions.asMap,
+                  'lazyPluginConstants': false,
                 },
               ),
               isMethodCall(
@@ -157,6 +175,7 @@ void main() {
                 arguments: <String, dynamic>{
                   'appName': 'bar',
                   'options': testOptions.asMap,
+                  'lazyPluginConstants': false,
                 },
               ),
             ],
@@ -217,5 +236,76 @@ void main() {
         fail("FirebaseException not thrown");
       });
     });
+
+    group('lazyPluginConstants', () {
+      test('should be sent when initializing core', () async {
+        channelPlatform.lazyPluginConstants = true;
+        await channelPlatform.initializeApp();
+
+        expect(
+          methodCallLog,
+          <Matcher>[
+            isMethodCall(
+              'Firebase#initializeCore',
+              arguments: <String, dynamic>{'lazyPluginConstants': true},
+            ),
+          ],
+        );
+      });
+    });
+
+    group('.getPluginConstants()', () {
+      test('should return the constants of the plugin', () async {
+        Map<dynamic, dynamic> constants = await channelPlatform
+            .getPluginConstants('foo', 'plugins.flutter.io/foo');
+
+        expect(methodCallLog, <Matcher>[
+          isMethodCall(
+            'Firebase#getPluginConstants',
+            arguments: <String, dynamic>{
+              'appName': 'foo',
+              'pluginName': 'plugins.flutter.io/foo',
+            },
+          ),
+        ]);
+        expect(constants, <dynamic, dynamic>{'foo': 'bar'});
+      });
+
+      test('should return null if the platform does not resolve them',
+          () async {
+        MethodChannelFirebase.channel
+            .setMockMethodCallHandler((MethodCall methodCall) async {
+          throw MissingPluginException();
+        });
+
+        expect(
+          await channelPlatform.getPluginConstants(
+              'foo', 'plugins.flutter.io/foo'),
+          isNull,
+        );
+      });
+    });
+
+    group('.getStartupTrace()', () {
+      test('should return the trace', () async {
+        Map<String, dynamic> trace = await channelPlatform.getStartupTrace();
+
+        expect(methodCallLog, <Matcher>[
+          isMethodCall('Firebase#getStartupTrace', arguments: null),
+        ]);
+        expect(trace['name'], 'Firebase#initializeCore');
+        expect(trace['durationMicros'], 1200);
+        expect(trace['phases'][0]['phase'], 'appDiscovery');
+      });
+
+      test('should return null if the platform does not record it', () async {
+        MethodChannelFirebase.channel
+            .setMockMethodCallHandler((MethodCall methodCall) async {
+          throw MissingPluginException();
+        });
+
+        expect(await channelPlatform.getStartupTrace(), isNull);
+      });
+    });
   });
 }
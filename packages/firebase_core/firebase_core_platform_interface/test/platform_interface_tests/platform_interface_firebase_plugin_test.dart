@@ -0,0 +1,73 @@
+// Copyright 2020 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+import 'package:firebase_core_platform_interface/firebase_core_platform_interface.dart';
+import 'package:flutter_test/flutter_test.dart';
+import 'package:mockito/mockito.dart';
+import 'package:plugin_platform_interface/plugin_platform_interface.dart';
+
+const String kChannelName = 'plugins.flutter.io/test_plugin';
+
+void main() {
+  TestWidgetsFlutterBinding.ensureInitialized();
+
+  group('$FirebasePluginPlatform', () {
+    FirebaseCoreMockPlatform mock;
+
+    setUp(() {
+      mock = FirebaseCoreMockPlatform();
+      FirebasePlatform.instance = mock;
+    });
+
+    tearDown(() {
+      FirebasePlatform.instance = MethodChannelFirebase();
+    });
+
+    group('.resolvePluginConstants()', () {
+      // Constants are kept per app across tests, so each test uses its own app.
+      test('should request the constants from the platform on a miss',
+          () async {
+        when(mock.getPluginConstants('miss', kChannelName))
+            .thenAnswer((_) async => <dynamic, dynamic>{'foo': 'bar'});
+        final TestFirebasePlugin plugin = TestFirebasePlugin('miss');
+
+        expect(plugin.pluginConstants, isEmpty);
+        expect(await plugin.resolvePluginConstants(),
+            equals(<dynamic, dynamic>{'foo': 'bar'}));
+        expect(
+            plugin.pluginConstants, equals(<dynamic, dynamic>{'foo': 'bar'}));
+        verify(mock.getPluginConstants('miss', kChannelName)).called(1);
+      });
+
+      test('should return cached constants without a platform call', () async {
+        when(mock.getPluginConstants('hit', kChannelName))
+            .thenAnswer((_) async => <dynamic, dynamic>{'foo': 'bar'});
+        await TestFirebasePlugin('hit').resolvePluginConstants();
+        clearInteractions(mock);
+
+        expect(await TestFirebasePlugin('hit').resolvePluginConstants(),
+            equals(<dynamic, dynamic>{'foo': 'bar'}));
+        verifyNever(mock.getPluginConstants(any, any));
+      });
+
+      test('should cache a null result as empty constants', () async {
+        when(mock.getPluginConstants('null', kChannelName))
+            .thenAnswer((_) async => null);
+        final TestFirebasePlugin plugin = TestFirebasePlugin('null');
+
+        expect(await plugin.resolvePluginConstants(), isEmpty);
+        expect(await plugin.resolvePluginConstants(), isEmpty);
+        verify(mock.getPluginConstants('null', kChannelName)).called(1);
+      });
+    });
+  });
+}
+
+class TestFirebasePlugin extends FirebasePluginPlatform {
+  TestFirebasePlugin(String appName) : super(appName, kChannelName);
+}
+
+class FirebaseCoreMockPlatform extends Mock
+    with MockPlatformInterfaceMixin
+    implements FirebasePlatform {}
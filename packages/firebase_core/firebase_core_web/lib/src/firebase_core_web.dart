@@ -85,6 +85,19 @@ class FirebaseCoreWeb extends FirebasePlatform {
     return _createFromJsApp(app);
   }
 
+  /// The web has no plugin constants, so this always returns null.
+  @override
+  Future<Map<dynamic, dynamic>> getPluginConstants(
+      String appName, String pluginName) async {
+    return null;
+  }
+
+  /// The web does not record a startup trace, so this always returns null.
+  @override
+  Future<Map<String, dynamic>> getStartupTrace() async {
+    return null;
+  }
+
   /// Returns a [FirebaseAppPlatform] instance.
   ///
   /// If no name is provided, the default app instance is returned.